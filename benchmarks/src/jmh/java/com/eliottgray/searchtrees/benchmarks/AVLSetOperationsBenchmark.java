@@ -0,0 +1,99 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.AVLTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set algebra between two overlapping AVL trees of the same size:
+ * one holding multiples of two, the other multiples of three.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AVLSetOperationsBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private AVLTree<Integer> multiplesOfTwo;
+    private AVLTree<Integer> multiplesOfThree;
+
+    @Setup(Level.Trial)
+    public void setUpTrees(){
+        multiplesOfTwo = multiplesOf(2);
+        multiplesOfThree = multiplesOf(3);
+    }
+
+    private AVLTree<Integer> multiplesOf(int factor){
+        Integer[] keys = new Integer[size];
+        for (int index = 0; index < size; index++){
+            keys[index] = index * factor;
+        }
+        return AVLTree.fromSortedArray(keys);
+    }
+
+    @Benchmark
+    public AVLTree<Integer> union(){
+        return multiplesOfTwo.union(multiplesOfThree);
+    }
+
+    /**
+     * Baseline: insert every Key of one tree into the other.
+     */
+    @Benchmark
+    public AVLTree<Integer> unionByInsertion(){
+        AVLTree<Integer> union = multiplesOfTwo;
+        for (Integer key : multiplesOfThree.toAscendingList()){
+            union = union.insert(key);
+        }
+        return union;
+    }
+
+    @Benchmark
+    public AVLTree<Integer> intersect(){
+        return multiplesOfTwo.intersect(multiplesOfThree);
+    }
+
+    @Benchmark
+    public AVLTree<Integer> difference(){
+        return multiplesOfTwo.difference(multiplesOfThree);
+    }
+
+    @Benchmark
+    public AVLTree<Integer> symmetricDifference(){
+        return multiplesOfTwo.symmetricDifference(multiplesOfThree);
+    }
+
+    /**
+     * Baseline: materialize both trees, merge the sorted lists, and rebuild.
+     */
+    @Benchmark
+    public AVLTree<Integer> symmetricDifferenceByMerge(){
+        List<Integer> first = multiplesOfTwo.toAscendingList();
+        List<Integer> second = multiplesOfThree.toAscendingList();
+        List<Integer> merged = new ArrayList<>();
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.size() && secondIndex < second.size()){
+            int comparison = first.get(firstIndex).compareTo(second.get(secondIndex));
+            if (comparison < 0){
+                merged.add(first.get(firstIndex++));
+            } else if (comparison > 0){
+                merged.add(second.get(secondIndex++));
+            } else {
+                firstIndex++;
+                secondIndex++;
+            }
+        }
+        merged.addAll(first.subList(firstIndex, first.size()));
+        merged.addAll(second.subList(secondIndex, second.size()));
+        return AVLTree.fromSorted(merged);
+    }
+}
@@ -0,0 +1,66 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.AVLTree;
+import com.eliottgray.searchtrees.TransientAVLTree;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+public class AVLTreeBenchmark extends TreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Integer[] sortedKeys;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected Tree<Integer> buildEmptyTree(){
+        return new AVLTree<>();
+    }
+
+    @Benchmark
+    public int rank(){
+        return ((AVLTree<Integer>) tree).rank(nextPresentKey());
+    }
+
+    @Benchmark
+    public Integer select(){
+        // Keys are twice their rank.
+        return ((AVLTree<Integer>) tree).select(nextPresentKey() / 2);
+    }
+
+    @Setup(Level.Trial)
+    public void setUpSortedKeys(){
+        sortedKeys = new Integer[size];
+        for (int rank = 0; rank < size; rank++){
+            sortedKeys[rank] = KeyDistribution.keyAt(rank);
+        }
+    }
+
+    /**
+     * Build the same tree as {@link #load()}, through a single transient session.
+     */
+    @Benchmark
+    @Measurement(iterations = 3)
+    public Tree<Integer> loadTransient(){
+        TransientAVLTree<Integer> loading = new AVLTree<Integer>().asTransient();
+        for (int key : keys.insertionOrder){
+            loading.insert(key);
+        }
+        return loading.persistent();
+    }
+
+    /**
+     * Build a tree of the same Keys directly from sorted input, as a restart from a sorted source would.
+     */
+    @Benchmark
+    @Measurement(iterations = 3)
+    public Tree<Integer> loadFromSorted(){
+        return AVLTree.fromSortedArray(sortedKeys);
+    }
+}
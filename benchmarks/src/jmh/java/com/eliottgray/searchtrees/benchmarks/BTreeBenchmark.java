@@ -0,0 +1,29 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.BTree;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Same sizes as AVLTreeBenchmark, across the range of branching factors:
+ * wider nodes make for shallower trees and more sequential scans, but copy more per update.
+ */
+@State(Scope.Benchmark)
+public class BTreeBenchmark extends TreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"16", "32", "64", "128"})
+    public int branchingFactor;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected Tree<Integer> buildEmptyTree(){
+        return new BTree<>(branchingFactor);
+    }
+}
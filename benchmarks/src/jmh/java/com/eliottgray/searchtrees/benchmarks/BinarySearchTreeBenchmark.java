@@ -0,0 +1,32 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.BinarySearchTree;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * An unbalanced tree degenerates into a list under SORTED and REVERSE insertion,
+ * making loads quadratic and recursion as deep as the tree is large.
+ * Sizes therefore default to what every distribution can finish;
+ * pass e.g. `-p size=1000000 -p distribution=RANDOM` to measure larger random trees.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+public class BinarySearchTreeBenchmark extends TreeBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected Tree<Integer> buildEmptyTree(){
+        return new BinarySearchTree<>();
+    }
+}
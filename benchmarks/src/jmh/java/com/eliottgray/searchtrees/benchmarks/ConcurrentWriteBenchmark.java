@@ -0,0 +1,96 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.AVLTree;
+import com.eliottgray.searchtrees.CombiningTreeWriter;
+import com.eliottgray.searchtrees.ConcurrentAVLTree;
+import com.eliottgray.searchtrees.ConcurrentTreeRef;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended writes to a shared tree: compare-and-set retry and flat combining over a persistent tree,
+ * against fine-grained locking within a mutable one.
+ *
+ * Every thread inserts absent keys and deletes them again, so the tree keeps its size;
+ * run with -t to vary the number of writing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentWriteBenchmark {
+
+    /** Number of probe keys cycled through by each thread; a power of two. */
+    private static final int PROBE_COUNT = 1 << 16;
+    private static final int PROBE_MASK = PROBE_COUNT - 1;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ConcurrentTreeRef<Integer> ref;
+    private CombiningTreeWriter<Integer> combining;
+    private ConcurrentAVLTree<Integer> concurrent;
+
+    @Setup(Level.Trial)
+    public void setUpTrees(){
+        int[] order = KeyDistribution.RANDOM.insertionOrder(size, new SplittableRandom(42));
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int key : order){
+            tree = tree.insert(key);
+        }
+        ref = new ConcurrentTreeRef<>(tree);
+        combining = new CombiningTreeWriter<>(tree);
+        concurrent = new ConcurrentAVLTree<>();
+        for (int key : order){
+            concurrent.insert(key);
+        }
+    }
+
+    /**
+     * Absent keys for one thread, drawn from its own seed so that threads rarely write the same key.
+     */
+    @State(Scope.Thread)
+    public static class Probes {
+        private final Integer[] absent = new Integer[PROBE_COUNT];
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUpProbes(ConcurrentWriteBenchmark benchmark){
+            int[] probes = KeyDistribution.RANDOM.probes(benchmark.size, PROBE_COUNT, new SplittableRandom(Thread.currentThread().getId()));
+            for (int probe = 0; probe < PROBE_COUNT; probe++){
+                absent[probe] = probes[probe] + 1;
+            }
+        }
+
+        Integer next(){
+            return absent[index++ & PROBE_MASK];
+        }
+    }
+
+    @Benchmark
+    public Tree<Integer> compareAndSet(Probes probes){
+        Integer key = probes.next();
+        ref.insert(key);
+        return ref.delete(key);
+    }
+
+    @Benchmark
+    public AVLTree<Integer> flatCombining(Probes probes){
+        Integer key = probes.next();
+        combining.insert(key);
+        return combining.delete(key);
+    }
+
+    @Benchmark
+    public boolean fineGrained(Probes probes){
+        Integer key = probes.next();
+        concurrent.insert(key);
+        return concurrent.delete(key);
+    }
+}
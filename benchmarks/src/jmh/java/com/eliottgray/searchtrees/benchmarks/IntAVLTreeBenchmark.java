@@ -0,0 +1,76 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.IntAVLTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The primitive counterparts of the {@link AVLTreeBenchmark} operations, over the same keys and probes,
+ * so the cost of boxing and of the generic Comparator can be read off side by side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntAVLTreeBenchmark {
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private KeyProbes keys;
+
+    private IntAVLTree tree;
+
+    @Setup(Level.Trial)
+    public void setUpTree(){
+        keys = new KeyProbes(distribution, size);
+        tree = load();
+    }
+
+    @Benchmark
+    @Measurement(iterations = 3)
+    public IntAVLTree load(){
+        IntAVLTree loaded = new IntAVLTree();
+        for (int key : keys.insertionOrder){
+            loaded = loaded.insert(key);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public IntAVLTree insert(){
+        return tree.insert(keys.nextAbsentInt());
+    }
+
+    @Benchmark
+    public IntAVLTree delete(){
+        return tree.delete(keys.nextPresentInt());
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return tree.contains(keys.nextPresentInt());
+    }
+
+    @Benchmark
+    public boolean containsAbsent(){
+        return tree.contains(keys.nextAbsentInt());
+    }
+
+    @Benchmark
+    public int[] getRange(){
+        int start = keys.nextPresentInt();
+        return tree.getRange(start, KeyProbes.rangeEnd(start));
+    }
+
+    @Benchmark
+    public long streamSum(){
+        return tree.stream().asLongStream().sum();
+    }
+}
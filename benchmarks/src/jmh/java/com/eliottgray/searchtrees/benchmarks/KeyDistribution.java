@@ -0,0 +1,172 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shape of the keys fed to a benchmark.
+ *
+ * Every distribution fills a tree with the same N distinct keys, the even numbers 0, 2, ... 2(N-1),
+ * so odd numbers are always absent.  What varies is the order in which those keys are inserted,
+ * and the order in which individual keys are probed afterwards.
+ *
+ * RANDOM:  Shuffled insertion order; probes are uniform over all keys.
+ * SORTED:  Ascending insertion order; probes walk the keys in ascending order.
+ * REVERSE: Descending insertion order; probes walk the keys in descending order.
+ * ZIPF:    Shuffled insertion order; probes are Zipf-distributed, so a few hot keys dominate.
+ */
+public enum KeyDistribution {
+
+    RANDOM, SORTED, REVERSE, ZIPF;
+
+    /** Exponent of the Zipf distribution; 1.0 is the classic "80/20"-ish skew. */
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    /**
+     * @param count     Number of keys.
+     * @param random    Source of randomness.
+     * @return          Order in which the tree should be built.
+     */
+    public int[] insertionOrder(int count, SplittableRandom random){
+        int[] keys = new int[count];
+        for (int index = 0; index < count; index++){
+            keys[index] = keyAt(index);
+        }
+        switch (this){
+            case SORTED:
+                break;
+            case REVERSE:
+                reverse(keys);
+                break;
+            default:
+                shuffle(keys, random);
+        }
+        return keys;
+    }
+
+    /**
+     * @param count         Number of keys held by the tree.
+     * @param probeCount    Number of probe keys to generate.
+     * @param random        Source of randomness.
+     * @return              Keys, all contained by the tree, in the order they should be looked up.
+     */
+    public int[] probes(int count, int probeCount, SplittableRandom random){
+        int[] probes = new int[probeCount];
+        ZipfSampler zipf = this == ZIPF ? new ZipfSampler(count, ZIPF_EXPONENT) : null;
+        for (int index = 0; index < probeCount; index++){
+            int rank;
+            switch (this){
+                case SORTED:
+                    rank = index % count;
+                    break;
+                case REVERSE:
+                    rank = count - 1 - (index % count);
+                    break;
+                case ZIPF:
+                    rank = scramble(zipf.sample(random) - 1, count);
+                    break;
+                default:
+                    rank = random.nextInt(count);
+            }
+            probes[index] = keyAt(rank);
+        }
+        return probes;
+    }
+
+    /**
+     * @param rank  Position of a key within the ascending order of all contained keys.
+     * @return      Key at that position.
+     */
+    public static int keyAt(int rank){
+        return rank * 2;
+    }
+
+    /**
+     * Spread Zipf ranks over the key space, so that the hottest keys are not all on the far left of the tree.
+     */
+    private static int scramble(int rank, int count){
+        long mixed = rank * 0x9E3779B97F4A7C15L;
+        mixed ^= (mixed >>> 32);
+        return (int) Math.floorMod(mixed, (long) count);
+    }
+
+    private static void shuffle(int[] keys, SplittableRandom random){
+        for (int index = keys.length - 1; index > 0; index--){
+            int swap = random.nextInt(index + 1);
+            int temp = keys[index];
+            keys[index] = keys[swap];
+            keys[swap] = temp;
+        }
+    }
+
+    private static void reverse(int[] keys){
+        for (int low = 0, high = keys.length - 1; low < high; low++, high--){
+            int temp = keys[low];
+            keys[low] = keys[high];
+            keys[high] = temp;
+        }
+    }
+
+    /**
+     * Zipf sampler over ranks 1..n using rejection-inversion (Hormann and Derflinger, 1996).
+     * Constant time per sample, with no table proportional to n.
+     */
+    private static final class ZipfSampler {
+
+        private final int count;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralCount;
+        private final double s;
+
+        ZipfSampler(int count, double exponent){
+            this.count = count;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1.0;
+            this.hIntegralCount = hIntegral(count + 0.5);
+            this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+
+        int sample(SplittableRandom random){
+            while (true){
+                double u = hIntegralCount + random.nextDouble() * (hIntegralX1 - hIntegralCount);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+                if (k < 1){
+                    k = 1;
+                } else if (k > count){
+                    k = count;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)){
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x){
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x){
+            double logX = Math.log(x);
+            return helper2((1.0 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x){
+            double t = x * (1.0 - exponent);
+            if (t < -1.0){
+                t = -1.0;
+            }
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log(1 + x) / x, stable near zero. */
+        private static double helper1(double x){
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+
+        /** (exp(x) - 1) / x, stable near zero. */
+        private static double helper2(double x){
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+        }
+    }
+}
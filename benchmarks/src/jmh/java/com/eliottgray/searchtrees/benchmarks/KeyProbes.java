@@ -0,0 +1,90 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Keys shared by every single-threaded benchmark: the order in which to insert a tree's keys,
+ * and a cycle of probe keys drawn from the same {@link KeyDistribution}, each present or one past a present key.
+ *
+ * Every instance is seeded alike, so benchmarks of the same distribution and size insert and probe exactly
+ * the same keys, and their results can be compared side by side.
+ */
+final class KeyProbes {
+
+    /** Number of probe keys cycled through; a power of two. */
+    static final int PROBE_COUNT = 1 << 16;
+    private static final int PROBE_MASK = PROBE_COUNT - 1;
+
+    /** Number of contained keys spanned by a getRange query. */
+    static final int RANGE_WIDTH = 100;
+
+    /** Number of contained keys spanned by a reporting-sized getRange query. */
+    static final int WIDE_RANGE_WIDTH = 100000;
+
+    final int[] insertionOrder;
+    private final int[] probes;
+    private final Integer[] presentProbes;
+    private final Integer[] absentProbes;
+    private int probeIndex;
+
+    /**
+     * @param distribution  Distribution of insertion order and probes.
+     * @param size          Number of keys in the tree.
+     */
+    KeyProbes(KeyDistribution distribution, int size){
+        this(distribution, size, true);
+    }
+
+    /**
+     * @param distribution      Distribution of insertion order and probes.
+     * @param size              Number of keys in the tree.
+     * @param insertionOrder    Whether to draw an insertion order; a tree built from sorted keys needs none,
+     *                          in which case insertionOrder is null and the probes are the first keys drawn from the seed.
+     */
+    KeyProbes(KeyDistribution distribution, int size, boolean insertionOrder){
+        SplittableRandom random = new SplittableRandom(42);
+        this.insertionOrder = insertionOrder ? distribution.insertionOrder(size, random) : null;
+        probes = distribution.probes(size, PROBE_COUNT, random);
+        presentProbes = new Integer[PROBE_COUNT];
+        absentProbes = new Integer[PROBE_COUNT];
+        for (int index = 0; index < PROBE_COUNT; index++){
+            presentProbes[index] = probes[index];
+            absentProbes[index] = probes[index] + 1;
+        }
+    }
+
+    Integer nextPresentKey(){
+        return presentProbes[probeIndex++ & PROBE_MASK];
+    }
+
+    Integer nextAbsentKey(){
+        return absentProbes[probeIndex++ & PROBE_MASK];
+    }
+
+    /**
+     * Unboxed counterpart of {@link #nextPresentKey()}, for the primitive trees.
+     */
+    int nextPresentInt(){
+        return probes[probeIndex++ & PROBE_MASK];
+    }
+
+    int nextAbsentInt(){
+        return nextPresentInt() + 1;
+    }
+
+    /**
+     * @param start     Contained key at which a range starts.
+     * @return          End of a range spanning RANGE_WIDTH contained keys.
+     */
+    static int rangeEnd(int start){
+        return start + KeyDistribution.keyAt(RANGE_WIDTH - 1);
+    }
+
+    /**
+     * @param start     Contained key at which a range starts.
+     * @return          End of a range spanning WIDE_RANGE_WIDTH contained keys.
+     */
+    static int wideRangeEnd(int start){
+        return start + KeyDistribution.keyAt(WIDE_RANGE_WIDTH - 1);
+    }
+}
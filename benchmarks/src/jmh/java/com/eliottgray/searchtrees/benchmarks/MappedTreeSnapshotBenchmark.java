@@ -0,0 +1,80 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.AVLTree;
+import com.eliottgray.searchtrees.KeyCodec;
+import com.eliottgray.searchtrees.MappedTreeSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup and lookups of a mapped snapshot, against rebuilding the same tree from sorted keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedTreeSnapshotBenchmark {
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private Path path;
+    private Integer[] sortedKeys;
+    private KeyProbes keys;
+
+    private MappedTreeSnapshot<Integer> snapshot;
+
+    @Setup(Level.Trial)
+    public void setUpSnapshot() throws IOException {
+        sortedKeys = new Integer[size];
+        for (int rank = 0; rank < size; rank++){
+            sortedKeys[rank] = KeyDistribution.keyAt(rank);
+        }
+        // Built from sorted keys, so no insertion order is drawn.
+        keys = new KeyProbes(distribution, size, false);
+        path = Files.createTempFile("tree", ".snapshot");
+        AVLTree.fromSortedArray(sortedKeys).writeSnapshot(path, KeyCodec.INT);
+        snapshot = MappedTreeSnapshot.open(path, KeyCodec.INT);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    @Measurement(iterations = 3)
+    public MappedTreeSnapshot<Integer> open() throws IOException {
+        return MappedTreeSnapshot.open(path, KeyCodec.INT);
+    }
+
+    /**
+     * Startup by rebuilding in memory, from keys already sorted and already on the heap; a lower bound on reloading.
+     */
+    @Benchmark
+    @Measurement(iterations = 3)
+    public AVLTree<Integer> rebuildFromSorted(){
+        return AVLTree.fromSortedArray(sortedKeys);
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return snapshot.contains(keys.nextPresentKey());
+    }
+
+    @Benchmark
+    public List<Integer> getRange(){
+        Integer start = keys.nextPresentKey();
+        return snapshot.getRange(start, KeyProbes.rangeEnd(start));
+    }
+}
@@ -0,0 +1,81 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.PooledAVLTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link AVLTreeBenchmark} operations, over the same keys and probes, against the mutable array-backed tree.
+ *
+ * Since the tree is modified in place, an update is measured as an insert followed by the delete which undoes it,
+ * so that every invocation sees a tree of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledAVLTreeBenchmark {
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private KeyProbes keys;
+
+    private PooledAVLTree<Integer> tree;
+
+    @Setup(Level.Trial)
+    public void setUpTree(){
+        keys = new KeyProbes(distribution, size);
+        tree = load();
+    }
+
+    @Benchmark
+    @Measurement(iterations = 3)
+    public PooledAVLTree<Integer> load(){
+        PooledAVLTree<Integer> loaded = new PooledAVLTree<Integer>(Comparator.naturalOrder(), size);
+        for (int key : keys.insertionOrder){
+            loaded.insert(key);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public boolean insertThenDelete(){
+        Integer key = keys.nextAbsentKey();
+        tree.insert(key);
+        return tree.delete(key);
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return tree.contains(keys.nextPresentKey());
+    }
+
+    @Benchmark
+    public boolean containsAbsent(){
+        return tree.contains(keys.nextAbsentKey());
+    }
+
+    @Benchmark
+    public List<Integer> getRange(){
+        Integer start = keys.nextPresentKey();
+        return tree.getRange(start, KeyProbes.rangeEnd(start));
+    }
+
+    @Benchmark
+    public long iterate(){
+        long sum = 0;
+        for (Integer key : tree){
+            sum += key;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,57 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.AVLTree;
+import com.eliottgray.searchtrees.RedBlackTree;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Same sizes as AVLTreeBenchmark, so the two can be compared side by side:
+ * red-black trees search a level or two deeper, and allocate about as much per update as AVL trees do.
+ *
+ * insertAVL and deleteAVL repeat insert and delete against an AVLTree of the same keys, probed alike,
+ * so that one run with the gc profiler, `-Pprofilers=gc`, reports the bytes allocated per update
+ * (gc.alloc.rate.norm) of both trees together.
+ */
+@State(Scope.Benchmark)
+public class RedBlackTreeBenchmark extends TreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private AVLTree<Integer> avlTree;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected Tree<Integer> buildEmptyTree(){
+        return new RedBlackTree<>();
+    }
+
+    @Setup(Level.Trial)
+    public void setUpAVLTree(){
+        AVLTree<Integer> loaded = new AVLTree<>();
+        for (int key : new KeyProbes(distribution, size).insertionOrder){
+            loaded = loaded.insert(key);
+        }
+        avlTree = loaded;
+    }
+
+    @Benchmark
+    public int rank(){
+        return ((RedBlackTree<Integer>) tree).rank(nextPresentKey());
+    }
+
+    @Benchmark
+    public Tree<Integer> insertAVL(){
+        return avlTree.insert(nextAbsentKey());
+    }
+
+    @Benchmark
+    public Tree<Integer> deleteAVL(){
+        return avlTree.delete(nextPresentKey());
+    }
+}
@@ -0,0 +1,163 @@
+package com.eliottgray.searchtrees.benchmarks;
+
+import com.eliottgray.searchtrees.InvalidSearchTreeException;
+import com.eliottgray.searchtrees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations common to every Tree, measured against a tree of {@link #size()} keys.
+ *
+ * The tree is built once per trial, in the insertion order given by the {@link KeyDistribution};
+ * each benchmark then probes it with keys drawn from the same distribution.
+ * Since trees are persistent, insert and delete never disturb the tree shared between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class TreeBenchmark {
+
+    @Param
+    public KeyDistribution distribution;
+
+    KeyProbes keys;
+
+    Tree<Integer> tree;
+
+    /**
+     * @return  Number of keys to fill the tree with.
+     */
+    protected abstract int size();
+
+    /**
+     * @return  Empty instance of the Tree under test.
+     */
+    protected abstract Tree<Integer> buildEmptyTree();
+
+    @Setup(Level.Trial)
+    public void setUpTree(){
+        keys = new KeyProbes(distribution, size());
+        tree = load();
+    }
+
+    Integer nextPresentKey(){
+        return keys.nextPresentKey();
+    }
+
+    Integer nextAbsentKey(){
+        return keys.nextAbsentKey();
+    }
+
+    /**
+     * Build a whole tree one insert at a time, as a cold start would.
+     */
+    @Benchmark
+    @Measurement(iterations = 3)
+    public Tree<Integer> load(){
+        Tree<Integer> loaded = buildEmptyTree();
+        for (int key : keys.insertionOrder){
+            loaded = loaded.insert(key);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public Tree<Integer> insert(){
+        return tree.insert(nextAbsentKey());
+    }
+
+    @Benchmark
+    public Tree<Integer> delete(){
+        return tree.delete(nextPresentKey());
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return tree.contains(nextPresentKey());
+    }
+
+    @Benchmark
+    public boolean containsAbsent(){
+        return tree.contains(nextAbsentKey());
+    }
+
+    @Benchmark
+    public List<Integer> getRange(){
+        Integer start = nextPresentKey();
+        return tree.getRange(start, KeyProbes.rangeEnd(start));
+    }
+
+    @Benchmark
+    public List<Integer> getWideRange(){
+        Integer start = nextPresentKey();
+        return tree.getRange(start, KeyProbes.wideRangeEnd(start));
+    }
+
+    @Benchmark
+    public int countRange(){
+        Integer start = nextPresentKey();
+        return tree.countRange(start, KeyProbes.rangeEnd(start));
+    }
+
+    @Benchmark
+    public List<Integer> toAscendingList(){
+        return tree.toAscendingList();
+    }
+
+    /**
+     * Walk every Key lazily, for comparison with toAscendingList.
+     */
+    @Benchmark
+    public long iterate(){
+        long sum = 0;
+        for (Integer key : tree){
+            sum += key;
+        }
+        return sum;
+    }
+
+    /**
+     * Visit only the least few Keys, as a paging caller would.
+     */
+    @Benchmark
+    public long iterateFirstTen(){
+        long sum = 0;
+        Iterator<Integer> iterator = tree.iterator();
+        for (int count = 0; count < 10 && iterator.hasNext(); count++){
+            sum += iterator.next();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long streamSum(){
+        return tree.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallelStreamSum(){
+        return tree.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public Integer getMin(){
+        return tree.getMin();
+    }
+
+    @Benchmark
+    public Integer getMax(){
+        return tree.getMax();
+    }
+
+    @Benchmark
+    public Tree<Integer> validate() throws InvalidSearchTreeException {
+        tree.validate();
+        return tree;
+    }
+}
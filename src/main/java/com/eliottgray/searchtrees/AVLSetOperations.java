@@ -0,0 +1,180 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Comparator;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Set algebra over AVL subtrees, by divide and conquer on split and join.
+ *
+ * Each operation exposes the root of the right subtree, splits the left subtree around that root's Key,
+ * recurses on the two halves in parallel, then joins the results.
+ * Subtrees shared by both inputs are recognised by identity and handled without descending into them.
+ * Every operation does O(m log(n/m + 1)) work for inputs of sizes m <= n.
+ */
+final class AVLSetOperations {
+
+    /**
+     * Below this many Keys in total, recursive halves run on the calling thread rather than being forked.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    private AVLSetOperations(){}
+
+    /**
+     * Recursion shared by every operation; subclasses decide the trivial cases, and how to combine the halves.
+     */
+    abstract static class SetOperation<Key extends Comparable<Key>> extends RecursiveTask<BinarySearchNode<Key>> {
+
+        final BinarySearchNode<Key> left;
+        final BinarySearchNode<Key> right;
+        final Comparator<Key> comparator;
+
+        SetOperation(BinarySearchNode<Key> left, BinarySearchNode<Key> right, Comparator<Key> comparator){
+            this.left = left;
+            this.right = right;
+            this.comparator = comparator;
+        }
+
+        /**
+         * @return  Result when either subtree is empty, or both are the same subtree.
+         */
+        abstract BinarySearchNode<Key> trivial();
+
+        /**
+         * @return  Same operation, over a pair of smaller subtrees.
+         */
+        abstract SetOperation<Key> over(BinarySearchNode<Key> left, BinarySearchNode<Key> right);
+
+        /**
+         * @param lesser    Result over Keys less than the right root Key.
+         * @param split     Split of the left subtree around the right root Key.
+         * @param greater   Result over Keys greater than the right root Key.
+         * @return          Result over both subtrees.
+         */
+        abstract BinarySearchNode<Key> combine(BinarySearchNode<Key> lesser, AVLTree.NodeSplit<Key> split, BinarySearchNode<Key> greater);
+
+        @Override
+        protected final BinarySearchNode<Key> compute(){
+            if (left == null || right == null || left == right){
+                return trivial();
+            }
+            AVLTree.NodeSplit<Key> split = AVLTree.split(left, right.key, comparator);
+            SetOperation<Key> lesser = over(split.left, right.left);
+            SetOperation<Key> greater = over(split.right, right.right);
+            BinarySearchNode<Key> lesserResult;
+            BinarySearchNode<Key> greaterResult;
+            if (left.size + right.size <= SEQUENTIAL_THRESHOLD){
+                lesserResult = lesser.compute();
+                greaterResult = greater.compute();
+            } else {
+                lesser.fork();
+                greaterResult = greater.compute();
+                lesserResult = lesser.join();
+            }
+            return combine(lesserResult, split, greaterResult);
+        }
+    }
+
+    /**
+     * Keys of either subtree; where both contain the same sorted location, the Key of the right subtree is kept.
+     */
+    static final class Union<Key extends Comparable<Key>> extends SetOperation<Key> {
+
+        Union(BinarySearchNode<Key> left, BinarySearchNode<Key> right, Comparator<Key> comparator){
+            super(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> trivial(){
+            return left == null ? right : left;
+        }
+
+        @Override
+        SetOperation<Key> over(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new Union<>(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> combine(BinarySearchNode<Key> lesser, AVLTree.NodeSplit<Key> split, BinarySearchNode<Key> greater){
+            return AVLTree.join(lesser, right.key, greater);
+        }
+    }
+
+    /**
+     * Keys of both subtrees; the Key of the left subtree is kept.
+     */
+    static final class Intersection<Key extends Comparable<Key>> extends SetOperation<Key> {
+
+        Intersection(BinarySearchNode<Key> left, BinarySearchNode<Key> right, Comparator<Key> comparator){
+            super(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> trivial(){
+            return left == right ? left : null;
+        }
+
+        @Override
+        SetOperation<Key> over(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new Intersection<>(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> combine(BinarySearchNode<Key> lesser, AVLTree.NodeSplit<Key> split, BinarySearchNode<Key> greater){
+            return split.present ? AVLTree.join(lesser, split.key, greater) : AVLTree.join2(lesser, greater);
+        }
+    }
+
+    /**
+     * Keys of the left subtree which are not in the right subtree.
+     */
+    static final class Difference<Key extends Comparable<Key>> extends SetOperation<Key> {
+
+        Difference(BinarySearchNode<Key> left, BinarySearchNode<Key> right, Comparator<Key> comparator){
+            super(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> trivial(){
+            return left == right ? null : left;
+        }
+
+        @Override
+        SetOperation<Key> over(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new Difference<>(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> combine(BinarySearchNode<Key> lesser, AVLTree.NodeSplit<Key> split, BinarySearchNode<Key> greater){
+            return AVLTree.join2(lesser, greater);
+        }
+    }
+
+    /**
+     * Keys of exactly one of the two subtrees.
+     */
+    static final class SymmetricDifference<Key extends Comparable<Key>> extends SetOperation<Key> {
+
+        SymmetricDifference(BinarySearchNode<Key> left, BinarySearchNode<Key> right, Comparator<Key> comparator){
+            super(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> trivial(){
+            if (left == right){
+                return null;
+            }
+            return left == null ? right : left;
+        }
+
+        @Override
+        SetOperation<Key> over(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new SymmetricDifference<>(left, right, comparator);
+        }
+
+        @Override
+        BinarySearchNode<Key> combine(BinarySearchNode<Key> lesser, AVLTree.NodeSplit<Key> split, BinarySearchNode<Key> greater){
+            return split.present ? AVLTree.join2(lesser, greater) : AVLTree.join(lesser, right.key, greater);
+        }
+    }
+}
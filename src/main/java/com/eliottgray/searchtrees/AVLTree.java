@@ -1,6 +1,11 @@
 package com.eliottgray.searchtrees;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Why use Binary Search Trees over, say, HashTables?
@@ -36,6 +41,219 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
         super(root, comparator);
     }
 
+    /**
+     * Build a perfectly balanced tree from Keys already in ascending order, in O(n) time and with one node per Key.
+     * No Keys are compared; the input must be strictly ascending by natural order, or the tree will be invalid.
+     * @param keys      Distinct Keys, in ascending order.
+     * @return          Tree containing the given Keys.
+     */
+    public static <Key extends Comparable<Key>> AVLTree<Key> fromSorted(Iterable<Key> keys){
+        return fromSorted(keys, Comparator.naturalOrder());
+    }
+
+    /**
+     * Build a perfectly balanced tree from Keys already in ascending order, in O(n) time and with one node per Key.
+     * No Keys are compared; the input must be strictly ascending by the given comparator, or the tree will be invalid.
+     * @param keys          Distinct Keys, in ascending order.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     * @return              Tree containing the given Keys.
+     */
+    public static <Key extends Comparable<Key>> AVLTree<Key> fromSorted(Iterable<Key> keys, Comparator<Key> comparator){
+        Collection<Key> collection;
+        if (keys instanceof Collection){
+            collection = (Collection<Key>) keys;
+        } else {
+            List<Key> list = new ArrayList<>();
+            keys.forEach(list::add);
+            collection = list;
+        }
+        BinarySearchNode<Key> root = buildBalanced(collection.iterator(), collection.size());
+        return new AVLTree<>(root, comparator);
+    }
+
+    /**
+     * Build a perfectly balanced tree from Keys already in ascending order, in O(n) time and with one node per Key.
+     * No Keys are compared; the input must be strictly ascending by natural order, or the tree will be invalid.
+     * @param keys      Distinct Keys, in ascending order.
+     * @return          Tree containing the given Keys.
+     */
+    public static <Key extends Comparable<Key>> AVLTree<Key> fromSortedArray(Key[] keys){
+        return fromSortedArray(keys, Comparator.naturalOrder());
+    }
+
+    /**
+     * Build a perfectly balanced tree from Keys already in ascending order, in O(n) time and with one node per Key.
+     * No Keys are compared; the input must be strictly ascending by the given comparator, or the tree will be invalid.
+     * @param keys          Distinct Keys, in ascending order.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     * @return              Tree containing the given Keys.
+     */
+    public static <Key extends Comparable<Key>> AVLTree<Key> fromSortedArray(Key[] keys, Comparator<Key> comparator){
+        BinarySearchNode<Key> root = buildBalanced(keys, 0, keys.length);
+        return new AVLTree<>(root, comparator);
+    }
+
+    /**
+     * Build the subtree for the next count Keys of an in-order sequence.
+     * Left and right subtrees differ in size by at most one, so their heights differ by at most one.
+     */
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> buildBalanced(Iterator<Key> keys, int count){
+        if (count == 0){
+            return null;
+        }
+        int leftCount = (count - 1) / 2;
+        BinarySearchNode<Key> left = buildBalanced(keys, leftCount);
+        Key key = keys.next();
+        BinarySearchNode<Key> right = buildBalanced(keys, count - 1 - leftCount);
+        return new BinarySearchNode<>(key, left, right);
+    }
+
+    /**
+     * Build the subtree for Keys from start, inclusive, to end, exclusive.
+     */
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> buildBalanced(Key[] keys, int start, int end){
+        if (start == end){
+            return null;
+        }
+        int middle = (start + end - 1) >>> 1;
+        BinarySearchNode<Key> left = buildBalanced(keys, start, middle);
+        BinarySearchNode<Key> right = buildBalanced(keys, middle + 1, end);
+        return new BinarySearchNode<>(keys[middle], left, right);
+    }
+
+    /**
+     * Begin a batch of in-place edits, starting from the contents of this tree.
+     * This tree is never modified; call {@link TransientAVLTree#persistent()} to obtain the edited tree.
+     * @return      Mutable builder.
+     */
+    public TransientAVLTree<Key> asTransient(){
+        return new TransientAVLTree<>(root, comparator);
+    }
+
+    /**
+     * Split the tree around the given Key, in O(log n).
+     * Neither resulting tree contains the Key itself; whether it was present is reported separately.
+     * @param key   Key to split around.
+     * @return      Keys less than the given Key, its presence, and Keys greater than the given Key.
+     */
+    public Split<Key> split(Key key){
+        NodeSplit<Key> split = split(root, key, comparator);
+        return new Split<>(new AVLTree<>(split.left, comparator), split.present, new AVLTree<>(split.right, comparator));
+    }
+
+    /**
+     * Join two trees around a middle Key, in O(log n); more precisely, in time proportional to their difference in height.
+     * Every Key of the left tree must be less than the middle Key, which must be less than every Key of the right tree.
+     * The joined tree uses the comparator of the left tree.
+     * @param left      Tree of lesser Keys.
+     * @param key       Middle Key.
+     * @param right     Tree of greater Keys.
+     * @return          Tree containing every Key of both trees, plus the middle Key.
+     */
+    public static <Key extends Comparable<Key>> AVLTree<Key> join(AVLTree<Key> left, Key key, AVLTree<Key> right){
+        Comparator<Key> comparator = left.comparator;
+        if (!left.isEmpty() && comparator.compare(left.getMax(), key) >= 0){
+            throw new IllegalArgumentException(String.format("Left tree maximum %s is not less than join key %s", left.getMax(), key));
+        }
+        if (!right.isEmpty() && comparator.compare(key, right.getMin()) >= 0){
+            throw new IllegalArgumentException(String.format("Right tree minimum %s is not greater than join key %s", right.getMin(), key));
+        }
+        return new AVLTree<>(join(left.root, key, right.root), comparator);
+    }
+
+    /**
+     * Union of this tree with another, computed in parallel on the common ForkJoinPool.
+     * @param other     Tree to merge with this one.
+     * @return          Tree containing every Key of either tree.
+     * @see #union(AVLTree, ForkJoinPool)
+     */
+    public AVLTree<Key> union(AVLTree<Key> other){
+        return union(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Union of this tree with another, in O(m log(n/m + 1)) work for trees of sizes m <= n.
+     * Recursive halves run in parallel on the given pool, and subtrees shared by both trees are reused as-is.
+     * Where both trees contain the same sorted location, the Key from the other tree is kept, just as insert would.
+     * The result uses the comparator of this tree; both trees are expected to order Keys identically.
+     * @param other     Tree to merge with this one.
+     * @param pool      Pool on which to run the recursion.
+     * @return          Tree containing every Key of either tree.
+     */
+    public AVLTree<Key> union(AVLTree<Key> other, ForkJoinPool pool){
+        BinarySearchNode<Key> newRoot = pool.invoke(new AVLSetOperations.Union<>(root, other.root, comparator));
+        return new AVLTree<>(newRoot, comparator);
+    }
+
+    /**
+     * Intersection of this tree with another, computed in parallel on the common ForkJoinPool.
+     * @param other     Tree to intersect with this one.
+     * @return          Tree containing every Key of both trees.
+     * @see #intersect(AVLTree, ForkJoinPool)
+     */
+    public AVLTree<Key> intersect(AVLTree<Key> other){
+        return intersect(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Intersection of this tree with another, in O(m log(n/m + 1)) work for trees of sizes m <= n.
+     * Recursive halves run in parallel on the given pool, and subtrees shared by both trees are reused as-is.
+     * Where both trees contain the same sorted location, the Key from this tree is kept.
+     * The result uses the comparator of this tree; both trees are expected to order Keys identically.
+     * @param other     Tree to intersect with this one.
+     * @param pool      Pool on which to run the recursion.
+     * @return          Tree containing every Key of both trees.
+     */
+    public AVLTree<Key> intersect(AVLTree<Key> other, ForkJoinPool pool){
+        BinarySearchNode<Key> newRoot = pool.invoke(new AVLSetOperations.Intersection<>(root, other.root, comparator));
+        return new AVLTree<>(newRoot, comparator);
+    }
+
+    /**
+     * Difference of this tree and another, computed in parallel on the common ForkJoinPool.
+     * @param other     Tree of Keys to exclude.
+     * @return          Tree containing every Key of this tree which is not in the other.
+     * @see #difference(AVLTree, ForkJoinPool)
+     */
+    public AVLTree<Key> difference(AVLTree<Key> other){
+        return difference(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Difference of this tree and another, in O(m log(n/m + 1)) work for trees of sizes m <= n.
+     * Recursive halves run in parallel on the given pool; subtrees shared by both trees are dropped without descending.
+     * The result uses the comparator of this tree; both trees are expected to order Keys identically.
+     * @param other     Tree of Keys to exclude.
+     * @param pool      Pool on which to run the recursion.
+     * @return          Tree containing every Key of this tree which is not in the other.
+     */
+    public AVLTree<Key> difference(AVLTree<Key> other, ForkJoinPool pool){
+        BinarySearchNode<Key> newRoot = pool.invoke(new AVLSetOperations.Difference<>(root, other.root, comparator));
+        return new AVLTree<>(newRoot, comparator);
+    }
+
+    /**
+     * Symmetric difference of this tree and another, computed in parallel on the common ForkJoinPool.
+     * @param other     Tree to compare with this one.
+     * @return          Tree containing every Key which is in exactly one of the two trees.
+     * @see #symmetricDifference(AVLTree, ForkJoinPool)
+     */
+    public AVLTree<Key> symmetricDifference(AVLTree<Key> other){
+        return symmetricDifference(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Symmetric difference of this tree and another, in O(m log(n/m + 1)) work for trees of sizes m <= n.
+     * Recursive halves run in parallel on the given pool; subtrees shared by both trees are dropped without descending.
+     * The result uses the comparator of this tree; both trees are expected to order Keys identically.
+     * @param other     Tree to compare with this one.
+     * @param pool      Pool on which to run the recursion.
+     * @return          Tree containing every Key which is in exactly one of the two trees.
+     */
+    public AVLTree<Key> symmetricDifference(AVLTree<Key> other, ForkJoinPool pool){
+        BinarySearchNode<Key> newRoot = pool.invoke(new AVLSetOperations.SymmetricDifference<>(root, other.root, comparator));
+        return new AVLTree<>(newRoot, comparator);
+    }
 
     @Override
     public AVLTree<Key> delete(Key key){
@@ -43,6 +261,10 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
             return this;
         } else {
             BinarySearchNode<Key> newRoot = recursiveDelete(key, root);
+            if (newRoot == root){
+                // Key is not in this tree; no need for change.
+                return this;
+            }
             return new AVLTree<>(newRoot, comparator);
         }
     }
@@ -53,7 +275,11 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
         if (comparison < 0) {
             if (current.left != null) {
                 BinarySearchNode<Key> newLeft = recursiveDelete(key, current.left);
-                root = new BinarySearchNode<>(current.key, newLeft, current.right);
+                if (newLeft == current.left){
+                    // Key was not found below; share this subtree unchanged.
+                    return current;
+                }
+                root = current.withChildren(newLeft, current.right);
 
                 // Rotate if necessary, replacing this node as the head of this tree.
                 root = rotateLeftIfUnbalanced(root);
@@ -64,7 +290,11 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
         } else if (comparison > 0){
             if (current.right != null){
                 BinarySearchNode<Key> newRight = recursiveDelete(key, current.right);
-                root = new BinarySearchNode<>(current.key, current.left, newRight);
+                if (newRight == current.right){
+                    // Key was not found below; share this subtree unchanged.
+                    return current;
+                }
+                root = current.withChildren(current.left, newRight);
 
                 // Rotate if necessary, replacing this node as the head of this tree.
                 root = rotateRightIfUnbalanced(root);
@@ -76,13 +306,13 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
             // Found key!  Now to delete. (delete = return left child, right child, find a replacement from further down, or null;
             if (current.hasLeft() && current.hasRight()){
                 // Two children!  Find a replacement for this node from the longer subtree, which itself will have 1 or no children.
-                Key replacementKey = findDeletionReplacement(current);
+                BinarySearchNode<Key> replacement = findDeletionReplacement(current);
 
                 // Delete replacement child from this node's subtree, preparing it to take over for this node.
-                root = recursiveDelete(replacementKey, current);
+                root = recursiveDelete(replacement.key, current);
 
                 // Replace this with copy of replacement child.
-                root = new BinarySearchNode<>(replacementKey, root.left, root.right);
+                root = replacement.withChildren(root.left, root.right);
 
             } else {
                 if (current.hasLeft()){
@@ -99,51 +329,59 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
 
     @Override
     public AVLTree<Key> insert(Key key){
+        return insertNode(new BinarySearchNode<>(key));
+    }
+
+    /**
+     * Insert a new leaf, replacing any node with an equal Key; subclasses of BinarySearchNode keep their payload.
+     * @param inserted  Childless node to insert.
+     * @return          New tree containing the inserted node.
+     */
+    AVLTree<Key> insertNode(BinarySearchNode<Key> inserted){
         if (root == null){
-            BinarySearchNode<Key> newRoot = new BinarySearchNode<>(key);
-            return new AVLTree<>(newRoot, comparator);
+            return new AVLTree<>(inserted, comparator);
         } else {
-            BinarySearchNode<Key> newRoot = recursiveInsert(key, root);
+            BinarySearchNode<Key> newRoot = recursiveInsert(inserted, root);
             return new AVLTree<>(newRoot, comparator);
         }
     }
 
-    private BinarySearchNode<Key> recursiveInsert(Key key, BinarySearchNode<Key> current){
+    private BinarySearchNode<Key> recursiveInsert(BinarySearchNode<Key> inserted, BinarySearchNode<Key> current){
         // This position in the tree is currently occupied by current node.
         BinarySearchNode<Key> root;
-        int comparison = comparator.compare(key, current.key);
+        int comparison = comparator.compare(inserted.key, current.key);
         // If key is to left of current:
         if (comparison < 0){
             if (current.left != null) {
                 // Insert down left subtree, contains new left subtree, and attach here.
-                BinarySearchNode<Key> newLeft = recursiveInsert(key, current.left);
-                root = new BinarySearchNode<>(current.key, newLeft, current.right);
+                BinarySearchNode<Key> newLeft = recursiveInsert(inserted, current.left);
+                root = current.withChildren(newLeft, current.right);
 
                 // Rotate if necessary, replacing this node as the head of this tree.
                 root = rotateRightIfUnbalanced(root);
             } else {
                 // I have no left, so I simply set it here.
-                BinarySearchNode<Key> newLeft = new BinarySearchNode<>(key);
-                root= new BinarySearchNode<>(current.key, newLeft, current.right);
+                BinarySearchNode<Key> newLeft = inserted;
+                root= current.withChildren(newLeft, current.right);
             }
 
             // If key is to right of current:
         } else if (comparison > 0){
             // Insert down right subtree, contains new subtree head, and attach here.
             if (current.right != null){
-                BinarySearchNode<Key> newRight = recursiveInsert(key, current.right);
-                root = new BinarySearchNode<>(current.key, current.left, newRight);
+                BinarySearchNode<Key> newRight = recursiveInsert(inserted, current.right);
+                root = current.withChildren(current.left, newRight);
 
                 // Rotate if necessary, replacing this node as the head of this tree.
                 root = rotateLeftIfUnbalanced(root);
             } else {
                 // I have no right, so I simply set it here.
-                BinarySearchNode<Key> newRight = new BinarySearchNode<>(key);
-                root = new BinarySearchNode<>(current.key, current.left, newRight);
+                BinarySearchNode<Key> newRight = inserted;
+                root = current.withChildren(current.left, newRight);
             }
         } else {
             // Duplicate key found; replace this.
-            root = new BinarySearchNode<>(key, current.left, current.right);
+            root = inserted.withChildren(current.left, current.right);
         }
 
         // Return whatever occupies this position of the tree, which may still be me, or not.
@@ -151,6 +389,108 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
     }
 
 
+    /**
+     * Split a subtree around the given Key; the pieces are AVL subtrees, joined back together on the way up.
+     */
+    static <Key extends Comparable<Key>> NodeSplit<Key> split(BinarySearchNode<Key> current, Key key, Comparator<Key> comparator){
+        if (current == null){
+            return new NodeSplit<>(null, false, null, null);
+        }
+        int comparison = comparator.compare(key, current.key);
+        if (comparison < 0){
+            NodeSplit<Key> split = split(current.left, key, comparator);
+            return new NodeSplit<>(split.left, split.present, split.key, join(split.right, current.key, current.right));
+        } else if (comparison > 0){
+            NodeSplit<Key> split = split(current.right, key, comparator);
+            return new NodeSplit<>(join(current.left, current.key, split.left), split.present, split.key, split.right);
+        } else {
+            return new NodeSplit<>(current.left, true, current.key, current.right);
+        }
+    }
+
+    /**
+     * Join two AVL subtrees around a middle Key.
+     * When heights differ by more than one, the middle Key is attached down the inner spine of the taller tree,
+     * at the first node no more than one level taller than the shorter tree, then rebalanced on the way back up.
+     */
+    static <Key extends Comparable<Key>> BinarySearchNode<Key> join(BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right){
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1){
+            return joinRight(left, key, right);
+        } else if (rightHeight > leftHeight + 1){
+            return joinLeft(left, key, right);
+        } else {
+            return new BinarySearchNode<>(key, left, right);
+        }
+    }
+
+    /**
+     * Join two AVL subtrees with no middle Key, by pulling the greatest Key out of the left subtree to act as one.
+     */
+    static <Key extends Comparable<Key>> BinarySearchNode<Key> join2(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        if (left == null){
+            return right;
+        } else if (right == null){
+            return left;
+        }
+        NodeSplit<Key> split = splitLast(left);
+        return join(split.left, split.key, right);
+    }
+
+    /**
+     * Split a non-empty subtree into its greatest Key, and a subtree of every other Key.
+     */
+    private static <Key extends Comparable<Key>> NodeSplit<Key> splitLast(BinarySearchNode<Key> current){
+        if (current.right == null){
+            return new NodeSplit<>(current.left, true, current.key, null);
+        }
+        NodeSplit<Key> split = splitLast(current.right);
+        return new NodeSplit<>(join(current.left, current.key, split.left), true, split.key, null);
+    }
+
+    /**
+     * Join, where the left subtree is the taller; descend its right spine.
+     */
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> joinRight(BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right){
+        BinarySearchNode<Key> inner = left.right;
+        if (height(inner) <= height(right) + 1){
+            BinarySearchNode<Key> joined = new BinarySearchNode<>(key, inner, right);
+            if (joined.height <= height(left.left) + 1){
+                return new BinarySearchNode<>(left.key, left.left, joined);
+            } else {
+                return rotateLeft(new BinarySearchNode<>(left.key, left.left, rotateRight(joined)));
+            }
+        } else {
+            BinarySearchNode<Key> joined = joinRight(inner, key, right);
+            BinarySearchNode<Key> root = new BinarySearchNode<>(left.key, left.left, joined);
+            return joined.height <= height(left.left) + 1 ? root : rotateLeft(root);
+        }
+    }
+
+    /**
+     * Join, where the right subtree is the taller; descend its left spine.
+     */
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> joinLeft(BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right){
+        BinarySearchNode<Key> inner = right.left;
+        if (height(inner) <= height(left) + 1){
+            BinarySearchNode<Key> joined = new BinarySearchNode<>(key, left, inner);
+            if (joined.height <= height(right.right) + 1){
+                return new BinarySearchNode<>(right.key, joined, right.right);
+            } else {
+                return rotateRight(new BinarySearchNode<>(right.key, rotateLeft(joined), right.right));
+            }
+        } else {
+            BinarySearchNode<Key> joined = joinLeft(left, key, inner);
+            BinarySearchNode<Key> root = new BinarySearchNode<>(right.key, joined, right.right);
+            return joined.height <= height(right.right) + 1 ? root : rotateRight(root);
+        }
+    }
+
+    private static int height(BinarySearchNode<?> node){
+        return node == null ? 0 : node.height;
+    }
+
     private BinarySearchNode<Key> rotateRightIfUnbalanced(BinarySearchNode<Key> root){
         if (root.getBalanceFactor() < -1){
             // Tree is unbalanced, so rotate right.
@@ -160,7 +500,7 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
             if (root.left.getBalanceFactor() > 0){
                 BinarySearchNode<Key> oldLeft = root.left;
                 BinarySearchNode<Key> newLeft = rotateLeft(oldLeft);
-                root = new BinarySearchNode<>(root.key, newLeft, root.right);
+                root = root.withChildren(newLeft, root.right);
             }
 
             root = rotateRight(root);
@@ -177,7 +517,7 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
             if (root.right.getBalanceFactor() < 0){
                 BinarySearchNode<Key> oldRight = root.right;
                 BinarySearchNode<Key> newRight = rotateRight(oldRight);
-                root = new BinarySearchNode<>(root.key, root.left, newRight);
+                root = root.withChildren(root.left, newRight);
             }
 
             root = rotateLeft(root);
@@ -199,16 +539,16 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
      *                           / \
      *                          2   7
      */
-    private BinarySearchNode<Key> rotateLeft(BinarySearchNode<Key> current){
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> rotateLeft(BinarySearchNode<Key> current){
         // Pivot is to my right.
         BinarySearchNode<Key> pivot = current.right;
         assert pivot != null;
 
         // Move self down and left.  My right is now pivot left.
-        BinarySearchNode<Key> newThis = new BinarySearchNode<>(current.key, current.left, pivot.left);
+        BinarySearchNode<Key> newThis = current.withChildren(current.left, pivot.left);
 
         // Move pivot up and return.  I am now the new pivot's left.
-        return new BinarySearchNode<>(pivot.key, newThis, pivot.right);
+        return pivot.withChildren(newThis, pivot.right);
     }
 
     /**
@@ -224,42 +564,89 @@ public class AVLTree<Key extends Comparable<Key>> extends BinarySearchTree<Key>{
      *                                       /  \
      *                                     12    20
      */
-    private BinarySearchNode<Key> rotateRight(BinarySearchNode<Key> current){
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> rotateRight(BinarySearchNode<Key> current){
         // Pivot is to my left.
         BinarySearchNode<Key> pivot = current.left;
         assert pivot != null;
 
         // Move self down and right.  My left is now pivot right.
-        BinarySearchNode<Key> newThis = new BinarySearchNode<>(current.key, pivot.right, current.right);
+        BinarySearchNode<Key> newThis = current.withChildren(pivot.right, current.right);
 
         // Move pivot up and return.  I am now the new pivot's right.
-        return new BinarySearchNode<>(pivot.key, pivot.left, newThis);
-    }
-
-//
-//    public void validate() throws InvalidSearchTreeException {
-//        if (root != null){
-//            recursiveValidate(root);
-//        }
-//    }
-//
-//    private void recursiveValidate(AVLNode<Key> current) throws InvalidSearchTreeException{
-//        // Validate left subtree.
-//        if (current.hasLeft()){
-//            AVLNode<Key> left = current.left;
-//            if (left.getKey().compareTo(current.getKey()) >= 0){
-//                throw new InvalidSearchTreeException(String.format("Invalid left key for key %s, left key %s", current.getKey().toString(), left.getKey().toString()));
-//            }
-//            recursiveValidate(left);
-//        }
-//
-//        // Validate right subtree.
-//        if (current.hasRight()){
-//            AVLNode<Key> right = current.right;
-//            if (right.getKey().compareTo(current.getKey()) <= 0) {
-//                throw new InvalidSearchTreeException(String.format("Invalid right key for key %s, right key %s", current.getKey().toString(), right.getKey().toString()));
-//            }
-//            recursiveValidate(right);
-//        }
-//    }
+        return pivot.withChildren(pivot.left, newThis);
+    }
+
+    /**
+     * Result of {@link #split(Comparable)}.
+     */
+    public static final class Split<Key extends Comparable<Key>> {
+
+        private final AVLTree<Key> left;
+        private final boolean present;
+        private final AVLTree<Key> right;
+
+        Split(AVLTree<Key> left, boolean present, AVLTree<Key> right){
+            this.left = left;
+            this.present = present;
+            this.right = right;
+        }
+
+        /**
+         * @return  Tree of every Key less than the split Key.
+         */
+        public AVLTree<Key> getLeft(){ return left; }
+
+        /**
+         * @return  Whether the split Key was contained within the original tree.
+         */
+        public boolean isPresent(){ return present; }
+
+        /**
+         * @return  Tree of every Key greater than the split Key.
+         */
+        public AVLTree<Key> getRight(){ return right; }
+    }
+
+    /**
+     * Split of a subtree into its lesser and greater subtrees, plus the Key found at the split, if any.
+     */
+    static final class NodeSplit<Key extends Comparable<Key>> {
+
+        final BinarySearchNode<Key> left;
+        final boolean present;
+        final Key key;
+        final BinarySearchNode<Key> right;
+
+        NodeSplit(BinarySearchNode<Key> left, boolean present, Key key, BinarySearchNode<Key> right){
+            this.left = left;
+            this.present = present;
+            this.key = key;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Validate binary search tree invariants, plus the AVL balance of every node.
+     * @throws InvalidSearchTreeException       Tree violates invariants.
+     */
+    @Override
+    public void validate() throws InvalidSearchTreeException {
+        super.validate();
+        if (root != null){
+            recursiveValidateBalance(root);
+        }
+    }
+
+    private void recursiveValidateBalance(BinarySearchNode<Key> current) throws InvalidSearchTreeException{
+        int balanceFactor = current.getBalanceFactor();
+        if (balanceFactor < -1 || balanceFactor > 1){
+            throw new InvalidSearchTreeException(String.format("Invalid balance for key %s, balance factor %d", current.getKey().toString(), balanceFactor));
+        }
+        if (current.hasLeft()){
+            recursiveValidateBalance(current.left);
+        }
+        if (current.hasRight()){
+            recursiveValidateBalance(current.right);
+        }
+    }
 }
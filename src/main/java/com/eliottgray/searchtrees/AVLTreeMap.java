@@ -0,0 +1,143 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * Persistent sorted map, built on the same nodes, insertion, deletion and rotations as AVLTree.
+ *
+ * Each Value is held by the node of its Key, so a lookup is a single descent which finds both.
+ * Every update returns a new map, sharing all untouched subtrees with the map it was derived from.
+ */
+public class AVLTreeMap<Key extends Comparable<Key>, Value> {
+
+    // Every node of this tree is an EntryNode.
+    private final AVLTree<Key> tree;
+
+    /**
+     * Empty map. Comparison of Keys to be performed with default compareTo method.
+     */
+    public AVLTreeMap(){
+        this(new AVLTree<>());
+    }
+
+    /**
+     * Empty map, with comparator override.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public AVLTreeMap(Comparator<Key> comparator){
+        this(new AVLTree<>(comparator));
+    }
+
+    private AVLTreeMap(AVLTree<Key> tree){
+        this.tree = tree;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Value associated with the Key, or null if the Key is not contained.
+     */
+    public Value get(Key key){
+        BinarySearchNode<Key> node = tree.find(key);
+        return node == null ? null : AVLTreeMap.<Key, Value>entry(node).value;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in map.
+     */
+    public boolean containsKey(Key key){
+        return tree.contains(key);
+    }
+
+    /**
+     * Associate a Value with a Key.
+     * A new map is returned which contains the change; an existing Value for the same Key is replaced.
+     * @param key       Key to insert.
+     * @param value     Value to associate with the Key.
+     * @return          Updated map.
+     */
+    public AVLTreeMap<Key, Value> put(Key key, Value value){
+        return new AVLTreeMap<>(tree.insertNode(new EntryNode<>(key, value)));
+    }
+
+    /**
+     * Remove a Key, and its Value, from the map.
+     * If the given Key is not contained within the map, the returned map will be the same object as the original.
+     * @param key   Key to remove.
+     * @return      Updated map.
+     */
+    public AVLTreeMap<Key, Value> remove(Key key){
+        AVLTree<Key> removed = tree.delete(key);
+        return removed == tree ? this : new AVLTreeMap<>(removed);
+    }
+
+    /**
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Entries with Keys within range, inclusive, in ascending order of Key.
+     */
+    public List<Map.Entry<Key, Value>> getRange(Key start, Key end){
+        return tree.getRange(start, end, AVLTreeMap::entry);
+    }
+
+    /**
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of entries with Keys within range, inclusive.
+     */
+    public int countRange(Key start, Key end){
+        return tree.countRange(start, end);
+    }
+
+    /**
+     * @return  Every entry, in ascending order of Key.
+     */
+    public List<Map.Entry<Key, Value>> toAscendingList(){
+        return tree.toAscendingList(AVLTreeMap::entry);
+    }
+
+    /**
+     * Immutable view of the Keys of this map, as a NavigableSet over the map's own nodes; no Keys are copied.
+     * @return      NavigableSet of every Key of the map.
+     */
+    public NavigableSet<Key> keys(){
+        return tree.asNavigableSet();
+    }
+
+    /**
+     * @return  Root node of the underlying tree.
+     */
+    BinarySearchNode<Key> getRoot(){
+        return tree.getRoot();
+    }
+
+    /**
+     * @return  Whether the map is empty or not.
+     */
+    public boolean isEmpty(){
+        return tree.isEmpty();
+    }
+
+    /**
+     * @return  Number of entries within the map.
+     */
+    public int size(){
+        return tree.size();
+    }
+
+    /**
+     * Ensure the validity of the underlying tree.
+     * @throws InvalidSearchTreeException   Tree is invalid.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        tree.validate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Key extends Comparable<Key>, Value> EntryNode<Key, Value> entry(BinarySearchNode<Key> node){
+        return (EntryNode<Key, Value>) node;
+    }
+}
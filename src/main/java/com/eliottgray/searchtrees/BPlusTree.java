@@ -0,0 +1,656 @@
+package com.eliottgray.searchtrees;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Mutable B+ tree, holding every Key in leaf pages which are chained in ascending order by sibling pointers.
+ *
+ * Inner pages hold only separator Keys with which to route a search, and the number of Keys beneath them.
+ * A range query descends once, to the leaf holding its start, then walks the chain of leaves sequentially
+ * until it passes its end; no inner page is visited twice, and the Keys of each leaf are read from a single array.
+ *
+ * Every page except the root is at least half full, and all leaves lie at the same depth.
+ * Like PooledAVLTree, updates modify this tree in place; it is intended for a single writer, and is not thread-safe.
+ */
+public class BPlusTree<Key extends Comparable<Key>> implements Iterable<Key> {
+
+    public static final int MIN_BRANCHING_FACTOR = 16;
+    public static final int MAX_BRANCHING_FACTOR = 128;
+    public static final int DEFAULT_BRANCHING_FACTOR = 64;
+
+    private final Comparator<Key> comparator;
+    private final int branchingFactor;
+
+    private Page root;
+    // Leftmost leaf; a merge always keeps the left page of the two, so this only changes when the tree empties.
+    private Leaf head;
+    private int modCount;
+
+    // Set by a split, to hand the least Key of the new right page to the parent.
+    private Object promotedKey;
+
+    /**
+     * Empty tree, with the default branching factor. Comparison of Keys to be performed with default compareTo method.
+     */
+    public BPlusTree(){
+        this(Comparable::compareTo);
+    }
+
+    /**
+     * Empty tree, with comparator override and the default branching factor.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public BPlusTree(Comparator<Key> comparator){
+        this(comparator, DEFAULT_BRANCHING_FACTOR);
+    }
+
+    /**
+     * Empty tree, with comparator override.
+     * @param comparator        Comparison function with which to override default compareTo of Key.
+     * @param branchingFactor   Maximum number of Keys per leaf, and of children per inner page,
+     *                          between MIN_BRANCHING_FACTOR and MAX_BRANCHING_FACTOR.
+     */
+    public BPlusTree(Comparator<Key> comparator, int branchingFactor){
+        if (branchingFactor < MIN_BRANCHING_FACTOR || branchingFactor > MAX_BRANCHING_FACTOR){
+            throw new IllegalArgumentException(String.format("Branching factor %d outside of [%d, %d]", branchingFactor, MIN_BRANCHING_FACTOR, MAX_BRANCHING_FACTOR));
+        }
+        this.comparator = comparator;
+        this.branchingFactor = branchingFactor;
+    }
+
+    /**
+     * A page of the tree; its Keys occupy the first count slots of an array with room for one more than a full page,
+     * so that an insert may overfill a page before splitting it.
+     */
+    private static abstract class Page {
+        final Object[] keys;
+        int count;
+
+        Page(int capacity){
+            this.keys = new Object[capacity];
+        }
+
+        abstract int size();
+    }
+
+    private static final class Leaf extends Page {
+        Leaf next;
+
+        Leaf(int branchingFactor){
+            super(branchingFactor + 1);
+        }
+
+        @Override
+        int size(){
+            return count;
+        }
+    }
+
+    /**
+     * An inner page; child i holds the Keys at least keys[i - 1] and less than keys[i].
+     */
+    private static final class Inner extends Page {
+        final Page[] children;
+        int size;
+
+        Inner(int branchingFactor){
+            super(branchingFactor);
+            this.children = new Page[branchingFactor + 1];
+        }
+
+        @Override
+        int size(){
+            return size;
+        }
+    }
+
+    /**
+     * @return  Whether the tree is empty or not.
+     */
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    /**
+     * @return  Number of Keys within the tree.
+     */
+    public int size(){
+        return root == null ? 0 : root.size();
+    }
+
+    /**
+     * @return  Maximum number of Keys per leaf, and of children per inner page.
+     */
+    public int getBranchingFactor(){
+        return branchingFactor;
+    }
+
+    /**
+     * Remove every Key.
+     */
+    public void clear(){
+        root = null;
+        head = null;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Key key(Page page, int index){
+        return (Key) page.keys[index];
+    }
+
+    /**
+     * Binary search within the occupied slots of a single page.
+     * @return  Index of the Key if found; otherwise (-(insertion point) - 1), as with Arrays.binarySearch.
+     */
+    private int search(Page page, Key key){
+        int low = 0;
+        int high = page.count - 1;
+        while (low <= high){
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(key(page, middle), key);
+            if (comparison < 0){
+                low = middle + 1;
+            } else if (comparison > 0){
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return  Index of the child of the inner page under which the given Key belongs.
+     */
+    private int route(Inner inner, Key key){
+        int index = search(inner, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Leaf findLeaf(Key key){
+        Page current = root;
+        while (current instanceof Inner){
+            Inner inner = (Inner) current;
+            current = inner.children[route(inner, key)];
+        }
+        return (Leaf) current;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(Key key){
+        return root != null && search(findLeaf(key), key) >= 0;
+    }
+
+    /**
+     * Insert a Key into the tree.
+     * If the inserted Key duplicates the same sorted location as an existing Key, the existing Key will be overwritten.
+     * @param key   Key to insert.
+     * @return      Whether the tree grew; false if an existing Key was overwritten.
+     */
+    public boolean insert(Key key){
+        modCount++;
+        if (root == null){
+            head = new Leaf(branchingFactor);
+            head.keys[0] = key;
+            head.count = 1;
+            root = head;
+            return true;
+        }
+        int sizeBefore = root.size();
+        Page split = insert(root, key);
+        if (split != null){
+            // Root split; add a new root above both halves, one level higher.
+            Inner inner = new Inner(branchingFactor);
+            inner.keys[0] = promotedKey;
+            inner.children[0] = root;
+            inner.children[1] = split;
+            inner.count = 1;
+            inner.size = root.size() + split.size();
+            root = inner;
+            promotedKey = null;
+        }
+        return root.size() > sizeBefore;
+    }
+
+    /**
+     * Insert the Key beneath the given page, splitting any page which overflows.
+     * @return  New right sibling of the given page, if it split, its least Key left in promotedKey; otherwise null.
+     */
+    private Page insert(Page page, Key key){
+        if (page instanceof Leaf){
+            Leaf leaf = (Leaf) page;
+            int index = search(leaf, key);
+            if (index >= 0){
+                // Duplicate key found; replace this.
+                leaf.keys[index] = key;
+                return null;
+            }
+            insertAt(leaf.keys, leaf.count, -index - 1, key);
+            leaf.count++;
+            return leaf.count > branchingFactor ? splitLeaf(leaf) : null;
+        }
+        Inner inner = (Inner) page;
+        int childIndex = route(inner, key);
+        Page child = inner.children[childIndex];
+        int childSizeBefore = child.size();
+        Page split = insert(child, key);
+        inner.size += child.size() - childSizeBefore + (split == null ? 0 : split.size());
+        if (split == null){
+            return null;
+        }
+        insertAt(inner.keys, inner.count, childIndex, promotedKey);
+        insertAt(inner.children, inner.count + 1, childIndex + 1, split);
+        inner.count++;
+        return inner.count + 1 > branchingFactor ? splitInner(inner) : null;
+    }
+
+    private Leaf splitLeaf(Leaf leaf){
+        Leaf right = new Leaf(branchingFactor);
+        int middle = leaf.count / 2;
+        right.count = leaf.count - middle;
+        System.arraycopy(leaf.keys, middle, right.keys, 0, right.count);
+        clear(leaf.keys, middle, leaf.count);
+        leaf.count = middle;
+        right.next = leaf.next;
+        leaf.next = right;
+        promotedKey = right.keys[0];
+        return right;
+    }
+
+    /**
+     * Split an overfull inner page about its middle Key, which moves up into the parent rather than into either half.
+     */
+    private Inner splitInner(Inner inner){
+        Inner right = new Inner(branchingFactor);
+        int middle = inner.count / 2;
+        promotedKey = inner.keys[middle];
+        right.count = inner.count - middle - 1;
+        System.arraycopy(inner.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, middle + 1, right.children, 0, right.count + 1);
+        clear(inner.keys, middle, inner.count);
+        clear(inner.children, middle + 1, inner.count + 1);
+        inner.count = middle;
+        int leftSize = 0;
+        for (int index = 0; index <= middle; index++){
+            leftSize += inner.children[index].size();
+        }
+        right.size = inner.size - leftSize;
+        inner.size = leftSize;
+        return right;
+    }
+
+    /**
+     * Delete a Key from the tree.
+     * @param key   Key to delete.
+     * @return      Whether the Key was contained.
+     */
+    public boolean delete(Key key){
+        if (root == null || !delete(root, key)){
+            return false;
+        }
+        modCount++;
+        if (root.count == 0){
+            if (root instanceof Inner){
+                // Root emptied; its only child becomes the root, one level lower.
+                root = ((Inner) root).children[0];
+            } else {
+                root = null;
+                head = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delete the Key from beneath the given page, refilling any child left less than half full.
+     * Separators equal to the deleted Key may remain in inner pages; they still route every search correctly.
+     * @return  Whether the Key was contained.
+     */
+    private boolean delete(Page page, Key key){
+        if (page instanceof Leaf){
+            int index = search(page, key);
+            if (index < 0){
+                return false;
+            }
+            removeAt(page.keys, page.count, index);
+            page.count--;
+            return true;
+        }
+        Inner inner = (Inner) page;
+        int childIndex = route(inner, key);
+        if (!delete(inner.children[childIndex], key)){
+            return false;
+        }
+        inner.size--;
+        if (isUnderfull(inner.children[childIndex])){
+            refill(inner, childIndex);
+        }
+        return true;
+    }
+
+    private boolean isUnderfull(Page page){
+        if (page instanceof Leaf){
+            return page.count < branchingFactor / 2;
+        }
+        return page.count + 1 < (branchingFactor + 1) / 2;
+    }
+
+    /**
+     * Refill the child at the given index, by taking one entry from a sibling which can spare it,
+     * or else by merging with a sibling; the left page of the two always survives a merge.
+     */
+    private void refill(Inner parent, int index){
+        if (index > 0){
+            Page left = parent.children[index - 1];
+            Page child = parent.children[index];
+            if (canLend(left)){
+                shiftRight(parent, index - 1, left, child);
+            } else {
+                merge(parent, index - 1, left, child);
+            }
+        } else {
+            Page child = parent.children[index];
+            Page right = parent.children[index + 1];
+            if (canLend(right)){
+                shiftLeft(parent, index, child, right);
+            } else {
+                merge(parent, index, child, right);
+            }
+        }
+    }
+
+    private boolean canLend(Page page){
+        if (page instanceof Leaf){
+            return page.count > branchingFactor / 2;
+        }
+        return page.count + 1 > (branchingFactor + 1) / 2;
+    }
+
+    /**
+     * Move the greatest entry of the left page to the front of the right page, updating their separator.
+     */
+    private void shiftRight(Inner parent, int separator, Page left, Page right){
+        if (left instanceof Leaf){
+            insertAt(right.keys, right.count, 0, left.keys[left.count - 1]);
+            right.count++;
+            left.keys[--left.count] = null;
+            parent.keys[separator] = right.keys[0];
+        } else {
+            Inner innerLeft = (Inner) left;
+            Inner innerRight = (Inner) right;
+            Page moved = innerLeft.children[innerLeft.count];
+            insertAt(innerRight.keys, innerRight.count, 0, parent.keys[separator]);
+            insertAt(innerRight.children, innerRight.count + 1, 0, moved);
+            innerRight.count++;
+            parent.keys[separator] = innerLeft.keys[innerLeft.count - 1];
+            innerLeft.keys[innerLeft.count - 1] = null;
+            innerLeft.children[innerLeft.count] = null;
+            innerLeft.count--;
+            innerLeft.size -= moved.size();
+            innerRight.size += moved.size();
+        }
+    }
+
+    /**
+     * Move the least entry of the right page to the end of the left page, updating their separator.
+     */
+    private void shiftLeft(Inner parent, int separator, Page left, Page right){
+        if (left instanceof Leaf){
+            left.keys[left.count++] = right.keys[0];
+            removeAt(right.keys, right.count, 0);
+            right.count--;
+            parent.keys[separator] = right.keys[0];
+        } else {
+            Inner innerLeft = (Inner) left;
+            Inner innerRight = (Inner) right;
+            Page moved = innerRight.children[0];
+            innerLeft.keys[innerLeft.count] = parent.keys[separator];
+            innerLeft.children[innerLeft.count + 1] = moved;
+            innerLeft.count++;
+            parent.keys[separator] = innerRight.keys[0];
+            removeAt(innerRight.keys, innerRight.count, 0);
+            removeAt(innerRight.children, innerRight.count + 1, 0);
+            innerRight.count--;
+            innerLeft.size += moved.size();
+            innerRight.size -= moved.size();
+        }
+    }
+
+    /**
+     * Append the right page to the left, removing the right page and their separator from the parent.
+     */
+    private void merge(Inner parent, int separator, Page left, Page right){
+        if (left instanceof Leaf){
+            System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+            left.count += right.count;
+            ((Leaf) left).next = ((Leaf) right).next;
+        } else {
+            Inner innerLeft = (Inner) left;
+            Inner innerRight = (Inner) right;
+            innerLeft.keys[innerLeft.count] = parent.keys[separator];
+            System.arraycopy(innerRight.keys, 0, innerLeft.keys, innerLeft.count + 1, innerRight.count);
+            System.arraycopy(innerRight.children, 0, innerLeft.children, innerLeft.count + 1, innerRight.count + 1);
+            innerLeft.count += innerRight.count + 1;
+            innerLeft.size += innerRight.size;
+        }
+        removeAt(parent.keys, parent.count, separator);
+        removeAt(parent.children, parent.count + 1, separator + 1);
+        parent.count--;
+    }
+
+    private static void insertAt(Object[] array, int length, int index, Object value){
+        System.arraycopy(array, index, array, index + 1, length - index);
+        array[index] = value;
+    }
+
+    private static void removeAt(Object[] array, int length, int index){
+        System.arraycopy(array, index + 1, array, index, length - index - 1);
+        array[length - 1] = null;
+    }
+
+    private static void clear(Object[] array, int from, int to){
+        for (int index = from; index < to; index++){
+            array[index] = null;
+        }
+    }
+
+    public Key getMin(){
+        return head == null ? null : key(head, 0);
+    }
+
+    public Key getMax(){
+        if (root == null){
+            return null;
+        }
+        Page current = root;
+        while (current instanceof Inner){
+            current = ((Inner) current).children[current.count];
+        }
+        return key(current, current.count - 1);
+    }
+
+    /**
+     * Count the Keys between the given start and end, inclusive, from the sizes held by inner pages along two paths.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    public int countRange(Key start, Key end){
+        if (comparator.compare(start, end) > 0){
+            return 0;
+        }
+        return countBelow(end, true) - countBelow(start, false);
+    }
+
+    private int countBelow(Key key, boolean inclusive){
+        if (root == null){
+            return 0;
+        }
+        int count = 0;
+        Page current = root;
+        while (current instanceof Inner){
+            Inner inner = (Inner) current;
+            int childIndex = route(inner, key);
+            for (int index = 0; index < childIndex; index++){
+                count += inner.children[index].size();
+            }
+            current = inner.children[childIndex];
+        }
+        int index = search(current, key);
+        return count + (index >= 0 ? index + (inclusive ? 1 : 0) : -index - 1);
+    }
+
+    /**
+     * Descend once to the leaf holding start, then walk the chain of leaves until passing end.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public List<Key> getRange(Key start, Key end){
+        List<Key> result = new ArrayList<>();
+        if (root == null || comparator.compare(start, end) > 0){
+            return result;
+        }
+        Leaf leaf = findLeaf(start);
+        int index = search(leaf, start);
+        index = index >= 0 ? index : -index - 1;
+        while (leaf != null){
+            for (; index < leaf.count; index++){
+                Key key = key(leaf, index);
+                if (comparator.compare(key, end) > 0){
+                    return result;
+                }
+                result.add(key);
+            }
+            leaf = leaf.next;
+            index = 0;
+        }
+        return result;
+    }
+
+    public List<Key> toAscendingList(){
+        List<Key> result = new ArrayList<>(size());
+        for (Leaf leaf = head; leaf != null; leaf = leaf.next){
+            for (int index = 0; index < leaf.count; index++){
+                result.add(key(leaf, index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lazy walk along the chain of leaves; fails fast if the tree is modified during iteration.
+     * @return  Iterator over Keys in ascending order.
+     */
+    @Override
+    public Iterator<Key> iterator(){
+        return new Iterator<Key>(){
+
+            private Leaf leaf = head;
+            private int index;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext(){
+                return leaf != null;
+            }
+
+            @Override
+            public Key next(){
+                if (modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                if (leaf == null){
+                    throw new NoSuchElementException();
+                }
+                Key key = key(leaf, index++);
+                if (index == leaf.count){
+                    leaf = leaf.next;
+                    index = 0;
+                }
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Ensure order and occupancy of every page, that every leaf lies at the same depth,
+     * that inner page sizes are correct, and that the chain of leaves visits every leaf in order.
+     * @throws InvalidSearchTreeException   Tree is invalid.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        if (root == null){
+            if (head != null){
+                throw new InvalidSearchTreeException("Leaf chain of empty tree is not empty");
+            }
+            return;
+        }
+        if (root.count == 0){
+            throw new InvalidSearchTreeException("Empty root");
+        }
+        int depth = 0;
+        for (Page current = root; current instanceof Inner; current = ((Inner) current).children[0]){
+            depth++;
+        }
+        Leaf last = recursiveValidate(root, null, null, depth, null);
+        if (last.next != null){
+            throw new InvalidSearchTreeException(String.format("Last leaf, ending with key %s, has a next leaf", key(last, last.count - 1)));
+        }
+    }
+
+    /**
+     * @param lower         Least Key the page may hold, inclusive; null if unbounded.
+     * @param upper         Bound which every Key of the page must be less than; null if unbounded.
+     * @param depth         Number of inner pages which must lie beneath this page.
+     * @param previous      Leaf preceding this page's first leaf, which must chain to it; null if none.
+     * @return              Last leaf beneath this page.
+     */
+    private Leaf recursiveValidate(Page page, Key lower, Key upper, int depth, Leaf previous) throws InvalidSearchTreeException {
+        boolean isLeaf = page instanceof Leaf;
+        if (isLeaf != (depth == 0)){
+            throw new InvalidSearchTreeException(String.format("Leaves at unequal depths, near key %s", key(page, 0)));
+        }
+        if (page != root && isUnderfull(page)){
+            throw new InvalidSearchTreeException(String.format("Underfull page, first key %s, count %d", key(page, 0), page.count));
+        }
+        if ((isLeaf ? page.count : page.count + 1) > branchingFactor){
+            throw new InvalidSearchTreeException(String.format("Overfull page, first key %s, count %d", key(page, 0), page.count));
+        }
+        for (int index = 0; index < page.count; index++){
+            Key key = key(page, index);
+            if (index > 0 && comparator.compare(key(page, index - 1), key) >= 0){
+                throw new InvalidSearchTreeException(String.format("Key %s out of order", key));
+            }
+            if ((lower != null && comparator.compare(key, lower) < 0) || (upper != null && comparator.compare(key, upper) >= 0)){
+                throw new InvalidSearchTreeException(String.format("Key %s outside of bounds [%s, %s)", key, lower, upper));
+            }
+        }
+        if (isLeaf){
+            if (previous == null ? page != head : previous.next != page){
+                throw new InvalidSearchTreeException(String.format("Leaf chain broken before key %s", key(page, 0)));
+            }
+            return (Leaf) page;
+        }
+        Inner inner = (Inner) page;
+        int expectedSize = 0;
+        for (int index = 0; index <= inner.count; index++){
+            Key childLower = index == 0 ? lower : key(inner, index - 1);
+            Key childUpper = index == inner.count ? upper : key(inner, index);
+            previous = recursiveValidate(inner.children[index], childLower, childUpper, depth - 1, previous);
+            expectedSize += inner.children[index].size();
+        }
+        if (expectedSize != inner.size){
+            throw new InvalidSearchTreeException(String.format("Invalid size for page with first key %s, size %d, expected %d", key(inner, 0), inner.size, expectedSize));
+        }
+        return previous;
+    }
+}
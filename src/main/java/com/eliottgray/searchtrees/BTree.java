@@ -0,0 +1,540 @@
+package com.eliottgray.searchtrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent B-tree, whose nodes each hold up to (branching factor - 1) Keys in a sorted array.
+ *
+ * A binary tree of ten million Keys is about 24 levels deep, each level a pointer to chase and likely a cache miss;
+ * at a branching factor of 32, the same Keys fit within 5 levels, and each level is searched within a single array.
+ * Like AVLTree, an update copies only the nodes on its path, sharing every other node with the original tree;
+ * each copied node is wider, so updates allocate more than they would in a binary tree, while lookups and
+ * range scans touch far fewer objects.
+ *
+ * Every node except the root holds at least ceil(branching factor / 2) - 1 Keys, and all leaves lie at the same depth.
+ */
+public class BTree<Key extends Comparable<Key>> extends Tree<Key> {
+
+    public static final int MIN_BRANCHING_FACTOR = 16;
+    public static final int MAX_BRANCHING_FACTOR = 128;
+    public static final int DEFAULT_BRANCHING_FACTOR = 32;
+
+    private final BTreeNode<Key> root;
+    private final int branchingFactor;
+
+    /**
+     * Empty tree, with the default branching factor. Comparison of Keys to be performed with default compareTo method.
+     */
+    public BTree(){
+        this(DEFAULT_BRANCHING_FACTOR);
+    }
+
+    /**
+     * Empty tree. Comparison of Keys to be performed with default compareTo method.
+     * @param branchingFactor   Maximum number of children per node, between MIN_BRANCHING_FACTOR and MAX_BRANCHING_FACTOR.
+     */
+    public BTree(int branchingFactor){
+        super();
+        this.root = null;
+        this.branchingFactor = checkBranchingFactor(branchingFactor);
+    }
+
+    /**
+     * Empty tree, with comparator override and the default branching factor.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public BTree(Comparator<Key> comparator){
+        this(comparator, DEFAULT_BRANCHING_FACTOR);
+    }
+
+    /**
+     * Empty tree, with comparator override.
+     * @param comparator        Comparison function with which to override default compareTo of Key.
+     * @param branchingFactor   Maximum number of children per node, between MIN_BRANCHING_FACTOR and MAX_BRANCHING_FACTOR.
+     */
+    public BTree(Comparator<Key> comparator, int branchingFactor){
+        super(comparator);
+        this.root = null;
+        this.branchingFactor = checkBranchingFactor(branchingFactor);
+    }
+
+    /**
+     * Construct a new tree from an older tree.
+     * @param root              Existing root node.
+     * @param comparator        Comparator corresponding to current root node.
+     * @param branchingFactor   Branching factor corresponding to current root node.
+     */
+    private BTree(BTreeNode<Key> root, Comparator<Key> comparator, int branchingFactor){
+        super(comparator);
+        this.root = root;
+        this.branchingFactor = branchingFactor;
+    }
+
+    private static int checkBranchingFactor(int branchingFactor){
+        if (branchingFactor < MIN_BRANCHING_FACTOR || branchingFactor > MAX_BRANCHING_FACTOR){
+            throw new IllegalArgumentException(String.format("Branching factor %d outside of [%d, %d]", branchingFactor, MIN_BRANCHING_FACTOR, MAX_BRANCHING_FACTOR));
+        }
+        return branchingFactor;
+    }
+
+    @Override
+    BTreeNode<Key> getRoot(){ return root; }
+
+    /**
+     * @return  Maximum number of children per node.
+     */
+    public int getBranchingFactor(){
+        return branchingFactor;
+    }
+
+    private int maxKeys(){
+        return branchingFactor - 1;
+    }
+
+    private int minKeys(){
+        return (branchingFactor + 1) / 2 - 1;
+    }
+
+    /**
+     * Binary search within a single node.
+     * @return  Index of the Key if found; otherwise (-(insertion point) - 1), as with Arrays.binarySearch.
+     */
+    private int search(BTreeNode<Key> node, Key key){
+        int low = 0;
+        int high = node.keys.length - 1;
+        while (low <= high){
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(node.keyAt(middle), key);
+            if (comparison < 0){
+                low = middle + 1;
+            } else if (comparison > 0){
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public boolean contains(Key key){
+        BTreeNode<Key> current = root;
+        while (current != null){
+            int index = search(current, key);
+            if (index >= 0){
+                return true;
+            }
+            current = current.isLeaf() ? null : current.children[-index - 1];
+        }
+        return false;
+    }
+
+    @Override
+    public BTree<Key> insert(Key key){
+        if (root == null){
+            return new BTree<>(new BTreeNode<>(new Object[]{key}, null), comparator, branchingFactor);
+        }
+        BTreeNode<Key> inserted = recursiveInsert(key, root);
+        if (inserted.keys.length > maxKeys()){
+            // Root overflowed; split it beneath a new root, one level higher.
+            int middle = inserted.keys.length / 2;
+            BTreeNode<Key>[] children = newChildren(2);
+            children[0] = splitLeft(inserted, middle);
+            children[1] = splitRight(inserted, middle);
+            inserted = new BTreeNode<>(new Object[]{inserted.keys[middle]}, children);
+        }
+        return new BTree<>(inserted, comparator, branchingFactor);
+    }
+
+    /**
+     * Copy the path to the given Key, inserting it into a leaf.
+     * The returned node may hold one Key too many, to be split by the caller.
+     */
+    private BTreeNode<Key> recursiveInsert(Key key, BTreeNode<Key> current){
+        int index = search(current, key);
+        if (index >= 0){
+            // Duplicate key found; replace this.
+            Object[] keys = current.keys.clone();
+            keys[index] = key;
+            return new BTreeNode<>(keys, current.children);
+        }
+        int insertion = -index - 1;
+        if (current.isLeaf()){
+            return new BTreeNode<>(inserted(current.keys, insertion, key), null);
+        }
+        BTreeNode<Key> child = recursiveInsert(key, current.children[insertion]);
+        if (child.keys.length <= maxKeys()){
+            BTreeNode<Key>[] children = current.children.clone();
+            children[insertion] = child;
+            return new BTreeNode<>(current.keys, children);
+        }
+        // Child overflowed; split it about its middle Key, which moves up into this node.
+        int middle = child.keys.length / 2;
+        BTreeNode<Key>[] children = inserted(current.children, insertion + 1, splitRight(child, middle));
+        children[insertion] = splitLeft(child, middle);
+        return new BTreeNode<>(inserted(current.keys, insertion, child.keys[middle]), children);
+    }
+
+    private BTreeNode<Key> splitLeft(BTreeNode<Key> node, int middle){
+        return new BTreeNode<>(Arrays.copyOf(node.keys, middle), node.isLeaf() ? null : Arrays.copyOf(node.children, middle + 1));
+    }
+
+    private BTreeNode<Key> splitRight(BTreeNode<Key> node, int middle){
+        int length = node.keys.length;
+        return new BTreeNode<>(Arrays.copyOfRange(node.keys, middle + 1, length), node.isLeaf() ? null : Arrays.copyOfRange(node.children, middle + 1, length + 1));
+    }
+
+    @Override
+    public BTree<Key> delete(Key key){
+        if (root == null){
+            return this;
+        }
+        BTreeNode<Key> deleted = recursiveDelete(key, root);
+        if (deleted == root){
+            // Key is not in this tree; no need for change.
+            return this;
+        }
+        if (deleted.keys.length == 0){
+            // Root emptied; its only child, if any, becomes the root, one level lower.
+            deleted = deleted.isLeaf() ? null : deleted.children[0];
+        }
+        return new BTree<>(deleted, comparator, branchingFactor);
+    }
+
+    /**
+     * Copy the path to a Key, removing it.
+     * The returned node may hold one Key too few, to be refilled by the caller.
+     * @return  The same node if the Key is absent from its subtree.
+     */
+    private BTreeNode<Key> recursiveDelete(Key key, BTreeNode<Key> current){
+        int index = search(current, key);
+        if (current.isLeaf()){
+            return index < 0 ? current : new BTreeNode<>(removed(current.keys, index), null);
+        }
+        if (index >= 0){
+            // Replace the Key with its predecessor, the greatest Key of the child to its left.
+            BTreeNode<Key> child = current.children[index];
+            Object predecessor = max(child);
+            Object[] keys = current.keys.clone();
+            keys[index] = predecessor;
+            return refill(keys, current.children, index, deleteMax(child));
+        }
+        int childIndex = -index - 1;
+        BTreeNode<Key> child = recursiveDelete(key, current.children[childIndex]);
+        if (child == current.children[childIndex]){
+            return current;
+        }
+        return refill(current.keys, current.children, childIndex, child);
+    }
+
+    private BTreeNode<Key> deleteMax(BTreeNode<Key> current){
+        int last = current.keys.length - 1;
+        if (current.isLeaf()){
+            return new BTreeNode<>(Arrays.copyOf(current.keys, last), null);
+        }
+        return refill(current.keys, current.children, last + 1, deleteMax(current.children[last + 1]));
+    }
+
+    /**
+     * Build a node from the given Keys and children, with the child at the given index replaced.
+     * If the replacement holds too few Keys, take one from a sibling through this node, or merge it with a sibling.
+     */
+    private BTreeNode<Key> refill(Object[] keys, BTreeNode<Key>[] children, int index, BTreeNode<Key> child){
+        if (child.keys.length >= minKeys()){
+            children = children.clone();
+            children[index] = child;
+            return new BTreeNode<>(keys, children);
+        }
+        if (index > 0){
+            BTreeNode<Key> left = children[index - 1];
+            int leftLength = left.keys.length;
+            if (leftLength > minKeys()){
+                // Rotate the greatest Key of the left sibling up, and the separating Key down.
+                children = children.clone();
+                children[index - 1] = new BTreeNode<>(Arrays.copyOf(left.keys, leftLength - 1), left.isLeaf() ? null : Arrays.copyOf(left.children, leftLength));
+                children[index] = new BTreeNode<>(inserted(child.keys, 0, keys[index - 1]), child.isLeaf() ? null : inserted(child.children, 0, left.children[leftLength]));
+                keys = keys.clone();
+                keys[index - 1] = left.keys[leftLength - 1];
+                return new BTreeNode<>(keys, children);
+            }
+            BTreeNode<Key>[] merged = removed(children, index);
+            merged[index - 1] = merge(left, keys[index - 1], child);
+            return new BTreeNode<>(removed(keys, index - 1), merged);
+        } else {
+            BTreeNode<Key> right = children[index + 1];
+            int rightLength = right.keys.length;
+            if (rightLength > minKeys()){
+                // Rotate the least Key of the right sibling up, and the separating Key down.
+                children = children.clone();
+                children[index] = new BTreeNode<>(inserted(child.keys, child.keys.length, keys[index]), child.isLeaf() ? null : inserted(child.children, child.children.length, right.children[0]));
+                children[index + 1] = new BTreeNode<>(Arrays.copyOfRange(right.keys, 1, rightLength), right.isLeaf() ? null : Arrays.copyOfRange(right.children, 1, rightLength + 1));
+                keys = keys.clone();
+                keys[index] = right.keys[0];
+                return new BTreeNode<>(keys, children);
+            }
+            BTreeNode<Key>[] merged = removed(children, index + 1);
+            merged[index] = merge(child, keys[index], right);
+            return new BTreeNode<>(removed(keys, index), merged);
+        }
+    }
+
+    private BTreeNode<Key> merge(BTreeNode<Key> left, Object separator, BTreeNode<Key> right){
+        Object[] keys = inserted(left.keys, left.keys.length, separator);
+        keys = Arrays.copyOf(keys, keys.length + right.keys.length);
+        System.arraycopy(right.keys, 0, keys, left.keys.length + 1, right.keys.length);
+        BTreeNode<Key>[] children = null;
+        if (!left.isLeaf()){
+            children = Arrays.copyOf(left.children, left.children.length + right.children.length);
+            System.arraycopy(right.children, 0, children, left.children.length, right.children.length);
+        }
+        return new BTreeNode<>(keys, children);
+    }
+
+    private static <T> T[] inserted(T[] array, int index, T value){
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static <T> T[] removed(T[] array, int index){
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Key extends Comparable<Key>> BTreeNode<Key>[] newChildren(int length){
+        return (BTreeNode<Key>[]) new BTreeNode[length];
+    }
+
+    private static <Key extends Comparable<Key>> Key max(BTreeNode<Key> current){
+        while (!current.isLeaf()){
+            current = current.children[current.children.length - 1];
+        }
+        return current.keyAt(current.keys.length - 1);
+    }
+
+    public Key getMax(){
+        return root == null ? null : max(root);
+    }
+
+    public Key getMin(){
+        if (root == null){
+            return null;
+        }
+        BTreeNode<Key> current = root;
+        while (!current.isLeaf()){
+            current = current.children[0];
+        }
+        return current.keyAt(0);
+    }
+
+    @Override
+    public Iterator<Key> iterator(){
+        return new BTreeIterator<>(root);
+    }
+
+    public List<Key> toAscendingList(){
+        List<Key> result = new ArrayList<>(size());
+        if (root != null){
+            addAll(root, result);
+        }
+        return result;
+    }
+
+    private static <Key extends Comparable<Key>> void addAll(BTreeNode<Key> current, List<Key> result){
+        for (int index = 0; index < current.keys.length; index++){
+            if (!current.isLeaf()){
+                addAll(current.children[index], result);
+            }
+            result.add(current.keyAt(index));
+        }
+        if (!current.isLeaf()){
+            addAll(current.children[current.keys.length], result);
+        }
+    }
+
+    public List<Key> getRange(Key start, Key end){
+        List<Key> result = new ArrayList<>();
+        if (root != null && comparator.compare(start, end) <= 0){
+            recursiveGetRange(start, end, root, result);
+        }
+        return result;
+    }
+
+    /**
+     * Only the children holding start and end need searching; every child between them lies wholly within range.
+     * A bound found in this node leaves nothing to search on its far side.
+     */
+    private void recursiveGetRange(Key start, Key end, BTreeNode<Key> current, List<Key> result){
+        int from = search(current, start);
+        boolean startFound = from >= 0;
+        from = startFound ? from : -from - 1;
+        int to = search(current, end);
+        boolean endFound = to >= 0;
+        to = endFound ? to + 1 : -to - 1;
+        for (int index = from; index <= to; index++){
+            if (!current.isLeaf()){
+                boolean holdsStart = index == from && !startFound;
+                boolean holdsEnd = index == to && !endFound;
+                boolean outside = (index == from && startFound) || (index == to && endFound);
+                if (holdsStart || holdsEnd){
+                    recursiveGetRange(start, end, current.children[index], result);
+                } else if (!outside){
+                    addAll(current.children[index], result);
+                }
+            }
+            if (index < to){
+                result.add(current.keyAt(index));
+            }
+        }
+    }
+
+    /**
+     * Count Keys within range from the subtree sizes along two paths, without visiting the Keys between them.
+     */
+    @Override
+    public int countRange(Key start, Key end){
+        return Math.max(0, countBelow(end, true) - countBelow(start, false));
+    }
+
+    /**
+     * @param key           Key to count up to.
+     * @param inclusive     Whether a Key equal to the given Key is counted.
+     * @return              Number of Keys less than, or if inclusive at most, the given Key.
+     */
+    private int countBelow(Key key, boolean inclusive){
+        int count = 0;
+        BTreeNode<Key> current = root;
+        while (current != null){
+            int index = search(current, key);
+            boolean found = index >= 0;
+            int before = found ? index : -index - 1;
+            count += before;
+            if (!current.isLeaf()){
+                for (int child = 0; child < before; child++){
+                    count += current.children[child].size;
+                }
+            }
+            if (found){
+                return count + (current.isLeaf() ? 0 : current.children[index].size) + (inclusive ? 1 : 0);
+            }
+            current = current.isLeaf() ? null : current.children[before];
+        }
+        return count;
+    }
+
+    /**
+     * Validate that every node holds Keys in strictly ascending order, within the bounds set by its parent,
+     * that node occupancy is within bounds, and that every leaf lies at the same depth.
+     * @throws InvalidSearchTreeException       Tree violates invariants.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        if (root != null){
+            if (root.keys.length == 0){
+                throw new InvalidSearchTreeException("Empty root");
+            }
+            recursiveValidate(root, null, null);
+        }
+    }
+
+    private void recursiveValidate(BTreeNode<Key> current, Key lower, Key upper) throws InvalidSearchTreeException{
+        int length = current.keys.length;
+        if (length > maxKeys() || (current != root && length < minKeys())){
+            throw new InvalidSearchTreeException(String.format("Invalid key count for key %s, count %d", String.valueOf(current.getKey()), length));
+        }
+        if (length > 0 && current.getKey() != current.keys[0]){
+            throw new InvalidSearchTreeException(String.format("Invalid node key %s, first key %s", String.valueOf(current.getKey()), current.keys[0].toString()));
+        }
+        for (int index = 0; index < length; index++){
+            Key key = current.keyAt(index);
+            Key previous = index == 0 ? lower : current.keyAt(index - 1);
+            if ((previous != null && comparator.compare(previous, key) >= 0) || (upper != null && comparator.compare(key, upper) >= 0)){
+                throw new InvalidSearchTreeException(String.format("Key %s out of order", key.toString()));
+            }
+        }
+
+        int expectedSize = length;
+        if (current.isLeaf()){
+            if (current.height != 1){
+                throw new InvalidSearchTreeException(String.format("Invalid height for leaf with key %s, height %d", current.getKey().toString(), current.height));
+            }
+        } else {
+            if (current.children.length != length + 1){
+                throw new InvalidSearchTreeException(String.format("Invalid child count for key %s, %d children for %d keys", current.getKey().toString(), current.children.length, length));
+            }
+            for (int index = 0; index <= length; index++){
+                BTreeNode<Key> child = current.children[index];
+                if (child.height != current.height - 1){
+                    throw new InvalidSearchTreeException(String.format("Invalid height for key %s, height %d, child height %d", current.getKey().toString(), current.height, child.height));
+                }
+                recursiveValidate(child, index == 0 ? lower : current.keyAt(index - 1), index == length ? upper : current.keyAt(index));
+                expectedSize += child.size;
+            }
+        }
+        if (expectedSize != current.size){
+            throw new InvalidSearchTreeException(String.format("Invalid size for key %s, size %d, expected %d", String.valueOf(current.getKey()), current.size, expectedSize));
+        }
+    }
+
+    /**
+     * Lazy in-order walk, holding one frame per level: the node, and the index of its next Key to return.
+     * Frames whose Keys are all returned stay on the stack until the walk climbs back through them.
+     */
+    private static final class BTreeIterator<Key extends Comparable<Key>> implements Iterator<Key> {
+
+        private final BTreeNode<Key>[] nodes;
+        private final int[] positions;
+        private int depth;
+
+        BTreeIterator(BTreeNode<Key> root){
+            int height = root == null ? 0 : root.height;
+            this.nodes = newChildren(height);
+            this.positions = new int[height];
+            this.depth = -1;
+            if (root != null){
+                descend(root);
+            }
+        }
+
+        private void descend(BTreeNode<Key> current){
+            while (true){
+                depth++;
+                nodes[depth] = current;
+                positions[depth] = 0;
+                if (current.isLeaf()){
+                    return;
+                }
+                current = current.children[0];
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return depth >= 0;
+        }
+
+        @Override
+        public Key next(){
+            if (depth < 0){
+                throw new NoSuchElementException();
+            }
+            BTreeNode<Key> current = nodes[depth];
+            int position = positions[depth]++;
+            Key key = current.keyAt(position);
+            if (!current.isLeaf()){
+                descend(current.children[position + 1]);
+            } else {
+                while (depth >= 0 && positions[depth] == nodes[depth].keys.length){
+                    nodes[depth--] = null;
+                }
+            }
+            return key;
+        }
+    }
+}
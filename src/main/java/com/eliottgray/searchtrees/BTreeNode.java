@@ -0,0 +1,49 @@
+package com.eliottgray.searchtrees;
+
+/**
+ * A node of a BTree: a sorted array of Keys and, unless a leaf, one more child than Keys.
+ * Arrays are sized exactly to their contents; like every other persistent node, a BTreeNode is never modified
+ * after construction, so an update copies the arrays of each node on its path.
+ *
+ * Height counts levels, all leaves being at height 1; size counts every Key in the subtree.
+ * The Key inherited from Node is the least Key of the node itself, or null for a node emptied by deletion.
+ */
+final class BTreeNode<Key extends Comparable<Key>> extends Node<Key> {
+
+    final Object[] keys;
+    final BTreeNode<Key>[] children;
+
+    /**
+     * @param keys      Keys in ascending order.
+     * @param children  Children, one more than Keys; null for a leaf.
+     */
+    BTreeNode(Object[] keys, BTreeNode<Key>[] children){
+        super(least(keys), children == null ? 1 : children[0].height + 1, size(keys, children));
+        this.keys = keys;
+        this.children = children;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Key extends Comparable<Key>> Key least(Object[] keys){
+        return keys.length == 0 ? null : (Key) keys[0];
+    }
+
+    private static <Key extends Comparable<Key>> int size(Object[] keys, BTreeNode<Key>[] children){
+        int size = keys.length;
+        if (children != null){
+            for (BTreeNode<Key> child : children){
+                size += child.size;
+            }
+        }
+        return size;
+    }
+
+    boolean isLeaf(){
+        return children == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    Key keyAt(int index){
+        return (Key) keys[index];
+    }
+}
@@ -27,6 +27,17 @@ class BinarySearchNode<Key extends Comparable<Key>> extends Node<Key>{
         this.right = right;
     }
 
+    /**
+     * Copy this node onto new children, keeping everything it holds besides them.
+     * Subclasses which carry more than a Key override this, so that rebalancing never drops their payload.
+     * @param left      New left child.
+     * @param right     New right child.
+     * @return          Copy of this node.
+     */
+    BinarySearchNode<Key> withChildren(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        return new BinarySearchNode<>(key, left, right);
+    }
+
     BinarySearchNode<Key> getLeft() { return this.left; }
     BinarySearchNode<Key> getRight() { return this.right; }
     boolean hasLeft(){ return getLeft() != null; }
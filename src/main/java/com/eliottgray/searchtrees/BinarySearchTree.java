@@ -1,8 +1,14 @@
 package com.eliottgray.searchtrees;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import java.util.function.Function;
 
 /**
  * Why use Binary Search Trees over, say, HashTables?
@@ -51,24 +57,98 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
      * @return      Presence of Key in tree.
      */
     public boolean contains(Key key){
-        if (isEmpty()){
-            return false;
-        } else {
-            BinarySearchNode<Key> current = root;
-            Boolean contains = null;
-            while(contains == null){
-                int comparison = comparator.compare(key, current.getKey());
+        return find(key) != null;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Node holding the given Key, or null if it is not contained.
+     */
+    BinarySearchNode<Key> find(Key key){
+        BinarySearchNode<Key> current = root;
+        while (current != null){
+            int comparison = comparator.compare(key, current.getKey());
+            if (comparison < 0){
+                current = current.left;
+            } else if (comparison > 0){
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the Keys less than the given Key, in O(log n), using the size stored in each node.
+     * The given Key need not be contained within the tree; if it is, its rank is also its index in ascending order.
+     * @param key   Key to rank.
+     * @return      Number of Keys less than the given Key.
+     */
+    public int rank(Key key){
+        return countBelow(key, false);
+    }
+
+    /**
+     * Count the Keys between the given start and end, inclusive, in O(log n) and without visiting them;
+     * only the boundary paths to start and end are descended, summing the sizes of the subtrees between them.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    @Override
+    public int countRange(Key start, Key end){
+        if (comparator.compare(start, end) > 0){
+            return 0;
+        }
+        return countBelow(end, true) - countBelow(start, false);
+    }
+
+    /**
+     * @param key           Boundary Key.
+     * @param inclusive     Whether a contained Key equal to the boundary is counted.
+     * @return              Number of Keys less than, or if inclusive equal to, the boundary.
+     */
+    int countBelow(Key key, boolean inclusive){
+        int count = 0;
+        BinarySearchNode<Key> current = root;
+        while (current != null){
+            int comparison = comparator.compare(key, current.getKey());
+            if (comparison < 0){
+                current = current.left;
+            } else {
+                int leftSize = current.hasLeft() ? current.left.getSize() : 0;
                 if (comparison == 0){
-                    contains = true;
-                } else if (current.hasLeft() && comparison < 0){
-                    current = current.left;
-                } else if (current.hasRight() && comparison > 0){
-                    current = current.right;
-                } else {
-                    contains = false;
+                    return count + leftSize + (inclusive ? 1 : 0);
                 }
+                count += leftSize + 1;
+                current = current.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the Key at the given index in ascending order, in O(log n), using the size stored in each node.
+     * @param index     Zero-based index; 0 selects the minimum Key, size() - 1 the maximum.
+     * @return          Key at that index.
+     * @throws IndexOutOfBoundsException    Index is negative, or not less than size().
+     */
+    public Key select(int index){
+        if (index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, size()));
+        }
+        BinarySearchNode<Key> current = root;
+        while (true){
+            int leftSize = current.hasLeft() ? current.left.getSize() : 0;
+            if (index < leftSize){
+                current = current.left;
+            } else if (index > leftSize){
+                index -= leftSize + 1;
+                current = current.right;
+            } else {
+                return current.getKey();
             }
-            return contains;
         }
     }
 
@@ -106,13 +186,13 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
             // Found key!  Now to delete. (delete = return left child, right child, find a replacement from further down, or null;
             if (current.hasLeft() && current.hasRight()){
                 // Two children!  Find a replacement for this node from the longer subtree, which itself will have 1 or no children.
-                Key replacementKey = findDeletionReplacement(current);
+                BinarySearchNode<Key> replacement = findDeletionReplacement(current);
 
                 // Delete replacement child from this node's subtree, preparing it to take over for this node.
-                root = recursiveDelete(replacementKey, current);
+                root = recursiveDelete(replacement.key, current);
 
                 // Replace this with copy of replacement child.
-                root = new BinarySearchNode<>(replacementKey, root.left, root.right);
+                root = replacement.withChildren(root.left, root.right);
 
             } else {
                 if (current.hasLeft()){
@@ -137,7 +217,7 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
      *
      * @return      Node to replace the current node in a deletion.
      */
-    Key findDeletionReplacement(BinarySearchNode<Key> node){
+    BinarySearchNode<Key> findDeletionReplacement(BinarySearchNode<Key> node){
         if (node.getBalanceFactor() > -1){
             return findLeftMostChildOfRightSubtree(node);
         } else {
@@ -146,25 +226,25 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
     }
 
     /**
-     * @return      Key belonging to the immediate in-order successor.
+     * @return      Node holding the immediate in-order successor.
      */
-    private Key findLeftMostChildOfRightSubtree(BinarySearchNode<Key> node){
+    private BinarySearchNode<Key> findLeftMostChildOfRightSubtree(BinarySearchNode<Key> node){
         BinarySearchNode<Key> child = node.right;
         while (child.hasLeft()){
             child = child.left;
         }
-        return child.getKey();
+        return child;
     }
 
     /**
-     * @return      Key belonging to the immediate in-order predecessor.
+     * @return      Node holding the immediate in-order predecessor.
      */
-    private Key findRightMostChildOfLeftSubtree(BinarySearchNode<Key> node){
+    private BinarySearchNode<Key> findRightMostChildOfLeftSubtree(BinarySearchNode<Key> node){
         BinarySearchNode<Key> child = node.left;
         while (child.hasRight()){
             child = child.right;
         }
-        return child.getKey();
+        return child;
     }
 
     public BinarySearchTree<Key> insert(Key key){
@@ -213,22 +293,64 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
         return root;
     }
 
+    /**
+     * Immutable view of this tree as a NavigableSet; no Keys are copied.
+     * Navigation methods such as floor and ceiling, and the size of bounded sub-views, are O(log n).
+     * @return      NavigableSet view.
+     */
+    public NavigableSet<Key> asNavigableSet(){
+        return new BinarySearchTreeSet<>(this);
+    }
+
+    /**
+     * Write the Keys of this tree to a snapshot file, in ascending order, to be mapped by {@link MappedTreeSnapshot#open}.
+     * The codec must order Keys as this tree does; a Key out of order for the codec is rejected.
+     * @param path      File to write; any existing file is replaced.
+     * @param codec     Fixed-width encoding of Keys.
+     * @throws IOException                  Failure to write the file.
+     * @throws IllegalArgumentException     Codec orders Keys differently from this tree.
+     */
+    public void writeSnapshot(Path path, KeyCodec<Key> codec) throws IOException {
+        MappedTreeSnapshot.write(path, codec, iterator());
+    }
+
+    public Iterator<Key> iterator(){
+        return new BinarySearchTreeIterator<>(root);
+    }
+
+    /**
+     * Splits along subtrees, reporting exact sizes from each node; each split hands off exactly half of the remaining Keys.
+     * @return  Spliterator over Keys in ascending order.
+     */
+    @Override
+    public Spliterator<Key> spliterator(){
+        return new BinarySearchTreeSpliterator<>(root, reportedComparator());
+    }
+
     public List<Key> toAscendingList(){
+        return toAscendingList(Node::getKey);
+    }
+
+    /**
+     * @param mapper    Extracts the element to collect from each node.
+     * @return          Elements of every node, in ascending order of Key.
+     */
+    <T> List<T> toAscendingList(Function<? super BinarySearchNode<Key>, T> mapper){
         if (root == null) {
             return new ArrayList<>();
         } else {
-            List<Key> orderedList = new ArrayList<>(root.getSize());
-            return recursiveToAscendingList(root, orderedList);
+            List<T> orderedList = new ArrayList<>(root.getSize());
+            return recursiveToAscendingList(root, orderedList, mapper);
         }
     }
 
-    private List<Key> recursiveToAscendingList(BinarySearchNode<Key> current, List<Key> result){
+    private <T> List<T> recursiveToAscendingList(BinarySearchNode<Key> current, List<T> result, Function<? super BinarySearchNode<Key>, T> mapper){
         if (current.hasLeft()){
-            result = recursiveToAscendingList(current.left, result);
+            result = recursiveToAscendingList(current.left, result, mapper);
         }
-        result.add(current.key);
+        result.add(mapper.apply(current));
         if (current.hasRight()){
-            result = recursiveToAscendingList(current.right, result);
+            result = recursiveToAscendingList(current.right, result, mapper);
         }
         return result;
     }
@@ -258,24 +380,34 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
     }
 
     public List<Key> getRange(Key start, Key end){
+        return getRange(start, end, Node::getKey);
+    }
+
+    /**
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @param mapper    Extracts the element to collect from each node.
+     * @return          Elements of every node within range, inclusive, in ascending order of Key.
+     */
+    <T> List<T> getRange(Key start, Key end, Function<? super BinarySearchNode<Key>, T> mapper){
         if (root == null){
             return new ArrayList<>();
         } else {
-            return recursiveGetRange(start, end, new ArrayList<>(), root);
+            return recursiveGetRange(start, end, new ArrayList<>(), root, mapper);
         }
     }
 
-    private List<Key> recursiveGetRange(Key start, Key end, List<Key> result, BinarySearchNode<Key> current){
+    private <T> List<T> recursiveGetRange(Key start, Key end, List<T> result, BinarySearchNode<Key> current, Function<? super BinarySearchNode<Key>, T> mapper){
         boolean isLessThan = comparator.compare(start, current.getKey()) <= 0;
         boolean isGreaterThan = comparator.compare(end, current.getKey()) >= 0;
         if (isLessThan && current.hasLeft()){
-            result = recursiveGetRange(start, end, result, current.left);
+            result = recursiveGetRange(start, end, result, current.left, mapper);
         }
         if (isLessThan && isGreaterThan){
-            result.add(current.getKey());
+            result.add(mapper.apply(current));
         }
         if (isGreaterThan && current.hasRight()){
-            result = recursiveGetRange(start, end, result, current.right);
+            result = recursiveGetRange(start, end, result, current.right, mapper);
         }
         return result;
     }
@@ -306,7 +438,7 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
 
         // Validate left subtree.
         if (current.hasLeft()){
-            if (current.left.getKey().compareTo(current.getKey()) >= 0){
+            if (comparator.compare(current.left.getKey(), current.getKey()) >= 0){
                 throw new InvalidSearchTreeException(String.format("Invalid left key for key %s, left key %s", current.getKey().toString(), current.left.getKey().toString()));
             }
             recursiveValidate(current.left);
@@ -314,7 +446,7 @@ public class BinarySearchTree<Key extends Comparable<Key>> extends Tree<Key> {
 
         // Validate right subtree.
         if (current.hasRight()){
-            if (current.right.getKey().compareTo(current.getKey()) <= 0) {
+            if (comparator.compare(current.right.getKey(), current.getKey()) <= 0) {
                 throw new InvalidSearchTreeException(String.format("Invalid right key for key %s, right key %s", current.getKey().toString(), current.right.getKey().toString()));
             }
             recursiveValidate(current.right);
@@ -0,0 +1,105 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy in-order walk over a tree of BinarySearchNodes, ascending or descending, optionally bounded at either end.
+ *
+ * The stack holds the nodes whose Key has yet to be returned, along a single path from the root;
+ * it never needs more slots than the height of the root, so is allocated once at that size.
+ */
+final class BinarySearchTreeIterator<Key extends Comparable<Key>> implements Iterator<Key> {
+
+    private final BinarySearchNode<Key>[] stack;
+    private int depth;
+    private final boolean descending;
+
+    // Optional bound at which iteration stops, in the direction of travel.
+    private final Comparator<Key> comparator;
+    private final Key end;
+    private final boolean endInclusive;
+
+    /**
+     * Walk every Key in ascending order.
+     * @param root      Root of tree to walk; may be null.
+     */
+    BinarySearchTreeIterator(BinarySearchNode<Key> root){
+        this(root, false, null, null, false, null, false);
+    }
+
+    /**
+     * Walk the Keys between two bounds, in ascending or descending order.
+     * @param root              Root of tree to walk; may be null.
+     * @param descending        Walk from greatest to least Key.
+     * @param comparator        Comparator of the tree; may be null if there are no bounds.
+     * @param start             First bound in the direction of travel, or null to start at the first Key.
+     * @param startInclusive    Whether a Key equal to start is returned.
+     * @param end               Last bound in the direction of travel, or null to run to the last Key.
+     * @param endInclusive      Whether a Key equal to end is returned.
+     */
+    @SuppressWarnings("unchecked")
+    BinarySearchTreeIterator(BinarySearchNode<Key> root, boolean descending, Comparator<Key> comparator,
+                             Key start, boolean startInclusive, Key end, boolean endInclusive){
+        this.stack = (BinarySearchNode<Key>[]) new BinarySearchNode[root == null ? 0 : root.getHeight()];
+        this.depth = 0;
+        this.descending = descending;
+        this.comparator = comparator;
+        this.end = end;
+        this.endInclusive = endInclusive;
+        if (start == null){
+            pushSpine(root);
+        } else {
+            seek(root, start, startInclusive);
+        }
+    }
+
+    @Override
+    public boolean hasNext(){
+        return depth > 0 && (end == null || beforeEnd(stack[depth - 1].key));
+    }
+
+    @Override
+    public Key next(){
+        if (!hasNext()){
+            throw new NoSuchElementException();
+        }
+        BinarySearchNode<Key> current = stack[--depth];
+        pushSpine(descending ? current.left : current.right);
+        return current.key;
+    }
+
+    private boolean beforeEnd(Key key){
+        int comparison = comparator.compare(key, end);
+        if (descending){
+            comparison = -comparison;
+        }
+        return comparison < 0 || (comparison == 0 && endInclusive);
+    }
+
+    /**
+     * Push the path to the first Key at or past start; nodes left behind on the path precede start, and are skipped.
+     */
+    private void seek(BinarySearchNode<Key> current, Key start, boolean inclusive){
+        while (current != null){
+            int comparison = comparator.compare(current.key, start);
+            if (descending){
+                comparison = -comparison;
+            }
+            if (comparison > 0 || (comparison == 0 && inclusive)){
+                stack[depth++] = current;
+                current = descending ? current.right : current.left;
+            } else {
+                current = descending ? current.left : current.right;
+            }
+        }
+    }
+
+    private void pushSpine(BinarySearchNode<Key> current){
+        while (current != null){
+            stack[depth++] = current;
+            current = descending ? current.right : current.left;
+        }
+    }
+}
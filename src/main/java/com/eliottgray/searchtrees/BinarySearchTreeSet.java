@@ -0,0 +1,380 @@
+package com.eliottgray.searchtrees;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Immutable NavigableSet view over a BinarySearchTree.
+ *
+ * Navigation descends the tree once, so floor, ceiling, lower, higher, first and last are O(log n).
+ * Sub-views copy nothing: each holds the same root, plus bounds and a direction, and applies them during navigation.
+ * Bounds are always held in ascending terms; a descending view swaps the meaning of each method instead.
+ */
+final class BinarySearchTreeSet<Key extends Comparable<Key>> extends AbstractSet<Key> implements NavigableSet<Key> {
+
+    private final BinarySearchTree<Key> tree;
+    private final Comparator<Key> comparator;
+
+    // Least bound; when null, the view is unbounded below.
+    private final Key low;
+    private final boolean lowInclusive;
+
+    // Greatest bound; when null, the view is unbounded above.
+    private final Key high;
+    private final boolean highInclusive;
+
+    private final boolean descending;
+
+    /**
+     * @param tree      Tree to view, in its entirety.
+     */
+    BinarySearchTreeSet(BinarySearchTree<Key> tree){
+        this(tree, null, false, null, false, false);
+    }
+
+    private BinarySearchTreeSet(BinarySearchTree<Key> tree, Key low, boolean lowInclusive, Key high, boolean highInclusive, boolean descending){
+        this.tree = tree;
+        this.comparator = tree.comparator;
+        this.low = low;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highInclusive = highInclusive;
+        this.descending = descending;
+    }
+
+    // Queries.
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object object){
+        Key key = (Key) object;
+        return inRange(key) && tree.contains(key);
+    }
+
+    /**
+     * Counted from the sizes stored in each node, along the paths to either bound, in O(log n).
+     */
+    @Override
+    public int size(){
+        int below = low == null ? 0 : tree.countBelow(low, !lowInclusive);
+        int atOrBelow = high == null ? tree.size() : tree.countBelow(high, highInclusive);
+        return Math.max(0, atOrBelow - below);
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return lowestNode() == null;
+    }
+
+    @Override
+    public Comparator<? super Key> comparator(){
+        Comparator<Key> reported = tree.reportedComparator();
+        return descending ? Collections.reverseOrder(reported) : reported;
+    }
+
+    @Override
+    public Key first(){
+        return keyOrThrow(descending ? highestNode() : lowestNode());
+    }
+
+    @Override
+    public Key last(){
+        return keyOrThrow(descending ? lowestNode() : highestNode());
+    }
+
+    @Override
+    public Key lower(Key key){
+        return keyOrNull(descending ? higherNode(key) : lowerNode(key));
+    }
+
+    @Override
+    public Key floor(Key key){
+        return keyOrNull(descending ? ceilingNode(key) : floorNode(key));
+    }
+
+    @Override
+    public Key ceiling(Key key){
+        return keyOrNull(descending ? floorNode(key) : ceilingNode(key));
+    }
+
+    @Override
+    public Key higher(Key key){
+        return keyOrNull(descending ? lowerNode(key) : higherNode(key));
+    }
+
+    // Iteration.
+
+    @Override
+    public Iterator<Key> iterator(){
+        if (descending){
+            return new BinarySearchTreeIterator<>(tree.root, true, comparator, high, highInclusive, low, lowInclusive);
+        } else {
+            return new BinarySearchTreeIterator<>(tree.root, false, comparator, low, lowInclusive, high, highInclusive);
+        }
+    }
+
+    @Override
+    public Iterator<Key> descendingIterator(){
+        return descendingSet().iterator();
+    }
+
+    /**
+     * An unbounded ascending view splits exactly as the tree does; any other view falls back to its iterator,
+     * still reporting the order of this view and its comparator.
+     */
+    @Override
+    public Spliterator<Key> spliterator(){
+        if (!descending && low == null && high == null){
+            return tree.spliterator();
+        }
+        // Spliterators.spliterator would report a null comparator, meaning natural order, even for a descending view.
+        return new Spliterators.AbstractSpliterator<Key>(size(), Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.SIZED){
+
+            private final Iterator<Key> iterator = iterator();
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Key> action){
+                if (!iterator.hasNext()){
+                    return false;
+                }
+                action.accept(iterator.next());
+                return true;
+            }
+
+            @Override
+            public Comparator<? super Key> getComparator(){
+                return comparator();
+            }
+        };
+    }
+
+    // Views.
+
+    @Override
+    public NavigableSet<Key> descendingSet(){
+        return new BinarySearchTreeSet<>(tree, low, lowInclusive, high, highInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<Key> subSet(Key fromElement, boolean fromInclusive, Key toElement, boolean toInclusive){
+        if (descending){
+            return bounded(toElement, toInclusive, fromElement, fromInclusive);
+        } else {
+            return bounded(fromElement, fromInclusive, toElement, toInclusive);
+        }
+    }
+
+    @Override
+    public NavigableSet<Key> headSet(Key toElement, boolean inclusive){
+        if (descending){
+            return bounded(toElement, inclusive, high, highInclusive);
+        } else {
+            return bounded(low, lowInclusive, toElement, inclusive);
+        }
+    }
+
+    @Override
+    public NavigableSet<Key> tailSet(Key fromElement, boolean inclusive){
+        if (descending){
+            return bounded(low, lowInclusive, fromElement, inclusive);
+        } else {
+            return bounded(fromElement, inclusive, high, highInclusive);
+        }
+    }
+
+    @Override
+    public SortedSet<Key> subSet(Key fromElement, Key toElement){
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Key> headSet(Key toElement){
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Key> tailSet(Key fromElement){
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * @throws IllegalArgumentException     New bounds are out of order, or outside the bounds of this view.
+     */
+    private NavigableSet<Key> bounded(Key newLow, boolean newLowInclusive, Key newHigh, boolean newHighInclusive){
+        if (newLow != null && newHigh != null && comparator.compare(newLow, newHigh) > 0){
+            throw new IllegalArgumentException(String.format("Bounds out of order: %s > %s", newLow, newHigh));
+        }
+        if (newLow != null && !(newLow == low && newLowInclusive == lowInclusive) && !boundInRange(newLow, newLowInclusive)){
+            throw new IllegalArgumentException(String.format("Bound %s outside of view", newLow));
+        }
+        if (newHigh != null && !(newHigh == high && newHighInclusive == highInclusive) && !boundInRange(newHigh, newHighInclusive)){
+            throw new IllegalArgumentException(String.format("Bound %s outside of view", newHigh));
+        }
+        return new BinarySearchTreeSet<>(tree, newLow, newLowInclusive, newHigh, newHighInclusive, descending);
+    }
+
+    // Mutation.
+
+    @Override
+    public Key pollFirst(){
+        throw new UnsupportedOperationException("View of a persistent tree is immutable");
+    }
+
+    @Override
+    public Key pollLast(){
+        throw new UnsupportedOperationException("View of a persistent tree is immutable");
+    }
+
+    // Ascending navigation within bounds.
+
+    private boolean tooLow(Key key){
+        if (low == null){
+            return false;
+        }
+        int comparison = comparator.compare(key, low);
+        return comparison < 0 || (comparison == 0 && !lowInclusive);
+    }
+
+    private boolean tooHigh(Key key){
+        if (high == null){
+            return false;
+        }
+        int comparison = comparator.compare(key, high);
+        return comparison > 0 || (comparison == 0 && !highInclusive);
+    }
+
+    private boolean inRange(Key key){
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    /**
+     * An exclusive bound may sit on the closed edge of this view; an inclusive bound must lie within it.
+     */
+    private boolean boundInRange(Key key, boolean inclusive){
+        if (inclusive){
+            return inRange(key);
+        }
+        return (low == null || comparator.compare(key, low) >= 0) && (high == null || comparator.compare(key, high) <= 0);
+    }
+
+    private BinarySearchNode<Key> lowestNode(){
+        BinarySearchNode<Key> node = low == null ? leftmost() : successor(low, lowInclusive);
+        return node == null || tooHigh(node.key) ? null : node;
+    }
+
+    private BinarySearchNode<Key> highestNode(){
+        BinarySearchNode<Key> node = high == null ? rightmost() : predecessor(high, highInclusive);
+        return node == null || tooLow(node.key) ? null : node;
+    }
+
+    private BinarySearchNode<Key> ceilingNode(Key key){
+        if (tooLow(key)){
+            return lowestNode();
+        }
+        BinarySearchNode<Key> node = successor(key, true);
+        return node == null || tooHigh(node.key) ? null : node;
+    }
+
+    private BinarySearchNode<Key> higherNode(Key key){
+        if (tooLow(key)){
+            return lowestNode();
+        }
+        BinarySearchNode<Key> node = successor(key, false);
+        return node == null || tooHigh(node.key) ? null : node;
+    }
+
+    private BinarySearchNode<Key> floorNode(Key key){
+        if (tooHigh(key)){
+            return highestNode();
+        }
+        BinarySearchNode<Key> node = predecessor(key, true);
+        return node == null || tooLow(node.key) ? null : node;
+    }
+
+    private BinarySearchNode<Key> lowerNode(Key key){
+        if (tooHigh(key)){
+            return highestNode();
+        }
+        BinarySearchNode<Key> node = predecessor(key, false);
+        return node == null || tooLow(node.key) ? null : node;
+    }
+
+    // Ascending navigation over the whole tree.
+
+    /**
+     * @return      Node with the least Key greater than, or if inclusive equal to, the given Key; or null.
+     */
+    private BinarySearchNode<Key> successor(Key key, boolean inclusive){
+        BinarySearchNode<Key> current = tree.root;
+        BinarySearchNode<Key> best = null;
+        while (current != null){
+            int comparison = comparator.compare(key, current.key);
+            if (comparison < 0 || (comparison == 0 && inclusive)){
+                if (comparison == 0){
+                    return current;
+                }
+                best = current;
+                current = current.left;
+            } else {
+                current = current.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return      Node with the greatest Key less than, or if inclusive equal to, the given Key; or null.
+     */
+    private BinarySearchNode<Key> predecessor(Key key, boolean inclusive){
+        BinarySearchNode<Key> current = tree.root;
+        BinarySearchNode<Key> best = null;
+        while (current != null){
+            int comparison = comparator.compare(key, current.key);
+            if (comparison > 0 || (comparison == 0 && inclusive)){
+                if (comparison == 0){
+                    return current;
+                }
+                best = current;
+                current = current.right;
+            } else {
+                current = current.left;
+            }
+        }
+        return best;
+    }
+
+    private BinarySearchNode<Key> leftmost(){
+        BinarySearchNode<Key> current = tree.root;
+        while (current != null && current.left != null){
+            current = current.left;
+        }
+        return current;
+    }
+
+    private BinarySearchNode<Key> rightmost(){
+        BinarySearchNode<Key> current = tree.root;
+        while (current != null && current.right != null){
+            current = current.right;
+        }
+        return current;
+    }
+
+    private static <Key extends Comparable<Key>> Key keyOrNull(BinarySearchNode<Key> node){
+        return node == null ? null : node.key;
+    }
+
+    private static <Key extends Comparable<Key>> Key keyOrThrow(BinarySearchNode<Key> node){
+        if (node == null){
+            throw new NoSuchElementException();
+        }
+        return node.key;
+    }
+}
@@ -0,0 +1,183 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a tree of BinarySearchNodes, splitting along subtrees.
+ *
+ * Remaining work is a stack of entries, the next entry on top.  Each entry is either a whole subtree,
+ * or the lone Key of a node whose subtrees are accounted for elsewhere.  Node sizes make every entry's
+ * count exact, so splits hand off an exact half without visiting any Key: a whole subtree straddling
+ * the halfway point is expanded in place into its left subtree, its own Key and its right subtree.
+ */
+final class BinarySearchTreeSpliterator<Key extends Comparable<Key>> implements Spliterator<Key> {
+
+    private static final int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+
+    private final Comparator<Key> comparator;
+    private BinarySearchNode<Key>[] nodes;
+    private boolean[] whole;
+    private int depth;
+    private long remaining;
+
+    /**
+     * @param root          Root of tree to walk; may be null.
+     * @param comparator    Comparator by which the tree is sorted; null for the natural order of Keys.
+     */
+    @SuppressWarnings("unchecked")
+    BinarySearchTreeSpliterator(BinarySearchNode<Key> root, Comparator<Key> comparator){
+        int capacity = root == null ? 1 : 2 * root.getHeight() + 1;
+        this.comparator = comparator;
+        this.nodes = (BinarySearchNode<Key>[]) new BinarySearchNode[capacity];
+        this.whole = new boolean[capacity];
+        this.depth = 0;
+        this.remaining = 0;
+        if (root != null){
+            push(root, true);
+            remaining = root.getSize();
+        }
+    }
+
+    private BinarySearchTreeSpliterator(BinarySearchNode<Key>[] nodes, boolean[] whole, long remaining, Comparator<Key> comparator){
+        this.comparator = comparator;
+        this.nodes = nodes;
+        this.whole = whole;
+        this.depth = nodes.length;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Key> action){
+        BinarySearchNode<Key> next = advance();
+        if (next == null){
+            return false;
+        }
+        action.accept(next.key);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Key> action){
+        BinarySearchNode<Key> next;
+        while ((next = advance()) != null){
+            action.accept(next.key);
+        }
+    }
+
+    /**
+     * @return  Node holding the next Key, or null once exhausted.
+     */
+    private BinarySearchNode<Key> advance(){
+        while (depth > 0){
+            depth--;
+            BinarySearchNode<Key> current = nodes[depth];
+            if (!whole[depth]){
+                remaining--;
+                return current;
+            }
+            // Expand the subtree; its left subtree ends up on top, to be walked first.
+            if (current.hasRight()){
+                push(current.right, true);
+            }
+            push(current, false);
+            if (current.hasLeft()){
+                push(current.left, true);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Spliterator<Key> trySplit(){
+        long target = remaining / 2;
+        long prefixSize = 0;
+        int index = depth - 1;
+        // Entries are taken from the top until the prefix reaches half; it can never take them all.
+        while (index >= 0 && prefixSize < target){
+            long size = entrySize(index);
+            if (prefixSize + size <= target){
+                prefixSize += size;
+                index--;
+            } else if (whole[index]){
+                index = expand(index);
+            } else {
+                break;
+            }
+        }
+        if (prefixSize == 0){
+            return null;
+        }
+
+        // Everything above index moves to the prefix, which covers the lesser Keys.
+        int prefixDepth = depth - (index + 1);
+        BinarySearchNode<Key>[] prefixNodes = Arrays.copyOfRange(nodes, index + 1, depth);
+        boolean[] prefixWhole = Arrays.copyOfRange(whole, index + 1, depth);
+        Arrays.fill(nodes, index + 1, depth, null);
+        depth -= prefixDepth;
+        remaining -= prefixSize;
+        return new BinarySearchTreeSpliterator<>(prefixNodes, prefixWhole, prefixSize, comparator);
+    }
+
+    @Override
+    public long estimateSize(){
+        return remaining;
+    }
+
+    @Override
+    public int characteristics(){
+        return CHARACTERISTICS;
+    }
+
+    @Override
+    public Comparator<? super Key> getComparator(){
+        return comparator;
+    }
+
+    private long entrySize(int index){
+        return whole[index] ? nodes[index].getSize() : 1;
+    }
+
+    /**
+     * Replace the whole subtree at the given index with its right subtree, its own Key and its left subtree,
+     * shifting every entry above it upwards.
+     * @return  Index of the topmost replacement entry.
+     */
+    private int expand(int index){
+        BinarySearchNode<Key> current = nodes[index];
+        int pieces = 1 + (current.hasLeft() ? 1 : 0) + (current.hasRight() ? 1 : 0);
+        ensureCapacity(depth + pieces - 1);
+        System.arraycopy(nodes, index + 1, nodes, index + pieces, depth - index - 1);
+        System.arraycopy(whole, index + 1, whole, index + pieces, depth - index - 1);
+        depth += pieces - 1;
+
+        int slot = index;
+        if (current.hasRight()){
+            nodes[slot] = current.right;
+            whole[slot++] = true;
+        }
+        nodes[slot] = current;
+        whole[slot++] = false;
+        if (current.hasLeft()){
+            nodes[slot] = current.left;
+            whole[slot++] = true;
+        }
+        return slot - 1;
+    }
+
+    private void push(BinarySearchNode<Key> node, boolean isWhole){
+        ensureCapacity(depth + 1);
+        nodes[depth] = node;
+        whole[depth++] = isWhole;
+    }
+
+    private void ensureCapacity(int capacity){
+        if (capacity > nodes.length){
+            int newCapacity = Math.max(capacity, nodes.length * 2);
+            nodes = Arrays.copyOf(nodes, newCapacity);
+            whole = Arrays.copyOf(whole, newCapacity);
+        }
+    }
+}
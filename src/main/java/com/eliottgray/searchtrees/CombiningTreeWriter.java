@@ -0,0 +1,224 @@
+package com.eliottgray.searchtrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe writer of a persistent AVLTree, which combines the updates of contending threads into batches.
+ *
+ * Compare-and-set writers, as in {@link ConcurrentTreeRef}, each copy a path and race to publish it,
+ * so under contention most of their copies are thrown away.  Here, each update is instead posted to a queue;
+ * whichever thread finds no combiner at work becomes the combiner, applies every posted update to a single
+ * transient of the current tree, publishes the result once, and completes the future of each update it applied.
+ * Nodes near the root are copied once per batch rather than once per update, so the busier the writers,
+ * the larger the batches and the less each update costs.
+ *
+ * A batch holds at most MAX_BATCH_SIZE updates, so that under sustained load each batch is still published promptly.
+ * A combiner whose own update is published hands the role over once another thread is waiting on an update of its own;
+ * only when none is does it carry on, so that updates submitted asynchronously are never left without a combiner.
+ *
+ * Readers take the current tree with a single volatile read, exactly as from ConcurrentTreeRef.
+ */
+public final class CombiningTreeWriter<Key extends Comparable<Key>> {
+
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    /** Most updates applied by a single batch. */
+    static final int MAX_BATCH_SIZE = 1 << 10;
+
+    private final ConcurrentLinkedQueue<Request<Key>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    // Threads within insert or delete, whose update may not yet be published.
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile AVLTree<Key> current;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder combined = new LongAdder();
+
+    /**
+     * @param initial   Tree to hold initially.
+     */
+    public CombiningTreeWriter(AVLTree<Key> initial){
+        if (initial == null){
+            throw new NullPointerException("Initial tree");
+        }
+        this.current = initial;
+    }
+
+    /**
+     * Wait-free; the returned tree is immutable, so is a consistent snapshot however long it is held.
+     * @return  Current tree.
+     */
+    public AVLTree<Key> get(){
+        return current;
+    }
+
+    /**
+     * Insert a Key, returning once the batch containing the insert is published.
+     * @param key   Key to insert.
+     * @return      Tree published by the batch, containing the Key unless a later update of the batch deleted it.
+     */
+    public AVLTree<Key> insert(Key key){
+        return await(post(INSERT, key));
+    }
+
+    /**
+     * Delete a Key, returning once the batch containing the delete is published.
+     * @param key   Key to delete.
+     * @return      Tree published by the batch, without the Key unless a later update of the batch inserted it.
+     */
+    public AVLTree<Key> delete(Key key){
+        return await(post(DELETE, key));
+    }
+
+    /**
+     * Post an insert; if no other thread is combining, the calling thread combines before returning.
+     * @param key   Key to insert.
+     * @return      Future of the tree published by the batch containing the insert.
+     */
+    public CompletableFuture<AVLTree<Key>> submitInsert(Key key){
+        Request<Key> request = post(INSERT, key);
+        combine(request, false);
+        return request.result;
+    }
+
+    /**
+     * Post a delete; if no other thread is combining, the calling thread combines before returning.
+     * @param key   Key to delete.
+     * @return      Future of the tree published by the batch containing the delete.
+     */
+    public CompletableFuture<AVLTree<Key>> submitDelete(Key key){
+        Request<Key> request = post(DELETE, key);
+        combine(request, false);
+        return request.result;
+    }
+
+    private Request<Key> post(byte operation, Key key){
+        if (key == null){
+            throw new NullPointerException("Key");
+        }
+        Request<Key> request = new Request<>(operation, key);
+        pending.add(request);
+        return request;
+    }
+
+    /**
+     * Combine, or wait for another thread to, until the given update is published.
+     * On leaving, the thread is no longer counted as waiting, so checks once more whether it must combine for others.
+     */
+    private AVLTree<Key> await(Request<Key> request){
+        waiting.incrementAndGet();
+        try {
+            while (!request.result.isDone()){
+                combine(request, true);
+                if (!request.result.isDone()){
+                    Thread.yield();
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+        combine(request, false);
+        return request.result.join();
+    }
+
+    /**
+     * Apply posted updates in batches while any remain, unless the caller may hand the combiner role over.
+     * Whichever thread holds the role checks the queue, and the waiting threads, again after giving it up;
+     * so a thread which fails to take the role may leave, and no request is left without a combiner.
+     * @param own       Update posted by the calling thread.
+     * @param waiter    Whether the calling thread is itself counted as waiting.
+     */
+    private void combine(Request<Key> own, boolean waiter){
+        while (!pending.isEmpty() && !canHandOver(own, waiter)){
+            if (!combining.compareAndSet(false, true)){
+                return;
+            }
+            try {
+                do {
+                    applyBatch();
+                } while (!pending.isEmpty() && !canHandOver(own, waiter));
+            } finally {
+                combining.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return  Whether the caller's own update is published, and some other thread waits to take over the combiner role.
+     */
+    private boolean canHandOver(Request<Key> own, boolean waiter){
+        return own.result.isDone() && waiting.get() > (waiter ? 1 : 0);
+    }
+
+    private void applyBatch(){
+        List<Request<Key>> batch = new ArrayList<>();
+        TransientAVLTree<Key> editing = current.asTransient();
+        Request<Key> request;
+        for (int polled = 0; polled < MAX_BATCH_SIZE && (request = pending.poll()) != null; polled++){
+            try {
+                if (request.operation == INSERT){
+                    editing.insert(request.key);
+                } else {
+                    editing.delete(request.key);
+                }
+                batch.add(request);
+            } catch (RuntimeException e){
+                // A Key the comparator rejects fails alone; the rest of the batch is unaffected.
+                request.result.completeExceptionally(e);
+            }
+        }
+        if (batch.isEmpty()){
+            return;
+        }
+        AVLTree<Key> published = editing.persistent();
+        current = published;
+        batches.increment();
+        combined.add(batch.size());
+        for (Request<Key> applied : batch){
+            applied.result.complete(published);
+        }
+    }
+
+    /**
+     * @return  Number of batches published.
+     */
+    public long getBatchCount(){
+        return batches.sum();
+    }
+
+    /**
+     * @return  Number of updates applied, across all batches.
+     */
+    public long getCombinedCount(){
+        return combined.sum();
+    }
+
+    /**
+     * Zero the counts of batches and updates.
+     */
+    public void resetMetrics(){
+        batches.reset();
+        combined.reset();
+    }
+
+    /**
+     * An update posted to the queue, and the future completed once it is published.
+     */
+    private static final class Request<Key extends Comparable<Key>> {
+        final byte operation;
+        final Key key;
+        final CompletableFuture<AVLTree<Key>> result = new CompletableFuture<>();
+
+        Request(byte operation, Key key){
+            this.operation = operation;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,996 @@
+package com.eliottgray.searchtrees;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mutable, thread-safe AVL tree, updated in place by concurrent writers, after Bronson, Casper, Chafi and Olukotun,
+ * "A Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ *
+ * Searches take no locks.  Each node carries a version, changed whenever a rotation shrinks the range of Keys
+ * beneath it, or the node is unlinked; a search reads a node's version before moving to its child, and checks it
+ * again after reading the child's version, hand over hand, retrying from the last valid node on any change.
+ * Writers lock only the few nodes they change, so writes to different parts of the tree proceed in parallel.
+ *
+ * Deleting a Key whose node has two children only marks the node absent, leaving it in place to route searches;
+ * such routing nodes are unlinked once they have fewer than two children.
+ * Balance is relaxed: heights are repaired, and rotations made, after each update, by the writer which damaged them,
+ * so the tree may be briefly out of balance while writers are active, but is strictly balanced once they finish.
+ *
+ * Ranges and iteration are weakly consistent: each Key is returned at most once, in ascending order;
+ * every Key present throughout is returned, and Keys inserted or deleted meanwhile may or may not be.
+ */
+public class ConcurrentAVLTree<Key extends Comparable<Key>> implements Iterable<Key> {
+
+    /** Version bits: unlinked from the tree for good, or mid-rotation and shrinking. */
+    private static final long UNLINKED = 0x1L;
+    private static final long SHRINKING = 0x2L;
+    private static final long CHANGE_INCREMENT = 0x4L;
+
+    /** Spins on a changing node before waiting on its lock instead. */
+    private static final int SPIN_COUNT = 100;
+
+    /** Outcomes of a repair check, besides a corrected height. */
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    /** Outcomes of one attempt at a search or traversal. */
+    private static final Object RETRY = new Object();
+    private static final int CONTINUE = 0;
+    private static final int DONE = 1;
+    private static final int RESTART = 2;
+
+    /** Number of Keys fetched at a time by an iterator. */
+    private static final int ITERATOR_BATCH = 64;
+
+    private final Comparator<Key> comparator;
+
+    // Sentinel whose right child is the root; it is never rotated or unlinked.
+    private final Node<Key> rootHolder = new Node<>(null, false, null);
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Empty tree. Comparison of Keys to be performed with default compareTo method.
+     */
+    public ConcurrentAVLTree(){
+        this(Comparable::compareTo);
+    }
+
+    /**
+     * Empty tree, with comparator override.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public ConcurrentAVLTree(Comparator<Key> comparator){
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return  Whether the tree is empty or not; exact only while no writer is active.
+     */
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /**
+     * @return  Number of Keys in the tree; exact only while no writer is active.
+     */
+    public int size(){
+        return (int) size.sum();
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(Key key){
+        while (true){
+            Node<Key> root = rootHolder.right;
+            if (root == null){
+                return false;
+            }
+            int comparison = comparator.compare(key, root.key);
+            if (comparison == 0){
+                return root.present;
+            }
+            long rootVersion = root.version;
+            if ((rootVersion & (SHRINKING | UNLINKED)) != 0){
+                root.waitUntilNotChanging();
+            } else if (root == rootHolder.right){
+                Object found = attemptContains(key, root, comparison, rootVersion);
+                if (found != RETRY){
+                    return (Boolean) found;
+                }
+            }
+        }
+    }
+
+    /**
+     * Search beneath a node whose version was read as given; fails with RETRY once that version has changed.
+     */
+    private Object attemptContains(Key key, Node<Key> node, int direction, long nodeVersion){
+        while (true){
+            Node<Key> child = node.child(direction);
+            if (child == null){
+                if (node.version != nodeVersion){
+                    return RETRY;
+                }
+                return Boolean.FALSE;
+            }
+            int comparison = comparator.compare(key, child.key);
+            if (comparison == 0){
+                return child.present;
+            }
+            long childVersion = child.version;
+            if ((childVersion & (SHRINKING | UNLINKED)) != 0){
+                child.waitUntilNotChanging();
+                if (node.version != nodeVersion){
+                    return RETRY;
+                }
+            } else if (child != node.child(direction)){
+                if (node.version != nodeVersion){
+                    return RETRY;
+                }
+            } else {
+                if (node.version != nodeVersion){
+                    return RETRY;
+                }
+                Object found = attemptContains(key, child, comparison, childVersion);
+                if (found != RETRY){
+                    return found;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key   Key to insert.
+     * @return      Whether the Key was inserted; false if already present.
+     */
+    public boolean insert(Key key){
+        if (key == null){
+            throw new NullPointerException("Key");
+        }
+        boolean inserted = !update(key, true);
+        if (inserted){
+            size.increment();
+        }
+        return inserted;
+    }
+
+    /**
+     * @param key   Key to delete.
+     * @return      Whether the Key was deleted; false if not present.
+     */
+    public boolean delete(Key key){
+        if (key == null){
+            throw new NullPointerException("Key");
+        }
+        boolean deleted = update(key, false);
+        if (deleted){
+            size.decrement();
+        }
+        return deleted;
+    }
+
+    /**
+     * @param key       Key to insert or delete.
+     * @param present   Whether the Key should be present afterwards.
+     * @return          Whether the Key was present beforehand.
+     */
+    private boolean update(Key key, boolean present){
+        while (true){
+            Node<Key> root = rootHolder.right;
+            if (root == null){
+                if (!present || attemptInsertIntoEmpty(key)){
+                    return false;
+                }
+            } else {
+                long rootVersion = root.version;
+                if ((rootVersion & (SHRINKING | UNLINKED)) != 0){
+                    root.waitUntilNotChanging();
+                } else if (root == rootHolder.right){
+                    Object previous = attemptUpdate(key, present, rootHolder, root, rootVersion);
+                    if (previous != RETRY){
+                        return (Boolean) previous;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean attemptInsertIntoEmpty(Key key){
+        synchronized (rootHolder){
+            if (rootHolder.right == null){
+                rootHolder.right = new Node<>(key, true, rootHolder);
+                rootHolder.height = 2;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Search for the Key beneath a node whose version was read as given, then update it;
+     * fails with RETRY once that version has changed.
+     * @return  Whether the Key was present, or RETRY.
+     */
+    private Object attemptUpdate(Key key, boolean present, Node<Key> parent, Node<Key> node, long nodeVersion){
+        int comparison = comparator.compare(key, node.key);
+        if (comparison == 0){
+            return attemptNodeUpdate(present, parent, node);
+        }
+        while (true){
+            Node<Key> child = node.child(comparison);
+            if (node.version != nodeVersion){
+                return RETRY;
+            }
+            if (child == null){
+                if (!present){
+                    return Boolean.FALSE;
+                }
+                Node<Key> damaged;
+                synchronized (node){
+                    // Holding the lock, no further rotation can move node; check none already has.
+                    if (node.version != nodeVersion){
+                        return RETRY;
+                    }
+                    if (node.child(comparison) != null){
+                        // Lost a race with a concurrent insert; search again from this node.
+                        continue;
+                    }
+                    node.setChild(comparison, new Node<>(key, true, node));
+                    damaged = fixHeight(node);
+                }
+                fixHeightAndRebalance(damaged);
+                return Boolean.FALSE;
+            }
+            long childVersion = child.version;
+            if ((childVersion & (SHRINKING | UNLINKED)) != 0){
+                child.waitUntilNotChanging();
+            } else if (child == node.child(comparison)){
+                // The re-read of the child is protected by childVersion; now validate the read which reached node.
+                if (node.version != nodeVersion){
+                    return RETRY;
+                }
+                Object previous = attemptUpdate(key, present, node, child, childVersion);
+                if (previous != RETRY){
+                    return previous;
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the node holding the Key.  The parent is needed only to unlink the node, and may be stale otherwise.
+     */
+    private Object attemptNodeUpdate(boolean present, Node<Key> parent, Node<Key> node){
+        if (!present && !node.present){
+            return Boolean.FALSE;
+        }
+        if (!present && (node.left == null || node.right == null)){
+            // Deleting a node with a free child: unlink it, which requires the parent's lock as well.
+            Node<Key> damaged;
+            synchronized (parent){
+                if ((parent.version & UNLINKED) != 0 || node.parent != parent){
+                    return RETRY;
+                }
+                synchronized (node){
+                    if (!node.present){
+                        return Boolean.FALSE;
+                    }
+                    if (!attemptUnlink(parent, node)){
+                        return RETRY;
+                    }
+                }
+                damaged = fixHeight(parent);
+            }
+            fixHeightAndRebalance(damaged);
+            return Boolean.TRUE;
+        }
+        synchronized (node){
+            if ((node.version & UNLINKED) != 0){
+                return RETRY;
+            }
+            boolean previous = node.present;
+            if (previous == present){
+                return previous;
+            }
+            if (!present && (node.left == null || node.right == null)){
+                // A child was unlinked meanwhile; delete by unlinking instead.
+                return RETRY;
+            }
+            // Insert over a routing node, or delete leaving one in place.
+            node.present = present;
+            return previous;
+        }
+    }
+
+    /**
+     * Splice out a node with at most one child; both it and its parent must be locked.  Heights are not adjusted.
+     * @return  Whether the node was unlinked; false if it is no longer the parent's child, or now has two children.
+     */
+    private boolean attemptUnlink(Node<Key> parent, Node<Key> node){
+        Node<Key> parentLeft = parent.left;
+        Node<Key> parentRight = parent.right;
+        if (parentLeft != node && parentRight != node){
+            return false;
+        }
+        Node<Key> left = node.left;
+        Node<Key> right = node.right;
+        if (left != null && right != null){
+            return false;
+        }
+        Node<Key> splice = left != null ? left : right;
+        if (parentLeft == node){
+            parent.left = splice;
+        } else {
+            parent.right = splice;
+        }
+        if (splice != null){
+            splice.parent = parent;
+        }
+        node.version = UNLINKED;
+        node.present = false;
+        return true;
+    }
+
+    private static int height(Node<?> node){
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Determine the repair a node needs, from an unlocked and possibly inconsistent read of it and its children.
+     * Any thread which changes a node promises to repair it, so either the read was consistent,
+     * or another thread is responsible for whatever it missed.
+     * @return  UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED, or else the corrected height.
+     */
+    private int nodeCondition(Node<Key> node){
+        Node<Key> left = node.left;
+        Node<Key> right = node.right;
+        if ((left == null || right == null) && !node.present){
+            return UNLINK_REQUIRED;
+        }
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int corrected = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance < -1 || balance > 1){
+            return REBALANCE_REQUIRED;
+        }
+        return height != corrected ? corrected : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Repair a damaged node and its ancestors in turn, until one needs nothing done.
+     * A rotation may hand back a damaged node below the new root of the rotated subtree, whose own parent is then
+     * left stale; so once this thread has rotated, it checks every ancestor up to the root rather than stopping early.
+     */
+    private void fixHeightAndRebalance(Node<Key> node){
+        boolean rotated = false;
+        while (node != null && node.parent != null){
+            Node<Key> parent = node.parent;
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED || (node.version & UNLINKED) != 0){
+                if (!rotated){
+                    return;
+                }
+                node = parent;
+            } else if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED){
+                synchronized (node){
+                    node = fixHeight(node);
+                }
+            } else {
+                synchronized (parent){
+                    if ((parent.version & UNLINKED) == 0 && node.parent == parent){
+                        synchronized (node){
+                            node = rebalance(parent, node);
+                        }
+                        rotated = true;
+                    }
+                }
+            }
+            if (node == null && rotated){
+                node = parent;
+            }
+        }
+    }
+
+    /**
+     * Correct the height of a locked node, if that is all it needs.
+     * @return  Lowest node still damaged, for which this thread is responsible; null if none.
+     */
+    private Node<Key> fixHeight(Node<Key> node){
+        int condition = nodeCondition(node);
+        switch (condition){
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = condition;
+                return node.parent;
+        }
+    }
+
+    /**
+     * Unlink or rotate a locked node, whose parent is also locked.
+     * @return  Lowest node still damaged, for which this thread is responsible; null if none.
+     */
+    private Node<Key> rebalance(Node<Key> parent, Node<Key> node){
+        Node<Key> left = node.left;
+        Node<Key> right = node.right;
+        if ((left == null || right == null) && !node.present){
+            if (attemptUnlink(parent, node)){
+                return fixHeight(parent);
+            }
+            return node;
+        }
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int corrected = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance > 1){
+            return rebalanceToRight(parent, node, left, rightHeight);
+        } else if (balance < -1){
+            return rebalanceToLeft(parent, node, right, leftHeight);
+        } else if (corrected != height){
+            node.height = corrected;
+            return fixHeight(parent);
+        }
+        return null;
+    }
+
+    /**
+     * The left subtree is too tall; rotate right, first rotating the left child left if its right subtree is the taller.
+     */
+    private Node<Key> rebalanceToRight(Node<Key> parent, Node<Key> node, Node<Key> left, int rightHeight){
+        synchronized (left){
+            int leftHeight = left.height;
+            if (leftHeight - rightHeight <= 1){
+                return node;
+            }
+            Node<Key> leftRight = left.right;
+            int leftLeftHeight = height(left.left);
+            int leftRightHeight = height(leftRight);
+            if (leftLeftHeight >= leftRightHeight){
+                return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+            }
+            synchronized (leftRight){
+                leftRightHeight = leftRight.height;
+                if (leftLeftHeight >= leftRightHeight){
+                    return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+                }
+                // Rotate twice only if the left child will not be left damaged.
+                int leftRightLeftHeight = height(leftRight.left);
+                int balance = leftLeftHeight - leftRightLeftHeight;
+                if (balance >= -1 && balance <= 1 && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && !left.present)){
+                    return rotateRightOverLeft(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightLeftHeight);
+                }
+                // The left child may be only one out of balance; rotate it regardless, and node on a later pass.
+                return rotateLeft(node, left, leftLeftHeight, leftRight, leftRight.left, leftRightLeftHeight, height(leftRight.right));
+            }
+        }
+    }
+
+    /**
+     * The right subtree is too tall; rotate left, first rotating the right child right if its left subtree is the taller.
+     */
+    private Node<Key> rebalanceToLeft(Node<Key> parent, Node<Key> node, Node<Key> right, int leftHeight){
+        synchronized (right){
+            int rightHeight = right.height;
+            if (leftHeight - rightHeight >= -1){
+                return node;
+            }
+            Node<Key> rightLeft = right.left;
+            int rightLeftHeight = height(rightLeft);
+            int rightRightHeight = height(right.right);
+            if (rightRightHeight >= rightLeftHeight){
+                return rotateLeft(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+            }
+            synchronized (rightLeft){
+                rightLeftHeight = rightLeft.height;
+                if (rightRightHeight >= rightLeftHeight){
+                    return rotateLeft(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+                }
+                int rightLeftRightHeight = height(rightLeft.right);
+                int balance = rightRightHeight - rightLeftRightHeight;
+                if (balance >= -1 && balance <= 1 && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && !right.present)){
+                    return rotateLeftOverRight(parent, node, leftHeight, right, rightLeft, rightRightHeight, rightLeftRightHeight);
+                }
+                return rotateRight(node, right, rightLeft, rightRightHeight, height(rightLeft.left), rightLeft.right, rightLeftRightHeight);
+            }
+        }
+    }
+
+    /**
+     * Rotate right about a node; node, its parent and its left child are locked.  Only node shrinks, so only its version changes.
+     * @return  Lowest node still damaged, for which this thread is responsible; null if none.
+     */
+    private Node<Key> rotateRight(Node<Key> parent, Node<Key> node, Node<Key> left, int rightHeight, int leftLeftHeight, Node<Key> leftRight, int leftRightHeight){
+        long nodeVersion = node.version;
+        Node<Key> parentLeft = parent.left;
+        node.version = beginChange(nodeVersion);
+
+        node.left = leftRight;
+        if (leftRight != null){
+            leftRight.parent = node;
+        }
+        left.right = node;
+        node.parent = left;
+        if (parentLeft == node){
+            parent.left = left;
+        } else {
+            parent.right = left;
+        }
+        left.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+        node.height = nodeHeight;
+        left.height = 1 + Math.max(leftLeftHeight, nodeHeight);
+        node.version = endChange(nodeVersion);
+
+        // Node is the deepest damaged; repair what can be repaired with the locks held.
+        int nodeBalance = leftRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1){
+            return node;
+        }
+        if ((leftRight == null || rightHeight == 0) && !node.present){
+            return node;
+        }
+        int leftBalance = leftLeftHeight - nodeHeight;
+        if (leftBalance < -1 || leftBalance > 1){
+            return left;
+        }
+        if (leftLeftHeight == 0 && !left.present){
+            return left;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Mirror of rotateRight.
+     */
+    private Node<Key> rotateLeft(Node<Key> parent, Node<Key> node, int leftHeight, Node<Key> right, Node<Key> rightLeft, int rightLeftHeight, int rightRightHeight){
+        long nodeVersion = node.version;
+        Node<Key> parentLeft = parent.left;
+        node.version = beginChange(nodeVersion);
+
+        node.right = rightLeft;
+        if (rightLeft != null){
+            rightLeft.parent = node;
+        }
+        right.left = node;
+        node.parent = right;
+        if (parentLeft == node){
+            parent.left = right;
+        } else {
+            parent.right = right;
+        }
+        right.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+        node.height = nodeHeight;
+        right.height = 1 + Math.max(nodeHeight, rightRightHeight);
+        node.version = endChange(nodeVersion);
+
+        int nodeBalance = rightLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1){
+            return node;
+        }
+        if ((rightLeft == null || leftHeight == 0) && !node.present){
+            return node;
+        }
+        int rightBalance = rightRightHeight - nodeHeight;
+        if (rightBalance < -1 || rightBalance > 1){
+            return right;
+        }
+        if (rightRightHeight == 0 && !right.present){
+            return right;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Rotate the left child left, then the node right, in one step; node, its parent, left child and left-right grandchild
+     * are locked.  Node and its left child shrink, so both versions change.
+     * @return  Lowest node still damaged, for which this thread is responsible; null if none.
+     */
+    private Node<Key> rotateRightOverLeft(Node<Key> parent, Node<Key> node, Node<Key> left, int rightHeight, int leftLeftHeight, Node<Key> leftRight, int leftRightLeftHeight){
+        long nodeVersion = node.version;
+        long leftVersion = left.version;
+        Node<Key> parentLeft = parent.left;
+        Node<Key> leftRightLeft = leftRight.left;
+        Node<Key> leftRightRight = leftRight.right;
+        int leftRightRightHeight = height(leftRightRight);
+        node.version = beginChange(nodeVersion);
+        left.version = beginChange(leftVersion);
+
+        node.left = leftRightRight;
+        if (leftRightRight != null){
+            leftRightRight.parent = node;
+        }
+        left.right = leftRightLeft;
+        if (leftRightLeft != null){
+            leftRightLeft.parent = left;
+        }
+        leftRight.left = left;
+        left.parent = leftRight;
+        leftRight.right = node;
+        node.parent = leftRight;
+        if (parentLeft == node){
+            parent.left = leftRight;
+        } else {
+            parent.right = leftRight;
+        }
+        leftRight.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+        node.height = nodeHeight;
+        int leftHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+        left.height = leftHeight;
+        leftRight.height = 1 + Math.max(leftHeight, nodeHeight);
+        node.version = endChange(nodeVersion);
+        left.version = endChange(leftVersion);
+
+        int nodeBalance = leftRightRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1){
+            return node;
+        }
+        if ((leftRightRight == null || rightHeight == 0) && !node.present){
+            return node;
+        }
+        int leftRightBalance = leftHeight - nodeHeight;
+        if (leftRightBalance < -1 || leftRightBalance > 1){
+            return leftRight;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Mirror of rotateRightOverLeft.
+     */
+    private Node<Key> rotateLeftOverRight(Node<Key> parent, Node<Key> node, int leftHeight, Node<Key> right, Node<Key> rightLeft, int rightRightHeight, int rightLeftRightHeight){
+        long nodeVersion = node.version;
+        long rightVersion = right.version;
+        Node<Key> parentLeft = parent.left;
+        Node<Key> rightLeftLeft = rightLeft.left;
+        Node<Key> rightLeftRight = rightLeft.right;
+        int rightLeftLeftHeight = height(rightLeftLeft);
+        node.version = beginChange(nodeVersion);
+        right.version = beginChange(rightVersion);
+
+        node.right = rightLeftLeft;
+        if (rightLeftLeft != null){
+            rightLeftLeft.parent = node;
+        }
+        right.left = rightLeftRight;
+        if (rightLeftRight != null){
+            rightLeftRight.parent = right;
+        }
+        rightLeft.right = right;
+        right.parent = rightLeft;
+        rightLeft.left = node;
+        node.parent = rightLeft;
+        if (parentLeft == node){
+            parent.left = rightLeft;
+        } else {
+            parent.right = rightLeft;
+        }
+        rightLeft.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+        node.height = nodeHeight;
+        int rightHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+        right.height = rightHeight;
+        rightLeft.height = 1 + Math.max(nodeHeight, rightHeight);
+        node.version = endChange(nodeVersion);
+        right.version = endChange(rightVersion);
+
+        int nodeBalance = rightLeftLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1){
+            return node;
+        }
+        if ((rightLeftLeft == null || leftHeight == 0) && !node.present){
+            return node;
+        }
+        int rightLeftBalance = rightHeight - nodeHeight;
+        if (rightLeftBalance < -1 || rightLeftBalance > 1){
+            return rightLeft;
+        }
+        return fixHeight(parent);
+    }
+
+    private static long beginChange(long version){
+        return version | SHRINKING;
+    }
+
+    private static long endChange(long version){
+        return (version & ~(SHRINKING | UNLINKED)) + CHANGE_INCREMENT;
+    }
+
+    /**
+     * @return  Least Key, or null if the tree is empty.
+     */
+    public Key getMin(){
+        List<Key> first = collect(null, true, null, false, 1);
+        return first.isEmpty() ? null : first.get(0);
+    }
+
+    /**
+     * @return  Greatest Key, or null if the tree is empty.
+     */
+    public Key getMax(){
+        List<Key> last = collect(null, true, null, true, 1);
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    /**
+     * Weakly consistent; see the class comment.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public List<Key> getRange(Key start, Key end){
+        if (comparator.compare(start, end) > 0){
+            return new ArrayList<>();
+        }
+        return collect(start, true, end, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Weakly consistent; see the class comment.
+     * @return  List of Keys in ascending order.
+     */
+    public List<Key> toAscendingList(){
+        return collect(null, true, null, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Weakly consistent; see the class comment.  Keys are fetched a batch at a time, each batch by a fresh search.
+     * @return  Iterator over Keys in ascending order.
+     */
+    @Override
+    public Iterator<Key> iterator(){
+        return new Iterator<Key>(){
+            private List<Key> batch = collect(null, true, null, false, ITERATOR_BATCH);
+            private int index = 0;
+
+            @Override
+            public boolean hasNext(){
+                if (index == batch.size() && batch.size() == ITERATOR_BATCH){
+                    batch = collect(batch.get(index - 1), false, null, false, ITERATOR_BATCH);
+                    index = 0;
+                }
+                return index < batch.size();
+            }
+
+            @Override
+            public Key next(){
+                if (!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return batch.get(index++);
+            }
+        };
+    }
+
+    /**
+     * Collect present Keys in order, each at most once, by an in-order walk validated hand over hand as searches are.
+     * Where a rotation invalidates part of the walk, it resumes from the last valid node, beyond the last Key collected.
+     * @param from          Bound at which to start; null for none.
+     * @param inclusive     Whether a Key equal to the starting bound is collected.
+     * @param to            Inclusive bound at which to stop; null for none.
+     * @param descending    Whether to walk in descending order, starting from the upper bound.
+     * @param limit         Maximum number of Keys to collect.
+     * @return              Keys collected.
+     */
+    private List<Key> collect(Key from, boolean inclusive, Key to, boolean descending, int limit){
+        Walk walk = new Walk(from, inclusive, to, descending, limit);
+        while (true){
+            Node<Key> root = rootHolder.right;
+            if (root == null){
+                return walk.keys;
+            }
+            long rootVersion = root.version;
+            if ((rootVersion & (SHRINKING | UNLINKED)) != 0){
+                root.waitUntilNotChanging();
+            } else if (root == rootHolder.right){
+                if (walk(root, rootVersion, walk) != RESTART){
+                    return walk.keys;
+                }
+            }
+        }
+    }
+
+    /**
+     * Walk the subtree of a node whose version was read as given.
+     * @return  CONTINUE to walk on past the subtree, DONE once enough is collected, or RESTART if the version changed.
+     */
+    private int walk(Node<Key> node, long nodeVersion, Walk walk){
+        int near = walk.descending ? 1 : -1;
+        boolean pastFrom = walk.from == null || walk.compare(node.key, walk.from) > (walk.inclusive ? -1 : 0);
+        boolean beforeTo = walk.to == null || walk.compare(node.key, walk.to) <= 0;
+        if (pastFrom){
+            int outcome = walkChild(node, nodeVersion, near, walk);
+            if (outcome != CONTINUE){
+                return outcome;
+            }
+            if (!beforeTo){
+                return DONE;
+            }
+            if (node.present){
+                if (node.version != nodeVersion){
+                    return RESTART;
+                }
+                walk.add(node.key);
+                if (walk.keys.size() >= walk.limit){
+                    return DONE;
+                }
+            }
+        }
+        return walkChild(node, nodeVersion, -near, walk);
+    }
+
+    private int walkChild(Node<Key> node, long nodeVersion, int direction, Walk walk){
+        while (true){
+            Node<Key> child = node.child(direction);
+            if (node.version != nodeVersion){
+                return RESTART;
+            }
+            if (child == null){
+                return CONTINUE;
+            }
+            long childVersion = child.version;
+            if ((childVersion & (SHRINKING | UNLINKED)) != 0){
+                child.waitUntilNotChanging();
+            } else if (child == node.child(direction)){
+                if (node.version != nodeVersion){
+                    return RESTART;
+                }
+                int outcome = walk(child, childVersion, walk);
+                if (outcome != RESTART){
+                    return outcome;
+                }
+            }
+        }
+    }
+
+    /**
+     * Validate that the tree maintains its invariants; only meaningful while no writer is active.
+     * @throws InvalidSearchTreeException   Tree violates invariants.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        int[] count = new int[1];
+        validate(rootHolder.right, rootHolder, null, null, count);
+        if (count[0] != size()){
+            throw new InvalidSearchTreeException(String.format("Counted %d present Keys, size %d", count[0], size()));
+        }
+    }
+
+    private int validate(Node<Key> node, Node<Key> parent, Key low, Key high, int[] count) throws InvalidSearchTreeException {
+        if (node == null){
+            return 0;
+        }
+        if (node.parent != parent){
+            throw new InvalidSearchTreeException("Parent link broken at " + node.key);
+        }
+        if ((node.version & (SHRINKING | UNLINKED)) != 0){
+            throw new InvalidSearchTreeException("Linked node marked unlinked or changing: " + node.key);
+        }
+        if ((low != null && comparator.compare(node.key, low) <= 0) || (high != null && comparator.compare(node.key, high) >= 0)){
+            throw new InvalidSearchTreeException("Key out of order: " + node.key);
+        }
+        if (!node.present && (node.left == null || node.right == null)){
+            throw new InvalidSearchTreeException("Routing node without two children: " + node.key);
+        }
+        int leftHeight = validate(node.left, node, low, node.key, count);
+        int rightHeight = validate(node.right, node, node.key, high, count);
+        if (Math.abs(leftHeight - rightHeight) > 1){
+            throw new InvalidSearchTreeException("Unbalanced at " + node.key);
+        }
+        if (node.height != 1 + Math.max(leftHeight, rightHeight)){
+            throw new InvalidSearchTreeException("Incorrect height at " + node.key);
+        }
+        if (node.present){
+            count[0]++;
+        }
+        return node.height;
+    }
+
+    /**
+     * Node of the tree.  Key is fixed; every other field is read without locks, and written only under the node's lock,
+     * or for links, under the lock of the node they are written into.
+     */
+    private static final class Node<Key> {
+        final Key key;
+        volatile boolean present;
+        volatile int height;
+        volatile long version;
+        volatile Node<Key> parent;
+        volatile Node<Key> left;
+        volatile Node<Key> right;
+
+        Node(Key key, boolean present, Node<Key> parent){
+            this.key = key;
+            this.present = present;
+            this.height = 1;
+            this.parent = parent;
+        }
+
+        /**
+         * @param direction     Negative for the left child, positive for the right.
+         */
+        Node<Key> child(int direction){
+            return direction < 0 ? left : right;
+        }
+
+        void setChild(int direction, Node<Key> child){
+            if (direction < 0){
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+
+        /**
+         * Spin briefly while a rotation shrinks this node, then wait on its lock, which the rotating thread holds.
+         */
+        void waitUntilNotChanging(){
+            long version = this.version;
+            if ((version & SHRINKING) != 0){
+                int spins = 0;
+                while (this.version == version && spins < SPIN_COUNT){
+                    spins++;
+                }
+                if (spins == SPIN_COUNT){
+                    synchronized (this){
+                        // Acquired only once the rotation is complete.
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one collect: bounds relative to the direction of the walk, and the Keys collected so far.
+     * Once a Key is collected, the starting bound moves past it, so a resumed walk never collects it twice.
+     */
+    private final class Walk {
+        Key from;
+        boolean inclusive;
+        final Key to;
+        final boolean descending;
+        final int limit;
+        final List<Key> keys = new ArrayList<>();
+
+        Walk(Key from, boolean inclusive, Key to, boolean descending, int limit){
+            this.from = from;
+            this.inclusive = inclusive;
+            this.to = to;
+            this.descending = descending;
+            this.limit = limit;
+        }
+
+        /**
+         * Compare in the direction of the walk.
+         */
+        int compare(Key a, Key b){
+            int comparison = comparator.compare(a, b);
+            return descending ? -comparison : comparison;
+        }
+
+        void add(Key key){
+            keys.add(key);
+            from = key;
+            inclusive = false;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.eliottgray.searchtrees;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe holder of the current version of a persistent Tree.
+ *
+ * Readers take the current Tree with a single volatile read, and query it for as long as they like;
+ * it never changes beneath them.  Writers apply an update to the current Tree and publish the result by compare-and-set;
+ * if another writer published first, the update is retried against the newer Tree, after a randomized,
+ * exponentially growing pause which spreads out writers contending for the root.
+ *
+ * Each failed attempt discards the Tree it built, and with it the path of nodes copied to build it;
+ * the counts of retries and of nodes so wasted show how contended the holder is.
+ */
+public final class ConcurrentTreeRef<Key extends Comparable<Key>> {
+
+    /** Default bounds on the pause after a failed compare-and-set, in nanoseconds. */
+    private static final long DEFAULT_MIN_BACKOFF_NANOS = 1 << 7;
+    private static final long DEFAULT_MAX_BACKOFF_NANOS = 1 << 17;
+
+    private final AtomicReference<Tree<Key>> current;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder wastedNodes = new LongAdder();
+
+    /**
+     * @param initial   Tree to hold initially.
+     */
+    public ConcurrentTreeRef(Tree<Key> initial){
+        this(initial, DEFAULT_MIN_BACKOFF_NANOS, DEFAULT_MAX_BACKOFF_NANOS);
+    }
+
+    /**
+     * @param initial           Tree to hold initially.
+     * @param minBackoffNanos   Bound on the pause after the first failed compare-and-set of an update.
+     * @param maxBackoffNanos   Bound on the pause after any failed compare-and-set; the bound doubles with each failure up to this.
+     */
+    public ConcurrentTreeRef(Tree<Key> initial, long minBackoffNanos, long maxBackoffNanos){
+        if (initial == null){
+            throw new NullPointerException("Initial tree");
+        }
+        if (minBackoffNanos < 0 || maxBackoffNanos < minBackoffNanos){
+            throw new IllegalArgumentException(String.format("Backoff bounds %d, %d", minBackoffNanos, maxBackoffNanos));
+        }
+        this.current = new AtomicReference<>(initial);
+        this.minBackoffNanos = minBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * Wait-free; the returned Tree is immutable, so is a consistent snapshot however long it is held.
+     * @return  Current Tree.
+     */
+    public Tree<Key> get(){
+        return current.get();
+    }
+
+    /**
+     * @param key   Key to insert.
+     * @return      Tree published by the insert, containing the Key.
+     */
+    public Tree<Key> insert(Key key){
+        return update(tree -> tree.insert(key));
+    }
+
+    /**
+     * @param key   Key to delete.
+     * @return      Tree published by the delete, not containing the Key.
+     */
+    public Tree<Key> delete(Key key){
+        return update(tree -> tree.delete(key));
+    }
+
+    /**
+     * Apply an update atomically, retrying against the newer Tree whenever another writer publishes first.
+     * The function may be applied several times, so must be free of side effects.
+     * An update which returns the Tree it was given publishes nothing, and does not count as a commit.
+     * @param function  Update, returning the updated Tree.
+     * @return          Tree published by the update, or the Tree it left unchanged.
+     */
+    public Tree<Key> update(UnaryOperator<Tree<Key>> function){
+        long backoff = minBackoffNanos;
+        while (true){
+            Tree<Key> expected = current.get();
+            Tree<Key> updated = function.apply(expected);
+            if (updated == expected){
+                return expected;
+            }
+            if (current.compareAndSet(expected, updated)){
+                commits.increment();
+                return updated;
+            }
+            retries.increment();
+            Node<Key> root = updated.getRoot();
+            wastedNodes.add(root == null ? 0 : root.getHeight());
+            if (backoff > 0){
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(backoff) + 1);
+                backoff = Math.min(maxBackoffNanos, backoff << 1);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * @return  Number of updates published.
+     */
+    public long getCommitCount(){
+        return commits.sum();
+    }
+
+    /**
+     * @return  Number of failed compare-and-sets, each followed by a retry.
+     */
+    public long getRetryCount(){
+        return retries.sum();
+    }
+
+    /**
+     * Each failed attempt discards the path of nodes it copied; each path is counted as the height of the discarded Tree,
+     * the length of the longest path from its root.
+     * @return  Estimated number of nodes copied by failed attempts, and discarded.
+     */
+    public long getWastedNodeCount(){
+        return wastedNodes.sum();
+    }
+
+    /**
+     * Zero the counts of commits, retries and wasted nodes.
+     */
+    public void resetMetrics(){
+        commits.reset();
+        retries.reset();
+        wastedNodes.reset();
+    }
+}
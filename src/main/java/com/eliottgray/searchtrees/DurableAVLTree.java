@@ -0,0 +1,557 @@
+package com.eliottgray.searchtrees;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent AVLTree which survives restarts: every update is logged before it is acknowledged,
+ * and the log is periodically truncated by a snapshot of the whole tree.
+ *
+ * Each insert or delete is appended to a write-ahead log, and returns once the log has been forced to storage.
+ * Writers arriving while a force is in progress wait for the next one, so a single force commits the whole group.
+ * An update becomes visible through {@link #current} only once it is durable.
+ * If an append fails, the log is truncated back to the last whole record; if that, or a force, fails,
+ * the tree rejects every further update, since the log can no longer be trusted to match what was acknowledged.
+ *
+ * A snapshot captures the current root, which is immutable, and writes it with {@link BinarySearchTree#writeSnapshot}
+ * while writers carry on; only the switch to a new log segment, at the moment of capture, holds up writers.
+ * Once the snapshot is complete, older snapshots and log segments are deleted.
+ *
+ * On open, the latest complete snapshot is loaded, and the log segments which follow it are replayed.
+ * A torn record at the end of the last segment, left by a crash during an append, is discarded.
+ *
+ *      Files within the directory, numbered by the count of updates logged before them:
+ *      snapshot-N  Keys after N updates, as written by writeSnapshot.
+ *      wal-N       Updates N + 1 onwards; each record is an operation byte, the Key, then a CRC32 of both.
+ */
+public final class DurableAVLTree<Key extends Comparable<Key>> implements Closeable {
+
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /** Default number of updates logged between automatic snapshots. */
+    private static final long DEFAULT_UPDATES_PER_SNAPSHOT = 1 << 20;
+
+    private final Path directory;
+    private final KeyCodec<Key> codec;
+    private final int recordWidth;
+    private final long updatesPerSnapshot;
+
+    // Guards the log channel, the tree of every update logged, and the count of updates logged.
+    private final Object writeLock = new Object();
+    private final ByteBuffer record;
+    private final CRC32 checksum = new CRC32();
+    private FileChannel log;
+    private long segmentStart;
+    private AVLTree<Key> latest;
+    private long logged;
+    private long lastSnapshot;
+    private boolean closed;
+    private volatile boolean failed;
+
+    // Tree after every durable update, and the count of updates it holds; guarded by publishLock.
+    private final Object publishLock = new Object();
+    private volatile AVLTree<Key> current;
+    private long published;
+
+    // Guards group commit: which updates are durable, and whether some thread is forcing the log on behalf of others.
+    private final Object syncMonitor = new Object();
+    private long durable;
+    private boolean syncing;
+
+    private final Object snapshotLock = new Object();
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+
+    private DurableAVLTree(Path directory, KeyCodec<Key> codec, long updatesPerSnapshot, AVLTree<Key> tree, long logged, long lastSnapshot, long segmentStart, FileChannel log){
+        this.directory = directory;
+        this.codec = codec;
+        this.recordWidth = 1 + codec.width() + Integer.BYTES;
+        this.record = ByteBuffer.allocate(recordWidth);
+        this.updatesPerSnapshot = updatesPerSnapshot;
+        this.latest = tree;
+        this.current = tree;
+        this.published = logged;
+        this.logged = logged;
+        this.durable = logged;
+        this.lastSnapshot = lastSnapshot;
+        this.log = log;
+        this.segmentStart = segmentStart;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DurableAVLTree snapshot " + directory);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open, or create, a durable tree ordered by the default compareTo method of Key.
+     * @param directory     Directory holding the snapshots and log; created if absent.
+     * @param codec         Encoding of Keys; must order Keys by their compareTo method.
+     * @return              Tree, recovered to its last durable update.
+     * @throws IOException  Failure to read or create the files.
+     */
+    public static <Key extends Comparable<Key>> DurableAVLTree<Key> open(Path directory, KeyCodec<Key> codec) throws IOException {
+        return open(directory, codec, Comparator.naturalOrder(), DEFAULT_UPDATES_PER_SNAPSHOT);
+    }
+
+    /**
+     * Open, or create, a durable tree.
+     * @param directory             Directory holding the snapshots and log; created if absent.
+     * @param codec                 Encoding of Keys; must order Keys as the comparator does.
+     * @param comparator            Comparison function with which to override default compareTo of Key.
+     * @param updatesPerSnapshot    Number of updates logged before a snapshot is taken in the background.
+     * @return                      Tree, recovered to its last durable update.
+     * @throws IOException          Failure to read or create the files, or a log segment other than the last is corrupt.
+     */
+    public static <Key extends Comparable<Key>> DurableAVLTree<Key> open(Path directory, KeyCodec<Key> codec, Comparator<Key> comparator, long updatesPerSnapshot) throws IOException {
+        if (updatesPerSnapshot <= 0){
+            throw new IllegalArgumentException("Updates per snapshot must be positive: " + updatesPerSnapshot);
+        }
+        Files.createDirectories(directory);
+        List<Long> snapshots = new ArrayList<>();
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)){
+                    Files.delete(file);
+                } else if (name.startsWith(SNAPSHOT_PREFIX)){
+                    snapshots.add(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length())));
+                } else if (name.startsWith(LOG_PREFIX)){
+                    segments.add(Long.parseLong(name.substring(LOG_PREFIX.length())));
+                }
+            }
+        }
+        Collections.sort(snapshots, Collections.reverseOrder());
+        Collections.sort(segments);
+
+        // Start from the latest snapshot which can be read, or from empty.
+        AVLTree<Key> tree = new AVLTree<>(comparator);
+        long base = 0;
+        for (long snapshot : snapshots){
+            try {
+                MappedTreeSnapshot<Key> mapped = MappedTreeSnapshot.open(snapshotPath(directory, snapshot), codec);
+                tree = AVLTree.fromSorted(mapped, comparator);
+                base = snapshot;
+                break;
+            } catch (IOException e){
+                // Incomplete or corrupt; an older snapshot, and the log since, still hold the updates.
+            }
+        }
+
+        int recordWidth = 1 + codec.width() + Integer.BYTES;
+        long logged = base;
+        Long lastSegment = null;
+        for (int index = 0; index < segments.size(); index++){
+            long segment = segments.get(index);
+            if (segment < base){
+                continue;
+            }
+            if (segment != logged){
+                throw new IOException(String.format("Log segment %d does not follow update %d", segment, logged));
+            }
+            boolean last = index == segments.size() - 1;
+            Replay<Key> replay = replay(logPath(directory, segment), codec, recordWidth, tree);
+            if (replay.torn && !last){
+                throw new IOException("Corrupt log segment " + logPath(directory, segment));
+            }
+            if (replay.torn){
+                try (FileChannel channel = FileChannel.open(logPath(directory, segment), StandardOpenOption.WRITE)){
+                    channel.truncate(replay.count * recordWidth);
+                    channel.force(true);
+                }
+            }
+            tree = replay.tree;
+            logged += replay.count;
+            lastSegment = segment;
+        }
+
+        FileChannel log;
+        if (lastSegment == null){
+            lastSegment = logged;
+            log = FileChannel.open(logPath(directory, lastSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            MappedTreeSnapshot.forceDirectory(directory);
+        } else {
+            log = FileChannel.open(logPath(directory, lastSegment), StandardOpenOption.WRITE);
+        }
+        log.position(log.size());
+        return new DurableAVLTree<>(directory, codec, updatesPerSnapshot, tree, logged, base, lastSegment, log);
+    }
+
+    /**
+     * @return  Tree after every update which is durable so far; an update still awaiting its force is not yet included.
+     */
+    public AVLTree<Key> current(){
+        return current;
+    }
+
+    /**
+     * @return  Number of updates logged since the directory was created.
+     */
+    public long getSequence(){
+        synchronized (writeLock){
+            return logged;
+        }
+    }
+
+    /**
+     * Insert a Key, returning once the insert is durable.
+     * @param key   Key to insert.
+     * @return      Tree containing the inserted Key, and every update logged before it.
+     * @throws IOException  Failure to write or force the log, or an earlier such failure.
+     */
+    public AVLTree<Key> insert(Key key) throws IOException {
+        return update(INSERT, key);
+    }
+
+    /**
+     * Delete a Key, returning once the delete is durable.
+     * @param key   Key to delete.
+     * @return      Tree without the deleted Key, after every update logged before it.
+     * @throws IOException  Failure to write or force the log, or an earlier such failure.
+     */
+    public AVLTree<Key> delete(Key key) throws IOException {
+        return update(DELETE, key);
+    }
+
+    private AVLTree<Key> update(byte operation, Key key) throws IOException {
+        AVLTree<Key> updated;
+        long sequence;
+        synchronized (writeLock){
+            if (closed){
+                throw new IllegalStateException("Tree is closed");
+            }
+            checkNotFailed();
+            encode(operation, key);
+            append();
+            updated = operation == INSERT ? latest.insert(key) : latest.delete(key);
+            latest = updated;
+            sequence = ++logged;
+        }
+        awaitDurable(sequence);
+        publish(updated, sequence);
+        if (sequence - lastSnapshotSequence() >= updatesPerSnapshot && snapshotPending.compareAndSet(false, true)){
+            try {
+                snapshotExecutor.execute(this::backgroundSnapshot);
+            } catch (RejectedExecutionException e){
+                // Closing; the log still holds every update.
+                snapshotPending.set(false);
+            }
+        }
+        return updated;
+    }
+
+    private void checkNotFailed() throws IOException {
+        if (failed){
+            throw new IOException("Log failed to write or force; reopen the tree to recover");
+        }
+    }
+
+    /**
+     * Append the encoded record; on failure, truncate the log back to where the record began,
+     * so that no later record lands out of alignment.  Called with writeLock held.
+     */
+    private void append() throws IOException {
+        long start = log.position();
+        try {
+            while (record.hasRemaining()){
+                log.write(record);
+            }
+        } catch (IOException e){
+            try {
+                log.truncate(start);
+                log.position(start);
+            } catch (IOException truncateFailure){
+                failed = true;
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Make the tree of a durable update visible, unless a later update is already visible; every update before
+     * a durable one is itself durable, so the later tree already holds this update.
+     */
+    private void publish(AVLTree<Key> updated, long sequence){
+        synchronized (publishLock){
+            if (sequence > published){
+                current = updated;
+                published = sequence;
+            }
+        }
+    }
+
+    private void encode(byte operation, Key key){
+        record.clear();
+        record.put(0, operation);
+        codec.write(record, 1, key);
+        checksum.reset();
+        checksum.update(record.array(), 0, recordWidth - Integer.BYTES);
+        record.putInt(recordWidth - Integer.BYTES, (int) checksum.getValue());
+    }
+
+    /**
+     * Wait until the given update is durable; if no other thread is forcing the log, force it for every waiting writer.
+     */
+    private void awaitDurable(long sequence) throws IOException {
+        synchronized (syncMonitor){
+            while (durable < sequence && syncing){
+                waitForSync();
+            }
+            if (durable >= sequence){
+                return;
+            }
+            // A failed force leaves unknown which records reached storage; none may be acknowledged after it.
+            checkNotFailed();
+            syncing = true;
+        }
+        long target;
+        FileChannel channel;
+        synchronized (writeLock){
+            target = logged;
+            channel = log;
+        }
+        boolean forced = false;
+        try {
+            channel.force(false);
+            forced = true;
+        } finally {
+            if (!forced){
+                failed = true;
+            }
+            finishSync(forced ? target : -1);
+        }
+    }
+
+    private void waitForSync() throws InterruptedIOException {
+        try {
+            syncMonitor.wait();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted awaiting log force");
+        }
+    }
+
+    private void finishSync(long target){
+        synchronized (syncMonitor){
+            syncing = false;
+            durable = Math.max(durable, target);
+            syncMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Snapshot the current tree, then delete the snapshots and log segments it makes obsolete.
+     * Writers are held up only while the log moves to a new segment; the snapshot itself is written concurrently.
+     * @return      Number of updates captured by the snapshot.
+     * @throws IOException  Failure to write the snapshot or start the new log segment, or an earlier log failure.
+     */
+    public long snapshot() throws IOException {
+        synchronized (snapshotLock){
+            AVLTree<Key> captured;
+            long sequence = -1;
+
+            // Take the sync role, so that no force runs on a segment as it is closed.
+            synchronized (syncMonitor){
+                while (syncing){
+                    waitForSync();
+                }
+                syncing = true;
+            }
+            boolean forced = false;
+            try {
+                synchronized (writeLock){
+                    if (closed){
+                        throw new IllegalStateException("Tree is closed");
+                    }
+                    checkNotFailed();
+                    captured = latest;
+                    sequence = logged;
+                    if (sequence == lastSnapshot){
+                        return sequence;
+                    }
+                    // A failed snapshot may already have started the segment.
+                    if (segmentStart != sequence){
+                        FileChannel next = FileChannel.open(logPath(directory, sequence), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                        MappedTreeSnapshot.forceDirectory(directory);
+                        try {
+                            log.force(false);
+                        } catch (IOException e){
+                            failed = true;
+                            next.close();
+                            throw e;
+                        }
+                        log.close();
+                        log = next;
+                        segmentStart = sequence;
+                    }
+                }
+                forced = true;
+            } finally {
+                finishSync(forced ? sequence : -1);
+            }
+
+            Path temporary = directory.resolve(SNAPSHOT_PREFIX + name(sequence) + TEMPORARY_SUFFIX);
+            captured.writeSnapshot(temporary, codec);
+            try {
+                Files.move(temporary, snapshotPath(directory, sequence), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temporary, snapshotPath(directory, sequence), StandardCopyOption.REPLACE_EXISTING);
+            }
+            // The new segment and snapshot must both be reachable after a crash before the files they replace are gone.
+            MappedTreeSnapshot.forceDirectory(directory);
+            synchronized (writeLock){
+                lastSnapshot = sequence;
+            }
+            deleteObsolete(sequence);
+            return sequence;
+        }
+    }
+
+    private void backgroundSnapshot(){
+        try {
+            snapshot();
+        } catch (IOException | IllegalStateException e){
+            // The log still holds every update; the next trigger will try again.
+        } finally {
+            snapshotPending.set(false);
+        }
+    }
+
+    private long lastSnapshotSequence(){
+        synchronized (writeLock){
+            return lastSnapshot;
+        }
+    }
+
+    private void deleteObsolete(long sequence) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)){
+                    continue;
+                }
+                if ((name.startsWith(SNAPSHOT_PREFIX) && Long.parseLong(name.substring(SNAPSHOT_PREFIX.length())) < sequence)
+                        || (name.startsWith(LOG_PREFIX) && Long.parseLong(name.substring(LOG_PREFIX.length())) < sequence)){
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for any snapshot in progress, then close the log; every acknowledged update is already durable.
+     * @throws IOException  Failure to close the log.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        synchronized (snapshotLock){
+            synchronized (writeLock){
+                if (!closed){
+                    closed = true;
+                    log.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Result of replaying one log segment.
+     */
+    private static final class Replay<Key extends Comparable<Key>> {
+        final AVLTree<Key> tree;
+        final long count;
+        final boolean torn;
+
+        Replay(AVLTree<Key> tree, long count, boolean torn){
+            this.tree = tree;
+            this.count = count;
+            this.torn = torn;
+        }
+    }
+
+    /**
+     * Apply every whole, intact record of a segment, stopping at the first which is short or fails its checksum.
+     */
+    private static <Key extends Comparable<Key>> Replay<Key> replay(Path path, KeyCodec<Key> codec, int recordWidth, AVLTree<Key> tree) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(recordWidth);
+        CRC32 checksum = new CRC32();
+        long count = 0;
+        TransientAVLTree<Key> replaying = tree.asTransient();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ))))){
+            while (true){
+                try {
+                    in.readFully(record.array());
+                } catch (EOFException e){
+                    // A partial record is torn; none at all is the clean end of the segment.
+                    return new Replay<>(replaying.persistent(), count, Files.size(path) != count * recordWidth);
+                }
+                checksum.reset();
+                checksum.update(record.array(), 0, recordWidth - Integer.BYTES);
+                if ((int) checksum.getValue() != record.getInt(recordWidth - Integer.BYTES)){
+                    return new Replay<>(replaying.persistent(), count, true);
+                }
+                byte operation = record.get(0);
+                Key key = codec.read(record, 1);
+                if (operation == INSERT){
+                    replaying.insert(key);
+                } else if (operation == DELETE){
+                    replaying.delete(key);
+                } else {
+                    return new Replay<>(replaying.persistent(), count, true);
+                }
+                count++;
+            }
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long sequence){
+        return directory.resolve(SNAPSHOT_PREFIX + name(sequence));
+    }
+
+    private static Path logPath(Path directory, long sequence){
+        return directory.resolve(LOG_PREFIX + name(sequence));
+    }
+
+    /**
+     * Zero-padded, so that files list in order.
+     */
+    private static String name(long sequence){
+        return String.format("%020d", sequence);
+    }
+}
@@ -0,0 +1,75 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A node holding a Value alongside its Key, so that a single lookup finds both.
+ *
+ * Rebalancing copies nodes through {@link #withChildren}, so the Value travels with its Key through every rotation.
+ * Like every other persistent node, an EntryNode is never modified after construction.
+ */
+final class EntryNode<Key extends Comparable<Key>, Value> extends BinarySearchNode<Key> implements Map.Entry<Key, Value> {
+
+    final Value value;
+
+    /**
+     * Construct new leaf node, with no children.
+     * @param key       Comparable Key for node.
+     * @param value     Value associated with the Key.
+     */
+    EntryNode(Key key, Value value){
+        super(key);
+        this.value = value;
+    }
+
+    /**
+     * Construct replacement root node, with existing children.
+     * @param key       Comparable Key for node.
+     * @param value     Value associated with the Key.
+     * @param left      Existing left child.
+     * @param right     Existing right child.
+     */
+    EntryNode(Key key, Value value, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        super(key, left, right);
+        this.value = value;
+    }
+
+    @Override
+    BinarySearchNode<Key> withChildren(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        return new EntryNode<>(key, value, left, right);
+    }
+
+    @Override
+    public Key getKey(){ return key; }
+
+    @Override
+    public Value getValue(){ return value; }
+
+    /**
+     * Entries are immutable; use {@link AVLTreeMap#put} to obtain a map with a new Value.
+     */
+    @Override
+    public Value setValue(Value value){
+        throw new UnsupportedOperationException("Entries of a persistent map are immutable");
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (!(other instanceof Map.Entry)){
+            return false;
+        }
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+        return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hashCode(key) ^ Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString(){
+        return key + "=" + value;
+    }
+}
@@ -0,0 +1,407 @@
+package com.eliottgray.searchtrees;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Persistent AVL tree of primitive int Keys.
+ *
+ * Behaves as an AVLTree of Integer, but each node holds its key directly, and keys are compared inline;
+ * no Integer is allocated per Key, and no comparison dereferences one or calls through a Comparator.
+ * Keys are always in natural order.
+ */
+public final class IntAVLTree {
+
+    final IntAVLNode root;
+
+    /**
+     * Empty tree.
+     */
+    public IntAVLTree(){
+        this(null);
+    }
+
+    private IntAVLTree(IntAVLNode root){
+        this.root = root;
+    }
+
+    /**
+     * Build a perfectly balanced tree from Keys already in ascending order, in O(n) time and with one node per Key.
+     * The input must be strictly ascending, or the tree will be invalid.
+     * @param keys      Distinct Keys, in ascending order.
+     * @return          Tree containing the given Keys.
+     */
+    public static IntAVLTree fromSortedArray(int[] keys){
+        return new IntAVLTree(buildBalanced(keys, 0, keys.length));
+    }
+
+    private static IntAVLNode buildBalanced(int[] keys, int start, int end){
+        if (start == end){
+            return null;
+        }
+        int middle = (start + end - 1) >>> 1;
+        return new IntAVLNode(keys[middle], buildBalanced(keys, start, middle), buildBalanced(keys, middle + 1, end));
+    }
+
+    /**
+     * @return  Whether the tree is empty or not.
+     */
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    /**
+     * @return  Number of Keys within the tree.
+     */
+    public int size(){
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(int key){
+        IntAVLNode current = root;
+        while (current != null){
+            if (key < current.key){
+                current = current.left;
+            } else if (key > current.key){
+                current = current.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert a new Key into the tree.
+     * If the Key is already contained, the returned tree will be the same object as the original.
+     * @param key   Key to insert.
+     * @return      Updated tree.
+     */
+    public IntAVLTree insert(int key){
+        IntAVLNode newRoot = insert(root, key);
+        return newRoot == root ? this : new IntAVLTree(newRoot);
+    }
+
+    private static IntAVLNode insert(IntAVLNode current, int key){
+        if (current == null){
+            return new IntAVLNode(key, null, null);
+        }
+        if (key < current.key){
+            IntAVLNode newLeft = insert(current.left, key);
+            return newLeft == current.left ? current : rebalance(current.key, newLeft, current.right);
+        } else if (key > current.key){
+            IntAVLNode newRight = insert(current.right, key);
+            return newRight == current.right ? current : rebalance(current.key, current.left, newRight);
+        } else {
+            return current;
+        }
+    }
+
+    /**
+     * Delete a Key from the tree.
+     * If the Key is not contained, the returned tree will be the same object as the original.
+     * @param key   Key to delete.
+     * @return      Updated tree.
+     */
+    public IntAVLTree delete(int key){
+        IntAVLNode newRoot = delete(root, key);
+        return newRoot == root ? this : new IntAVLTree(newRoot);
+    }
+
+    private static IntAVLNode delete(IntAVLNode current, int key){
+        if (current == null){
+            return null;
+        }
+        if (key < current.key){
+            IntAVLNode newLeft = delete(current.left, key);
+            return newLeft == current.left ? current : rebalance(current.key, newLeft, current.right);
+        } else if (key > current.key){
+            IntAVLNode newRight = delete(current.right, key);
+            return newRight == current.right ? current : rebalance(current.key, current.left, newRight);
+        } else if (current.left == null){
+            return current.right;
+        } else if (current.right == null){
+            return current.left;
+        } else if (current.getBalanceFactor() > -1){
+            // Two children; replace from the higher subtree, as AVLTree does, so that no rotation is needed here.
+            int successor = min(current.right).key;
+            return rebalance(successor, current.left, delete(current.right, successor));
+        } else {
+            int predecessor = max(current.left).key;
+            return rebalance(predecessor, delete(current.left, predecessor), current.right);
+        }
+    }
+
+    /**
+     * Build a node from children whose heights differ by at most two, rotating once or twice if they differ by two.
+     * The rotated nodes are built directly, rather than built and then rotated.
+     */
+    private static IntAVLNode rebalance(int key, IntAVLNode left, IntAVLNode right){
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1){
+            if (height(left.right) > height(left.left)){
+                IntAVLNode pivot = left.right;
+                return new IntAVLNode(pivot.key, new IntAVLNode(left.key, left.left, pivot.left), new IntAVLNode(key, pivot.right, right));
+            }
+            return new IntAVLNode(left.key, left.left, new IntAVLNode(key, left.right, right));
+        } else if (rightHeight > leftHeight + 1){
+            if (height(right.left) > height(right.right)){
+                IntAVLNode pivot = right.left;
+                return new IntAVLNode(pivot.key, new IntAVLNode(key, left, pivot.left), new IntAVLNode(right.key, pivot.right, right.right));
+            }
+            return new IntAVLNode(right.key, new IntAVLNode(key, left, right.left), right.right);
+        }
+        return new IntAVLNode(key, left, right);
+    }
+
+    private static int height(IntAVLNode node){
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * @return  Least Key.
+     * @throws NoSuchElementException   Tree is empty.
+     */
+    public int getMin(){
+        if (root == null){
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return min(root).key;
+    }
+
+    /**
+     * @return  Greatest Key.
+     * @throws NoSuchElementException   Tree is empty.
+     */
+    public int getMax(){
+        if (root == null){
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return max(root).key;
+    }
+
+    private static IntAVLNode min(IntAVLNode current){
+        while (current.left != null){
+            current = current.left;
+        }
+        return current;
+    }
+
+    private static IntAVLNode max(IntAVLNode current){
+        while (current.right != null){
+            current = current.right;
+        }
+        return current;
+    }
+
+    /**
+     * Count the Keys less than the given Key, in O(log n), using the size stored in each node.
+     * @param key   Key to rank; need not be contained.
+     * @return      Number of Keys less than the given Key.
+     */
+    public int rank(int key){
+        return countBelow(key, false);
+    }
+
+    /**
+     * Find the Key at the given index in ascending order, in O(log n), using the size stored in each node.
+     * @param index     Zero-based index; 0 selects the minimum Key, size() - 1 the maximum.
+     * @return          Key at that index.
+     * @throws IndexOutOfBoundsException    Index is negative, or not less than size().
+     */
+    public int select(int index){
+        if (index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, size()));
+        }
+        IntAVLNode current = root;
+        while (true){
+            int leftSize = current.left == null ? 0 : current.left.size;
+            if (index < leftSize){
+                current = current.left;
+            } else if (index > leftSize){
+                index -= leftSize + 1;
+                current = current.right;
+            } else {
+                return current.key;
+            }
+        }
+    }
+
+    /**
+     * Count the Keys between the given start and end, inclusive, in O(log n) and without visiting them.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    public int countRange(int start, int end){
+        if (start > end){
+            return 0;
+        }
+        return countBelow(end, true) - countBelow(start, false);
+    }
+
+    private int countBelow(int key, boolean inclusive){
+        int count = 0;
+        IntAVLNode current = root;
+        while (current != null){
+            if (key < current.key){
+                current = current.left;
+            } else {
+                int leftSize = current.left == null ? 0 : current.left.size;
+                if (key == current.key){
+                    return count + leftSize + (inclusive ? 1 : 0);
+                }
+                count += leftSize + 1;
+                current = current.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The result is allocated once, at its exact size, from {@link #countRange}.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public int[] getRange(int start, int end){
+        int[] result = new int[countRange(start, end)];
+        if (result.length > 0){
+            fillRange(root, start, end, result, 0);
+        }
+        return result;
+    }
+
+    /**
+     * @return      Index following the last Key written.
+     */
+    private static int fillRange(IntAVLNode current, int start, int end, int[] result, int index){
+        if (current == null){
+            return index;
+        }
+        if (start < current.key){
+            index = fillRange(current.left, start, end, result, index);
+        }
+        if (start <= current.key && current.key <= end){
+            result[index++] = current.key;
+        }
+        if (current.key < end){
+            index = fillRange(current.right, start, end, result, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return  Every Key, in ascending order.
+     */
+    public int[] toAscendingArray(){
+        int[] result = new int[size()];
+        fillAll(root, result, 0);
+        return result;
+    }
+
+    private static int fillAll(IntAVLNode current, int[] result, int index){
+        if (current == null){
+            return index;
+        }
+        index = fillAll(current.left, result, index);
+        result[index++] = current.key;
+        return fillAll(current.right, result, index);
+    }
+
+    /**
+     * @return  Lazy iterator over Keys in ascending order, which never boxes a Key.
+     */
+    public PrimitiveIterator.OfInt iterator(){
+        return new AscendingIterator(root);
+    }
+
+    /**
+     * @return  Sequential stream of Keys in ascending order.
+     */
+    public IntStream stream(){
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        return StreamSupport.intStream(Spliterators.spliterator(iterator(), size(), characteristics), false);
+    }
+
+    /**
+     * Ensure order, height, size and balance of every node.
+     * @throws InvalidSearchTreeException   Tree is invalid.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        if (root != null){
+            recursiveValidate(root);
+        }
+    }
+
+    private static void recursiveValidate(IntAVLNode current) throws InvalidSearchTreeException{
+        int leftSize = current.left == null ? 0 : current.left.size;
+        int rightSize = current.right == null ? 0 : current.right.size;
+        if (current.size != leftSize + rightSize + 1){
+            throw new InvalidSearchTreeException(String.format("Invalid size for key %d, size %d, left size %d, right size %d", current.key, current.size, leftSize, rightSize));
+        }
+        if (current.height != 1 + Math.max(height(current.left), height(current.right))){
+            throw new InvalidSearchTreeException(String.format("Invalid height for key %d, height %d", current.key, current.height));
+        }
+        if (Math.abs(current.getBalanceFactor()) > 1){
+            throw new InvalidSearchTreeException(String.format("Unbalanced at key %d, balance factor %d", current.key, current.getBalanceFactor()));
+        }
+        if (current.left != null){
+            if (current.left.key >= current.key){
+                throw new InvalidSearchTreeException(String.format("Invalid left key for key %d, left key %d", current.key, current.left.key));
+            }
+            recursiveValidate(current.left);
+        }
+        if (current.right != null){
+            if (current.right.key <= current.key){
+                throw new InvalidSearchTreeException(String.format("Invalid right key for key %d, right key %d", current.key, current.right.key));
+            }
+            recursiveValidate(current.right);
+        }
+    }
+
+    /**
+     * Lazy in-order walk; as BinarySearchTreeIterator, the stack never needs more slots than the height of the root.
+     */
+    private static final class AscendingIterator implements PrimitiveIterator.OfInt {
+
+        private final IntAVLNode[] stack;
+        private int depth;
+
+        AscendingIterator(IntAVLNode root){
+            this.stack = new IntAVLNode[root == null ? 0 : root.height];
+            pushLeftSpine(root);
+        }
+
+        @Override
+        public boolean hasNext(){
+            return depth > 0;
+        }
+
+        @Override
+        public int nextInt(){
+            if (depth == 0){
+                throw new NoSuchElementException();
+            }
+            IntAVLNode current = stack[--depth];
+            pushLeftSpine(current.right);
+            return current.key;
+        }
+
+        private void pushLeftSpine(IntAVLNode current){
+            while (current != null){
+                stack[depth++] = current;
+                current = current.left;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.eliottgray.searchtrees;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary form of a Key, for trees and snapshots which store Keys outside the Java heap.
+ *
+ * Ordering is defined by the codec, and compare reads the stored form directly,
+ * so that a search never has to materialize the Keys it passes on the way down.
+ */
+public interface KeyCodec<Key> {
+
+    /**
+     * @return  Number of bytes occupied by every encoded Key.
+     */
+    int width();
+
+    /**
+     * @param buffer    Buffer to write to; its position is not changed.
+     * @param position  Absolute position of the first byte.
+     * @param key       Key to encode.
+     */
+    void write(ByteBuffer buffer, int position, Key key);
+
+    /**
+     * @param buffer    Buffer to read from; its position is not changed.
+     * @param position  Absolute position of the first byte.
+     * @return          Decoded Key.
+     */
+    Key read(ByteBuffer buffer, int position);
+
+    /**
+     * @param key       Key to compare.
+     * @param buffer    Buffer holding an encoded Key; its position is not changed.
+     * @param position  Absolute position of the first byte of the encoded Key.
+     * @return          Negative, zero or positive, as the Key is less than, equal to or greater than the encoded Key.
+     */
+    int compare(Key key, ByteBuffer buffer, int position);
+
+    /**
+     * @param first     First Key.
+     * @param second    Second Key.
+     * @return          Negative, zero or positive, as the first Key is less than, equal to or greater than the second.
+     */
+    int compare(Key first, Key second);
+
+    /** Signed ints, in natural order. */
+    KeyCodec<Integer> INT = new KeyCodec<Integer>(){
+        @Override
+        public int width(){ return Integer.BYTES; }
+
+        @Override
+        public void write(ByteBuffer buffer, int position, Integer key){ buffer.putInt(position, key); }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int position){ return buffer.getInt(position); }
+
+        @Override
+        public int compare(Integer key, ByteBuffer buffer, int position){ return Integer.compare(key, buffer.getInt(position)); }
+
+        @Override
+        public int compare(Integer first, Integer second){ return Integer.compare(first, second); }
+    };
+
+    /** Signed longs, in natural order. */
+    KeyCodec<Long> LONG = new KeyCodec<Long>(){
+        @Override
+        public int width(){ return Long.BYTES; }
+
+        @Override
+        public void write(ByteBuffer buffer, int position, Long key){ buffer.putLong(position, key); }
+
+        @Override
+        public Long read(ByteBuffer buffer, int position){ return buffer.getLong(position); }
+
+        @Override
+        public int compare(Long key, ByteBuffer buffer, int position){ return Long.compare(key, buffer.getLong(position)); }
+
+        @Override
+        public int compare(Long first, Long second){ return Long.compare(first, second); }
+    };
+
+    /**
+     * Byte arrays of a single fixed length, in unsigned lexicographic order.
+     * @param length    Length of every Key.
+     * @return          Codec for Keys of that length.
+     */
+    static KeyCodec<byte[]> fixedBytes(int length){
+        if (length <= 0){
+            throw new IllegalArgumentException("Key length must be positive: " + length);
+        }
+        return new KeyCodec<byte[]>(){
+            @Override
+            public int width(){ return length; }
+
+            @Override
+            public void write(ByteBuffer buffer, int position, byte[] key){
+                checkLength(key);
+                for (int index = 0; index < length; index++){
+                    buffer.put(position + index, key[index]);
+                }
+            }
+
+            @Override
+            public byte[] read(ByteBuffer buffer, int position){
+                byte[] key = new byte[length];
+                for (int index = 0; index < length; index++){
+                    key[index] = buffer.get(position + index);
+                }
+                return key;
+            }
+
+            @Override
+            public int compare(byte[] key, ByteBuffer buffer, int position){
+                checkLength(key);
+                for (int index = 0; index < length; index++){
+                    int comparison = Integer.compare(key[index] & 0xFF, buffer.get(position + index) & 0xFF);
+                    if (comparison != 0){
+                        return comparison;
+                    }
+                }
+                return 0;
+            }
+
+            @Override
+            public int compare(byte[] first, byte[] second){
+                checkLength(first);
+                checkLength(second);
+                for (int index = 0; index < length; index++){
+                    int comparison = Integer.compare(first[index] & 0xFF, second[index] & 0xFF);
+                    if (comparison != 0){
+                        return comparison;
+                    }
+                }
+                return 0;
+            }
+
+            private void checkLength(byte[] key){
+                if (key.length != length){
+                    throw new IllegalArgumentException(String.format("Key length %d, expected %d", key.length, length));
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.eliottgray.searchtrees;
+
+/**
+ * Node of an LongAVLTree, holding its key as a primitive, so that no Long is allocated or dereferenced.
+ * Never modified after construction.
+ */
+final class LongAVLNode {
+
+    final long key;
+    final int height;
+    final int size;
+    final LongAVLNode left;
+    final LongAVLNode right;
+
+    /**
+     * Construct a node, deriving height and size from the given children.
+     * @param key       Key for node.
+     * @param left      Left child; may be null.
+     * @param right     Right child; may be null.
+     */
+    LongAVLNode(long key, LongAVLNode left, LongAVLNode right){
+        this.key = key;
+        this.left = left;
+        this.right = right;
+        int leftHeight = left == null ? 0 : left.height;
+        int rightHeight = right == null ? 0 : right.height;
+        this.height = 1 + Math.max(leftHeight, rightHeight);
+        this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+    }
+
+    /**
+     * If right tree is greater, balance factor is positive.
+     * If left tree is greater, balance factor is negative.
+     * @return      integer describing the balance factor.
+     */
+    int getBalanceFactor(){
+        return (right == null ? 0 : right.height) - (left == null ? 0 : left.height);
+    }
+}
@@ -0,0 +1,336 @@
+package com.eliottgray.searchtrees;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only tree, answering queries directly against a memory-mapped snapshot file.
+ *
+ * The snapshot holds the Keys of a tree in ascending order, each in the fixed-width form of a KeyCodec;
+ * searches are binary searches over the mapped Keys, which descend the same implicit, perfectly balanced tree
+ * as AVLTree.fromSorted would build, without building it.  Nothing is read from the file until it is touched,
+ * so opening a snapshot is near-instant, and processes mapping the same file share its pages in the OS page cache.
+ *
+ *      File layout, big-endian:
+ *      [0, 4)      Magic number.
+ *      [4, 8)      Format version.
+ *      [8, 12)     Key width, in bytes.
+ *      [12, 16)    Reserved.
+ *      [16, 24)    Number of Keys.
+ *      [24, ...)   Keys, in ascending order.
+ *
+ * Files larger than a single MappedByteBuffer are mapped as several chunks, each holding a whole number of Keys.
+ * Mappings are released when this object is garbage collected; there is no explicit close.
+ */
+public final class MappedTreeSnapshot<Key> implements Iterable<Key> {
+
+    static final int MAGIC = 0x54524545;
+    static final int VERSION = 1;
+    static final int HEADER = 24;
+
+    /** Upper bound on the bytes mapped by a single chunk. */
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    /** Bytes buffered between writes to the file. */
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private final KeyCodec<Key> codec;
+    private final int width;
+    private final long count;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final MappedByteBuffer[] chunks;
+
+    private MappedTreeSnapshot(KeyCodec<Key> codec, long count, int chunkShift, MappedByteBuffer[] chunks){
+        this.codec = codec;
+        this.width = codec.width();
+        this.count = count;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Write Keys to a snapshot file, replacing any existing file, and force it to storage.
+     * The Keys are written to a temporary file beside the target, which is then moved over it atomically;
+     * processes mapping the old file keep reading it undisturbed, and a failure part way leaves it intact.
+     * The directory is forced after the move, so that the new file is the one found after a crash.
+     * @param path      File to write.
+     * @param codec     Encoding of Keys.
+     * @param keys      Keys, which must be strictly ascending by the ordering of the codec.
+     * @throws IOException                  Failure to write the file.
+     * @throws IllegalArgumentException     Keys are not strictly ascending by the ordering of the codec.
+     */
+    static <Key> void write(Path path, KeyCodec<Key> codec, Iterator<Key> keys) throws IOException {
+        int width = codec.width();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_BYTES, width));
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            writeKeys(temporary, codec, keys, width, buffer);
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved){
+                Files.deleteIfExists(temporary);
+            }
+        }
+        forceDirectory(absolute.getParent());
+    }
+
+    /**
+     * Force a directory itself, so that files created or renamed within it survive a crash.
+     * @param directory     Directory to force.
+     * @throws IOException  Failure to open or force the directory.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)){
+            channel.force(true);
+        }
+    }
+
+    private static <Key> void writeKeys(Path path, KeyCodec<Key> codec, Iterator<Key> keys, int width, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            channel.position(HEADER);
+            long count = 0;
+            Key previous = null;
+            while (keys.hasNext()){
+                Key key = keys.next();
+                if (previous != null && codec.compare(previous, key) >= 0){
+                    throw new IllegalArgumentException(String.format("Keys out of order for codec at index %d", count));
+                }
+                if (buffer.remaining() < width){
+                    flush(channel, buffer);
+                }
+                codec.write(buffer, buffer.position(), key);
+                buffer.position(buffer.position() + width);
+                previous = key;
+                count++;
+            }
+            flush(channel, buffer);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(0).putLong(count);
+            buffer.flip();
+            while (buffer.hasRemaining()){
+                channel.write(buffer, buffer.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Map a snapshot file for reading.
+     * @param path      File written by {@link BinarySearchTree#writeSnapshot}.
+     * @param codec     Encoding of Keys, the same as the snapshot was written with.
+     * @return          Read-only tree over the file.
+     * @throws IOException  Failure to read the file, or the file is not a complete snapshot of Keys of the codec's width.
+     */
+    public static <Key> MappedTreeSnapshot<Key> open(Path path, KeyCodec<Key> codec) throws IOException {
+        return open(path, codec, Integer.numberOfTrailingZeros(Integer.highestOneBit(MAX_CHUNK_BYTES / codec.width())));
+    }
+
+    /**
+     * @param chunkShift    Base two logarithm of the number of Keys mapped by each chunk.
+     */
+    static <Key> MappedTreeSnapshot<Key> open(Path path, KeyCodec<Key> codec, int chunkShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()){
+                if (channel.read(header, header.position()) < 0){
+                    throw new IOException("Truncated snapshot header: " + path);
+                }
+            }
+            header.flip();
+            int magic = header.getInt();
+            int version = header.getInt();
+            int width = header.getInt();
+            header.getInt();
+            long count = header.getLong();
+            if (magic != MAGIC){
+                throw new IOException("Not a tree snapshot: " + path);
+            }
+            if (version != VERSION){
+                throw new IOException(String.format("Unsupported snapshot version %d: %s", version, path));
+            }
+            if (width != codec.width()){
+                throw new IOException(String.format("Snapshot key width %d, codec width %d: %s", width, codec.width(), path));
+            }
+            if (count < 0 || channel.size() != HEADER + count * width){
+                throw new IOException(String.format("Snapshot of %d keys has length %d: %s", count, channel.size(), path));
+            }
+
+            long keysPerChunk = 1L << chunkShift;
+            int chunkCount = (int) ((count + keysPerChunk - 1) >>> chunkShift);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++){
+                long first = chunk * keysPerChunk;
+                long keys = Math.min(keysPerChunk, count - first);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * width, keys * width);
+            }
+            return new MappedTreeSnapshot<>(codec, count, chunkShift, chunks);
+        }
+    }
+
+    /**
+     * @return  Whether the snapshot is empty or not.
+     */
+    public boolean isEmpty(){
+        return count == 0;
+    }
+
+    /**
+     * @return  Number of Keys within the snapshot.
+     */
+    public long size(){
+        return count;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in snapshot.
+     */
+    public boolean contains(Key key){
+        long rank = rank(key);
+        return rank < count && compare(key, rank) == 0;
+    }
+
+    /**
+     * Count the Keys less than the given Key, in O(log n).
+     * @param key   Key to rank; need not be contained.
+     * @return      Number of Keys less than the given Key.
+     */
+    public long rank(Key key){
+        return countBelow(key, false);
+    }
+
+    /**
+     * @param index     Zero-based index; 0 selects the minimum Key, size() - 1 the maximum.
+     * @return          Key at that index.
+     * @throws IndexOutOfBoundsException    Index is negative, or not less than size().
+     */
+    public Key select(long index){
+        if (index < 0 || index >= count){
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, count));
+        }
+        return key(index);
+    }
+
+    /**
+     * @return  Least Key, or null if the snapshot is empty.
+     */
+    public Key getMin(){
+        return count == 0 ? null : key(0);
+    }
+
+    /**
+     * @return  Greatest Key, or null if the snapshot is empty.
+     */
+    public Key getMax(){
+        return count == 0 ? null : key(count - 1);
+    }
+
+    /**
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    public long countRange(Key start, Key end){
+        if (codec.compare(start, end) > 0){
+            return 0;
+        }
+        return countBelow(end, true) - countBelow(start, false);
+    }
+
+    /**
+     * Only Keys within range are decoded; the bounds are found by binary search.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public List<Key> getRange(Key start, Key end){
+        List<Key> result = new ArrayList<>();
+        if (codec.compare(start, end) > 0){
+            return result;
+        }
+        long last = countBelow(end, true);
+        for (long index = countBelow(start, false); index < last; index++){
+            result.add(key(index));
+        }
+        return result;
+    }
+
+    /**
+     * @return  Lazy iterator over Keys in ascending order, decoding each as it is returned.
+     */
+    @Override
+    public Iterator<Key> iterator(){
+        return new Iterator<Key>(){
+            private long index = 0;
+
+            @Override
+            public boolean hasNext(){
+                return index < count;
+            }
+
+            @Override
+            public Key next(){
+                if (index >= count){
+                    throw new NoSuchElementException();
+                }
+                return key(index++);
+            }
+        };
+    }
+
+    /**
+     * @param key           Boundary Key.
+     * @param inclusive     Whether a contained Key equal to the boundary is counted.
+     * @return              Number of Keys less than, or if inclusive equal to, the boundary.
+     */
+    private long countBelow(Key key, boolean inclusive){
+        long low = 0;
+        long high = count;
+        while (low < high){
+            long middle = (low + high) >>> 1;
+            int comparison = compare(key, middle);
+            if (comparison > 0 || (comparison == 0 && inclusive)){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compare(Key key, long index){
+        return codec.compare(key, chunks[(int) (index >>> chunkShift)], (int) (index & chunkMask) * width);
+    }
+
+    private Key key(long index){
+        return codec.read(chunks[(int) (index >>> chunkShift)], (int) (index & chunkMask) * width);
+    }
+}
@@ -42,6 +42,18 @@ abstract class Node <Key extends Comparable<Key>> {
         this.height = (rightHeight > leftHeight) ? (rightHeight + 1) : (leftHeight + 1);
     }
 
+    /**
+     * Construct a Node whose height and size its subclass derives itself.
+     * @param key       Key for node.
+     * @param height    Height of the subtree rooted at this node.
+     * @param size      Number of Keys in the subtree rooted at this node.
+     */
+    Node(Key key, int height, int size){
+        this.key = key;
+        this.height = height;
+        this.size = size;
+    }
+
     int getHeight(){ return height; }
     int getSize(){ return size; }
     Key getKey(){ return key; }
@@ -0,0 +1,489 @@
+package com.eliottgray.searchtrees;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Mutable AVL tree whose nodes live outside the Java heap, in direct ByteBuffer slabs.
+ *
+ * Each node is a fixed-width record, addressed by a long offset counted in nodes; an offset selects a slab
+ * by its high bits and a record within the slab by its low bits, so no node straddles two slabs.
+ * The collector sees only the slabs themselves, however many nodes they hold.
+ *
+ *      Record layout, in bytes:
+ *      [0, 8)      Offset of left child.
+ *      [8, 16)     Offset of right child.
+ *      [16, 24)    Size of subtree.
+ *      [24, 28)    Height of subtree.
+ *      [28, ...)   Key, in the form written by the KeyCodec.
+ *
+ * Offset 0 is the empty subtree; its record is never written, so reads as height and size zero.
+ * Deleted records are chained into a free list, through the left child field, and reused by later inserts.
+ *
+ * Like PooledAVLTree, updates modify this tree in place; it is intended for a single writer, and is not thread-safe.
+ */
+public class OffHeapAVLTree<Key> implements Iterable<Key> {
+
+    private static final long NIL = 0;
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 8;
+    private static final int SIZE = 16;
+    private static final int HEIGHT = 24;
+    private static final int KEY = 28;
+
+    /** Default slab of 64Ki nodes; for int Keys, 2MiB. */
+    private static final int DEFAULT_SLAB_SHIFT = 16;
+
+    private final KeyCodec<Key> codec;
+    private final int nodeWidth;
+    private final int slabShift;
+    private final long slabMask;
+
+    private ByteBuffer[] slabs;
+    private int slabCount;
+
+    private long root = NIL;
+    private long freeHead = NIL;
+    private long nextUnused = 1;
+    private int modCount;
+
+    // Set by removeMin, to hand the detached node's offset to its caller.
+    private long removedNode;
+
+    /**
+     * Empty tree, with slabs of the default size.
+     * @param codec     Encoding, and ordering, of Keys.
+     */
+    public OffHeapAVLTree(KeyCodec<Key> codec){
+        this(codec, 1 << DEFAULT_SLAB_SHIFT);
+    }
+
+    /**
+     * Empty tree.
+     * @param codec         Encoding, and ordering, of Keys.
+     * @param nodesPerSlab  Number of nodes in each slab; a power of two, small enough that a slab fits in one ByteBuffer.
+     */
+    public OffHeapAVLTree(KeyCodec<Key> codec, int nodesPerSlab){
+        if (nodesPerSlab <= 0 || Integer.bitCount(nodesPerSlab) != 1){
+            throw new IllegalArgumentException("Nodes per slab must be a power of two: " + nodesPerSlab);
+        }
+        this.codec = codec;
+        this.nodeWidth = KEY + codec.width();
+        if ((long) nodesPerSlab * nodeWidth > Integer.MAX_VALUE){
+            throw new IllegalArgumentException(String.format("Slab of %d nodes of %d bytes exceeds a ByteBuffer", nodesPerSlab, nodeWidth));
+        }
+        this.slabShift = Integer.numberOfTrailingZeros(nodesPerSlab);
+        this.slabMask = nodesPerSlab - 1;
+        this.slabs = new ByteBuffer[4];
+        addSlab();
+    }
+
+    /**
+     * @return  Whether the tree is empty or not.
+     */
+    public boolean isEmpty(){
+        return root == NIL;
+    }
+
+    /**
+     * @return  Number of Keys within the tree.
+     */
+    public long size(){
+        return size(root);
+    }
+
+    /**
+     * @return  Bytes of direct memory allocated to slabs.
+     */
+    public long allocatedBytes(){
+        return (long) slabCount * (slabMask + 1) * nodeWidth;
+    }
+
+    /**
+     * Remove every Key, keeping the allocated slabs for reuse.
+     */
+    public void clear(){
+        root = NIL;
+        freeHead = NIL;
+        nextUnused = 1;
+        modCount++;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(Key key){
+        long current = root;
+        while (current != NIL){
+            int comparison = compare(key, current);
+            if (comparison < 0){
+                current = left(current);
+            } else if (comparison > 0){
+                current = right(current);
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert a Key into the tree.
+     * If the inserted Key compares equal to an existing Key, the existing Key will be overwritten.
+     * @param key   Key to insert.
+     * @return      Whether the tree grew; false if an existing Key was overwritten.
+     */
+    public boolean insert(Key key){
+        long sizeBefore = size();
+        root = insert(root, key);
+        modCount++;
+        return size() > sizeBefore;
+    }
+
+    private long insert(long node, Key key){
+        if (node == NIL){
+            return allocate(key);
+        }
+        int comparison = compare(key, node);
+        if (comparison < 0){
+            setLeft(node, insert(left(node), key));
+        } else if (comparison > 0){
+            setRight(node, insert(right(node), key));
+        } else {
+            codec.write(slab(node), position(node) + KEY, key);
+            return node;
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Delete a Key from the tree, returning its record to the free list.
+     * @param key   Key to delete.
+     * @return      Whether the Key was contained.
+     */
+    public boolean delete(Key key){
+        long sizeBefore = size();
+        root = delete(root, key);
+        if (size() == sizeBefore){
+            return false;
+        }
+        modCount++;
+        return true;
+    }
+
+    private long delete(long node, Key key){
+        if (node == NIL){
+            return NIL;
+        }
+        int comparison = compare(key, node);
+        if (comparison < 0){
+            setLeft(node, delete(left(node), key));
+        } else if (comparison > 0){
+            setRight(node, delete(right(node), key));
+        } else if (left(node) == NIL || right(node) == NIL){
+            long child = left(node) == NIL ? right(node) : left(node);
+            free(node);
+            return child;
+        } else {
+            // Two children; the in-order successor takes this node's place, keeping its record and Key as they are.
+            long newRight = removeMin(right(node));
+            long successor = removedNode;
+            setLeft(successor, left(node));
+            setRight(successor, newRight);
+            free(node);
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Detach the least node of a subtree, leaving its offset in removedNode.
+     * @return  New root of the subtree.
+     */
+    private long removeMin(long node){
+        if (left(node) == NIL){
+            removedNode = node;
+            return right(node);
+        }
+        setLeft(node, removeMin(left(node)));
+        return rebalance(node);
+    }
+
+    private long allocate(Key key){
+        long node;
+        boolean recycled = freeHead != NIL;
+        if (recycled){
+            node = freeHead;
+            freeHead = left(node);
+        } else {
+            if ((nextUnused >>> slabShift) == slabCount){
+                addSlab();
+            }
+            node = nextUnused++;
+        }
+        ByteBuffer slab = slab(node);
+        int position = position(node);
+        try {
+            codec.write(slab, position + KEY, key);
+        } catch (RuntimeException e){
+            // The slot's link to the rest of the free list is still intact, so it can be handed straight back.
+            if (recycled){
+                freeHead = node;
+            } else {
+                nextUnused--;
+            }
+            throw e;
+        }
+        slab.putLong(position + LEFT, NIL);
+        slab.putLong(position + RIGHT, NIL);
+        slab.putLong(position + SIZE, 1);
+        slab.putInt(position + HEIGHT, 1);
+        return node;
+    }
+
+    private void free(long node){
+        setLeft(node, freeHead);
+        freeHead = node;
+    }
+
+    private void addSlab(){
+        if (slabCount == slabs.length){
+            slabs = Arrays.copyOf(slabs, slabs.length * 2);
+        }
+        slabs[slabCount++] = ByteBuffer.allocateDirect((int) (slabMask + 1) * nodeWidth).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Recompute height and size of a node whose children have changed, rotating if its subtrees differ in height by two.
+     * @return  Offset of the node now at the root of this subtree.
+     */
+    private long rebalance(long node){
+        update(node);
+        int balanceFactor = height(right(node)) - height(left(node));
+        if (balanceFactor < -1){
+            long leftChild = left(node);
+            if (height(right(leftChild)) > height(left(leftChild))){
+                setLeft(node, rotateLeft(leftChild));
+            }
+            return rotateRight(node);
+        } else if (balanceFactor > 1){
+            long rightChild = right(node);
+            if (height(left(rightChild)) > height(right(rightChild))){
+                setRight(node, rotateRight(rightChild));
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private long rotateLeft(long node){
+        long pivot = right(node);
+        setRight(node, left(pivot));
+        setLeft(pivot, node);
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private long rotateRight(long node){
+        long pivot = left(node);
+        setLeft(node, right(pivot));
+        setRight(pivot, node);
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(long node){
+        long leftChild = left(node);
+        long rightChild = right(node);
+        ByteBuffer slab = slab(node);
+        int position = position(node);
+        slab.putInt(position + HEIGHT, 1 + Math.max(height(leftChild), height(rightChild)));
+        slab.putLong(position + SIZE, 1 + size(leftChild) + size(rightChild));
+    }
+
+    // Record access.
+
+    private ByteBuffer slab(long node){
+        return slabs[(int) (node >>> slabShift)];
+    }
+
+    private int position(long node){
+        return (int) (node & slabMask) * nodeWidth;
+    }
+
+    private long left(long node){
+        return slab(node).getLong(position(node) + LEFT);
+    }
+
+    private long right(long node){
+        return slab(node).getLong(position(node) + RIGHT);
+    }
+
+    private void setLeft(long node, long child){
+        slab(node).putLong(position(node) + LEFT, child);
+    }
+
+    private void setRight(long node, long child){
+        slab(node).putLong(position(node) + RIGHT, child);
+    }
+
+    private long size(long node){
+        return slab(node).getLong(position(node) + SIZE);
+    }
+
+    private int height(long node){
+        return slab(node).getInt(position(node) + HEIGHT);
+    }
+
+    private Key key(long node){
+        return codec.read(slab(node), position(node) + KEY);
+    }
+
+    private int compare(Key key, long node){
+        return codec.compare(key, slab(node), position(node) + KEY);
+    }
+
+    // Queries over many Keys.
+
+    /**
+     * @return  Least Key, or null if the tree is empty.
+     */
+    public Key getMin(){
+        if (root == NIL){
+            return null;
+        }
+        long current = root;
+        while (left(current) != NIL){
+            current = left(current);
+        }
+        return key(current);
+    }
+
+    /**
+     * @return  Greatest Key, or null if the tree is empty.
+     */
+    public Key getMax(){
+        if (root == NIL){
+            return null;
+        }
+        long current = root;
+        while (right(current) != NIL){
+            current = right(current);
+        }
+        return key(current);
+    }
+
+    /**
+     * Only Keys within range are decoded; the rest are compared in place.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public List<Key> getRange(Key start, Key end){
+        List<Key> result = new ArrayList<>();
+        if (root != NIL){
+            collectRange(root, start, end, result);
+        }
+        return result;
+    }
+
+    private void collectRange(long node, Key start, Key end, List<Key> result){
+        boolean isLessThan = compare(start, node) <= 0;
+        boolean isGreaterThan = compare(end, node) >= 0;
+        if (isLessThan && left(node) != NIL){
+            collectRange(left(node), start, end, result);
+        }
+        if (isLessThan && isGreaterThan){
+            result.add(key(node));
+        }
+        if (isGreaterThan && right(node) != NIL){
+            collectRange(right(node), start, end, result);
+        }
+    }
+
+    /**
+     * Lazy in-order walk, decoding each Key as it is returned; fails fast if the tree is modified during iteration.
+     * @return  Iterator over Keys in ascending order.
+     */
+    @Override
+    public Iterator<Key> iterator(){
+        return new Iterator<Key>(){
+
+            private final long[] stack = new long[height(root)];
+            private int depth = pushLeftSpine(root, 0);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext(){
+                return depth > 0;
+            }
+
+            @Override
+            public Key next(){
+                if (modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                if (depth == 0){
+                    throw new NoSuchElementException();
+                }
+                long current = stack[--depth];
+                depth = pushLeftSpine(right(current), depth);
+                return key(current);
+            }
+
+            private int pushLeftSpine(long current, int depth){
+                while (current != NIL){
+                    stack[depth++] = current;
+                    current = left(current);
+                }
+                return depth;
+            }
+        };
+    }
+
+    /**
+     * Ensure order, height, size and balance of every node.
+     * @throws InvalidSearchTreeException   Tree is invalid.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        if (root != NIL){
+            recursiveValidate(root);
+        }
+    }
+
+    private void recursiveValidate(long node) throws InvalidSearchTreeException {
+        long leftChild = left(node);
+        long rightChild = right(node);
+        if (size(node) != 1 + size(leftChild) + size(rightChild)){
+            throw new InvalidSearchTreeException(String.format("Invalid size at offset %d, size %d, left size %d, right size %d", node, size(node), size(leftChild), size(rightChild)));
+        }
+        if (height(node) != 1 + Math.max(height(leftChild), height(rightChild))){
+            throw new InvalidSearchTreeException(String.format("Invalid height at offset %d, height %d", node, height(node)));
+        }
+        if (Math.abs(height(rightChild) - height(leftChild)) > 1){
+            throw new InvalidSearchTreeException(String.format("Unbalanced at offset %d", node));
+        }
+        if (leftChild != NIL){
+            if (compare(key(leftChild), node) >= 0){
+                throw new InvalidSearchTreeException(String.format("Invalid left key at offset %d, left offset %d", node, leftChild));
+            }
+            recursiveValidate(leftChild);
+        }
+        if (rightChild != NIL){
+            if (compare(key(rightChild), node) <= 0){
+                throw new InvalidSearchTreeException(String.format("Invalid right key at offset %d, right offset %d", node, rightChild));
+            }
+            recursiveValidate(rightChild);
+        }
+    }
+}
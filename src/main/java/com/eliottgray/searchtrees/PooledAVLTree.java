@@ -0,0 +1,491 @@
+package com.eliottgray.searchtrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Mutable AVL tree whose nodes live in parallel arrays, addressed by int index, rather than as objects.
+ *
+ * A node is the slot at the same index in each array; no node carries an object header or a reference,
+ * and the fields read during a descent sit together in a few dense arrays.
+ * Deleted slots are chained into a free list, through the left array, and reused by later inserts.
+ *
+ * Unlike the other trees, updates modify this tree in place; it is intended for a single writer, and is not thread-safe.
+ */
+public class PooledAVLTree<Key extends Comparable<Key>> implements Iterable<Key> {
+
+    /** Index of the empty subtree; its height and size are always zero. */
+    private static final int NIL = 0;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final Comparator<Key> comparator;
+
+    private int[] left;
+    private int[] right;
+    private int[] size;
+    private byte[] height;
+    private Object[] keys;
+
+    private int root = NIL;
+    private int freeHead = NIL;
+    private int nextUnused = 1;
+    private int modCount;
+
+    // Set by removeMin, to hand the detached Key to its caller.
+    private Key removedKey;
+
+    /**
+     * Empty tree. Comparison of Keys to be performed with default compareTo method.
+     */
+    public PooledAVLTree(){
+        this(Comparable::compareTo);
+    }
+
+    /**
+     * Empty tree, with comparator override.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public PooledAVLTree(Comparator<Key> comparator){
+        this(comparator, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Empty tree, with comparator override, and room for the given number of Keys before the arrays grow.
+     * @param comparator        Comparison function with which to override default compareTo of Key.
+     * @param initialCapacity   Number of Keys to allocate room for.
+     */
+    public PooledAVLTree(Comparator<Key> comparator, int initialCapacity){
+        if (initialCapacity < 0){
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        this.comparator = comparator;
+        int length = initialCapacity + 1;
+        left = new int[length];
+        right = new int[length];
+        size = new int[length];
+        height = new byte[length];
+        keys = new Object[length];
+    }
+
+    /**
+     * @return  Whether the tree is empty or not.
+     */
+    public boolean isEmpty(){
+        return root == NIL;
+    }
+
+    /**
+     * @return  Number of Keys within the tree.
+     */
+    public int size(){
+        return size[root];
+    }
+
+    /**
+     * @return  Number of Keys the arrays can hold before they must grow.
+     */
+    int capacity(){
+        return keys.length - 1;
+    }
+
+    /**
+     * Remove every Key, keeping the allocated arrays for reuse.
+     */
+    public void clear(){
+        Arrays.fill(keys, null);
+        root = NIL;
+        freeHead = NIL;
+        nextUnused = 1;
+        modCount++;
+    }
+
+    /**
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(Key key){
+        int current = root;
+        while (current != NIL){
+            int comparison = comparator.compare(key, key(current));
+            if (comparison < 0){
+                current = left[current];
+            } else if (comparison > 0){
+                current = right[current];
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert a Key into the tree.
+     * If the inserted Key duplicates the same sorted location as an existing Key, the existing Key will be overwritten.
+     * @param key   Key to insert.
+     * @return      Whether the tree grew; false if an existing Key was overwritten.
+     */
+    public boolean insert(Key key){
+        int sizeBefore = size();
+        root = insert(root, key);
+        modCount++;
+        return size() > sizeBefore;
+    }
+
+    private int insert(int node, Key key){
+        if (node == NIL){
+            return allocate(key);
+        }
+        int comparison = comparator.compare(key, key(node));
+        // The child is inserted before it is stored, since an insert may grow, and so replace, the arrays.
+        if (comparison < 0){
+            int child = insert(left[node], key);
+            left[node] = child;
+        } else if (comparison > 0){
+            int child = insert(right[node], key);
+            right[node] = child;
+        } else {
+            keys[node] = key;
+            return node;
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Delete a Key from the tree, returning its slot to the free list.
+     * @param key   Key to delete.
+     * @return      Whether the Key was contained.
+     */
+    public boolean delete(Key key){
+        int sizeBefore = size();
+        root = delete(root, key);
+        if (size() == sizeBefore){
+            return false;
+        }
+        modCount++;
+        return true;
+    }
+
+    private int delete(int node, Key key){
+        if (node == NIL){
+            return NIL;
+        }
+        int comparison = comparator.compare(key, key(node));
+        if (comparison < 0){
+            left[node] = delete(left[node], key);
+        } else if (comparison > 0){
+            right[node] = delete(right[node], key);
+        } else if (left[node] == NIL || right[node] == NIL){
+            int child = left[node] == NIL ? right[node] : left[node];
+            free(node);
+            return child;
+        } else {
+            // Two children; the in-order successor's Key moves into this slot, and the successor's slot is freed.
+            right[node] = removeMin(right[node]);
+            keys[node] = removedKey;
+            removedKey = null;
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Detach the least node of a subtree, leaving its Key in removedKey.
+     * @return  New root of the subtree.
+     */
+    private int removeMin(int node){
+        if (left[node] == NIL){
+            removedKey = key(node);
+            int child = right[node];
+            free(node);
+            return child;
+        }
+        left[node] = removeMin(left[node]);
+        return rebalance(node);
+    }
+
+    private int allocate(Key key){
+        int slot;
+        if (freeHead != NIL){
+            slot = freeHead;
+            freeHead = left[slot];
+        } else {
+            if (nextUnused == keys.length){
+                grow();
+            }
+            slot = nextUnused++;
+        }
+        left[slot] = NIL;
+        right[slot] = NIL;
+        size[slot] = 1;
+        height[slot] = 1;
+        keys[slot] = key;
+        return slot;
+    }
+
+    private void free(int slot){
+        keys[slot] = null;
+        left[slot] = freeHead;
+        freeHead = slot;
+    }
+
+    private void grow(){
+        int length = Math.max(keys.length + (keys.length >> 1), keys.length + 1);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        size = Arrays.copyOf(size, length);
+        height = Arrays.copyOf(height, length);
+        keys = Arrays.copyOf(keys, length);
+    }
+
+    /**
+     * Recompute height and size of a node whose children have changed, rotating if its subtrees differ in height by two.
+     * @return  Index of the node now at the root of this subtree.
+     */
+    private int rebalance(int node){
+        update(node);
+        int balanceFactor = height[right[node]] - height[left[node]];
+        if (balanceFactor < -1){
+            if (height[right[left[node]]] > height[left[left[node]]]){
+                left[node] = rotateLeft(left[node]);
+            }
+            return rotateRight(node);
+        } else if (balanceFactor > 1){
+            if (height[left[right[node]]] > height[right[right[node]]]){
+                right[node] = rotateRight(right[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateLeft(int node){
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private int rotateRight(int node){
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(int node){
+        int leftChild = left[node];
+        int rightChild = right[node];
+        height[node] = (byte) (1 + Math.max(height[leftChild], height[rightChild]));
+        size[node] = 1 + size[leftChild] + size[rightChild];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Key key(int node){
+        return (Key) keys[node];
+    }
+
+    public Key getMin(){
+        if (root == NIL){
+            return null;
+        }
+        int current = root;
+        while (left[current] != NIL){
+            current = left[current];
+        }
+        return key(current);
+    }
+
+    public Key getMax(){
+        if (root == NIL){
+            return null;
+        }
+        int current = root;
+        while (right[current] != NIL){
+            current = right[current];
+        }
+        return key(current);
+    }
+
+    /**
+     * Count the Keys less than the given Key, in O(log n), using the size stored in each node.
+     * @param key   Key to rank; need not be contained.
+     * @return      Number of Keys less than the given Key.
+     */
+    public int rank(Key key){
+        return countBelow(key, false);
+    }
+
+    /**
+     * Find the Key at the given index in ascending order, in O(log n), using the size stored in each node.
+     * @param index     Zero-based index; 0 selects the minimum Key, size() - 1 the maximum.
+     * @return          Key at that index.
+     * @throws IndexOutOfBoundsException    Index is negative, or not less than size().
+     */
+    public Key select(int index){
+        if (index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, size()));
+        }
+        int current = root;
+        while (true){
+            int leftSize = size[left[current]];
+            if (index < leftSize){
+                current = left[current];
+            } else if (index > leftSize){
+                index -= leftSize + 1;
+                current = right[current];
+            } else {
+                return key(current);
+            }
+        }
+    }
+
+    /**
+     * Count the Keys between the given start and end, inclusive, in O(log n) and without visiting them.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    public int countRange(Key start, Key end){
+        if (comparator.compare(start, end) > 0){
+            return 0;
+        }
+        return countBelow(end, true) - countBelow(start, false);
+    }
+
+    private int countBelow(Key key, boolean inclusive){
+        int count = 0;
+        int current = root;
+        while (current != NIL){
+            int comparison = comparator.compare(key, key(current));
+            if (comparison < 0){
+                current = left[current];
+            } else {
+                int leftSize = size[left[current]];
+                if (comparison == 0){
+                    return count + leftSize + (inclusive ? 1 : 0);
+                }
+                count += leftSize + 1;
+                current = right[current];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Keys within range, inclusive, in ascending order.
+     */
+    public List<Key> getRange(Key start, Key end){
+        List<Key> result = new ArrayList<>();
+        if (root != NIL){
+            collectRange(root, start, end, result);
+        }
+        return result;
+    }
+
+    private void collectRange(int node, Key start, Key end, List<Key> result){
+        boolean isLessThan = comparator.compare(start, key(node)) <= 0;
+        boolean isGreaterThan = comparator.compare(end, key(node)) >= 0;
+        if (isLessThan && left[node] != NIL){
+            collectRange(left[node], start, end, result);
+        }
+        if (isLessThan && isGreaterThan){
+            result.add(key(node));
+        }
+        if (isGreaterThan && right[node] != NIL){
+            collectRange(right[node], start, end, result);
+        }
+    }
+
+    public List<Key> toAscendingList(){
+        List<Key> result = new ArrayList<>(size());
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Lazy in-order walk; fails fast if the tree is modified during iteration.
+     * @return  Iterator over Keys in ascending order.
+     */
+    @Override
+    public Iterator<Key> iterator(){
+        return new Iterator<Key>(){
+
+            private final int[] stack = new int[height[root]];
+            private int depth = pushLeftSpine(root, 0);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext(){
+                return depth > 0;
+            }
+
+            @Override
+            public Key next(){
+                if (modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                if (depth == 0){
+                    throw new NoSuchElementException();
+                }
+                int current = stack[--depth];
+                depth = pushLeftSpine(right[current], depth);
+                return key(current);
+            }
+
+            private int pushLeftSpine(int current, int depth){
+                while (current != NIL){
+                    stack[depth++] = current;
+                    current = left[current];
+                }
+                return depth;
+            }
+        };
+    }
+
+    /**
+     * Ensure order, height, size and balance of every node.
+     * @throws InvalidSearchTreeException   Tree is invalid.
+     */
+    public void validate() throws InvalidSearchTreeException {
+        if (root != NIL){
+            recursiveValidate(root);
+        }
+    }
+
+    private void recursiveValidate(int node) throws InvalidSearchTreeException {
+        int leftChild = left[node];
+        int rightChild = right[node];
+        if (size[node] != 1 + size[leftChild] + size[rightChild]){
+            throw new InvalidSearchTreeException(String.format("Invalid size for key %s, size %d, left size %d, right size %d", key(node), size[node], size[leftChild], size[rightChild]));
+        }
+        if (height[node] != 1 + Math.max(height[leftChild], height[rightChild])){
+            throw new InvalidSearchTreeException(String.format("Invalid height for key %s, height %d", key(node), height[node]));
+        }
+        if (Math.abs(height[rightChild] - height[leftChild]) > 1){
+            throw new InvalidSearchTreeException(String.format("Unbalanced at key %s", key(node)));
+        }
+        if (leftChild != NIL){
+            if (comparator.compare(key(leftChild), key(node)) >= 0){
+                throw new InvalidSearchTreeException(String.format("Invalid left key for key %s, left key %s", key(node), key(leftChild)));
+            }
+            recursiveValidate(leftChild);
+        }
+        if (rightChild != NIL){
+            if (comparator.compare(key(rightChild), key(node)) <= 0){
+                throw new InvalidSearchTreeException(String.format("Invalid right key for key %s, right key %s", key(node), key(rightChild)));
+            }
+            recursiveValidate(rightChild);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.eliottgray.searchtrees;
+
+/**
+ * A node of a RedBlackTree.
+ * Its color is carried by its class rather than by a field, so that a RedBlackNode occupies no more memory
+ * than any other BinarySearchNode.
+ * Like every other persistent node, a RedBlackNode is never modified after construction.
+ */
+abstract class RedBlackNode<Key extends Comparable<Key>> extends BinarySearchNode<Key> {
+
+    /**
+     * @param key       Comparable Key for node.
+     * @param left      Left child.
+     * @param right     Right child.
+     */
+    RedBlackNode(Key key, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        super(key, left, right);
+    }
+
+    /**
+     * @param key       Comparable Key for node.
+     * @param red       Color of node; black if false.
+     * @param left      Left child.
+     * @param right     Right child.
+     * @return          New node of the given color.
+     */
+    static <Key extends Comparable<Key>> RedBlackNode<Key> of(Key key, boolean red, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        return red ? new Red<>(key, left, right) : new Black<>(key, left, right);
+    }
+
+    /**
+     * @return  Color of node; black if false.
+     */
+    abstract boolean isRed();
+
+    static final class Red<Key extends Comparable<Key>> extends RedBlackNode<Key> {
+
+        Red(Key key, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            super(key, left, right);
+        }
+
+        @Override
+        boolean isRed(){ return true; }
+
+        @Override
+        BinarySearchNode<Key> withChildren(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new Red<>(key, left, right);
+        }
+    }
+
+    static final class Black<Key extends Comparable<Key>> extends RedBlackNode<Key> {
+
+        Black(Key key, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            super(key, left, right);
+        }
+
+        @Override
+        boolean isRed(){ return false; }
+
+        @Override
+        BinarySearchNode<Key> withChildren(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+            return new Black<>(key, left, right);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Comparator;
+
+/**
+ * Persistent red-black tree, after Okasaki's insertion and the classic deletion fix-up of Cormen et al.
+ *
+ * Like AVLTree, every update copies only the path from the root to the changed Key, sharing all other nodes.
+ * Balance is looser than AVL balance, the longest path being at most twice the shortest, so searches may descend
+ * a level or two further.
+ * Beyond its path, an update copies one sibling at each level where it recolors, and restructures at most three nodes;
+ * a delete stops repairing as soon as the lost black is absorbed, so above that point only the path itself is copied.
+ * Altogether an update allocates about as much as the same AVLTree update: the slightly longer paths cost
+ * what the cheaper rebalancing saves.
+ *
+ * Nodes carry height and size as every BinarySearchNode does, so rank, select and countRange work unchanged.
+ */
+public class RedBlackTree<Key extends Comparable<Key>> extends BinarySearchTree<Key> {
+
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    /**
+     * Empty tree. Comparison of Keys to be performed with default compareTo method.
+     */
+    public RedBlackTree(){
+        super();
+    }
+
+    /**
+     * Empty tree, with comparator override.
+     * @param comparator    Comparison function with which to override default compareTo of Key.
+     */
+    public RedBlackTree(Comparator<Key> comparator){
+        super(comparator);
+    }
+
+    /**
+     * Construct a new tree from an older tree.
+     * @param root          Existing root node.
+     * @param comparator    Comparator corresponding to current root node.
+     */
+    RedBlackTree(BinarySearchNode<Key> root, Comparator<Key> comparator){
+        super(root, comparator);
+    }
+
+    @Override
+    public RedBlackTree<Key> insert(Key key){
+        BinarySearchNode<Key> inserted = recursiveInsert(key, root);
+        return new RedBlackTree<>(blacken(inserted), comparator);
+    }
+
+    @Override
+    public RedBlackTree<Key> delete(Key key){
+        Deletion<Key> deletion = new Deletion<>();
+        BinarySearchNode<Key> deleted = recursiveDelete(key, root, deletion);
+        if (deleted == root){
+            // Key is not in this tree; no need for change.
+            return this;
+        }
+        return new RedBlackTree<>(deleted == null ? null : blacken(deleted), comparator);
+    }
+
+    private BinarySearchNode<Key> recursiveInsert(Key key, BinarySearchNode<Key> current){
+        if (current == null){
+            return node(RED, null, key, null);
+        }
+        int comparison = comparator.compare(key, current.key);
+        boolean red = isRed(current);
+        if (comparison < 0){
+            BinarySearchNode<Key> left = recursiveInsert(key, current.left);
+            return red ? node(RED, left, current.key, current.right) : balance(left, current.key, current.right);
+        } else if (comparison > 0){
+            BinarySearchNode<Key> right = recursiveInsert(key, current.right);
+            return red ? node(RED, current.left, current.key, right) : balance(current.left, current.key, right);
+        } else {
+            // Duplicate key found; replace this.
+            return node(red, current.left, key, current.right);
+        }
+    }
+
+    /**
+     * Delete a Key from a subtree, in a single descent.
+     * @return  The same subtree if the Key is absent; otherwise a new subtree, with deletion.shorter set if it holds
+     *          one black fewer on every path than the old one did.
+     */
+    private BinarySearchNode<Key> recursiveDelete(Key key, BinarySearchNode<Key> current, Deletion<Key> deletion){
+        if (current == null){
+            return null;
+        }
+        int comparison = comparator.compare(key, current.key);
+        if (comparison < 0){
+            BinarySearchNode<Key> left = recursiveDelete(key, current.left, deletion);
+            if (left == current.left){
+                return current;
+            }
+            return deletion.shorter ? repairLeft(isRed(current), left, current.key, current.right, deletion) : current.withChildren(left, current.right);
+        } else if (comparison > 0){
+            BinarySearchNode<Key> right = recursiveDelete(key, current.right, deletion);
+            if (right == current.right){
+                return current;
+            }
+            return deletion.shorter ? repairRight(isRed(current), current.left, current.key, right, deletion) : current.withChildren(current.left, right);
+        } else if (current.left != null && current.right != null){
+            // Two children; the in-order successor takes this node's place.
+            BinarySearchNode<Key> right = removeMin(current.right, deletion);
+            if (deletion.shorter){
+                return repairRight(isRed(current), current.left, deletion.least, right, deletion);
+            }
+            return node(isRed(current), current.left, deletion.least, right);
+        } else {
+            return removeSingle(current, current.left == null ? current.right : current.left, deletion);
+        }
+    }
+
+    /**
+     * Detach the least node of a subtree, leaving its Key in deletion.least.
+     * @return  New root of the subtree, with deletion.shorter set as by recursiveDelete.
+     */
+    private BinarySearchNode<Key> removeMin(BinarySearchNode<Key> current, Deletion<Key> deletion){
+        if (current.left == null){
+            deletion.least = current.key;
+            return removeSingle(current, current.right, deletion);
+        }
+        BinarySearchNode<Key> left = removeMin(current.left, deletion);
+        return deletion.shorter ? repairLeft(isRed(current), left, current.key, current.right, deletion) : current.withChildren(left, current.right);
+    }
+
+    /**
+     * Remove a node with at most one child.  Only a black node can have a single child, which is then a red leaf;
+     * blackening that child keeps the black height, while removing a black leaf loses one black.
+     */
+    private BinarySearchNode<Key> removeSingle(BinarySearchNode<Key> current, BinarySearchNode<Key> child, Deletion<Key> deletion){
+        if (child != null){
+            deletion.shorter = false;
+            return blacken(child);
+        }
+        deletion.shorter = !isRed(current);
+        return null;
+    }
+
+    /**
+     * Rebuild a node whose left subtree has lost one black from every path.
+     * The sibling, at least one black high, either lends a red node to absorb the loss, restructuring at most three nodes,
+     * or is reddened itself, when the loss passes up to the caller unless this node was red.
+     */
+    private BinarySearchNode<Key> repairLeft(boolean red, BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right, Deletion<Key> deletion){
+        if (isRed(right)){
+            // This node is black; rotate the sibling up, leaving this node red above a black nephew, which always absorbs the loss.
+            BinarySearchNode<Key> lowered = repairLeft(RED, left, key, right.left, deletion);
+            return node(BLACK, lowered, right.key, right.right);
+        }
+        deletion.shorter = false;
+        if (isRed(right.right)){
+            return node(red, node(BLACK, left, key, right.left), right.key, blacken(right.right));
+        }
+        if (isRed(right.left)){
+            BinarySearchNode<Key> middle = right.left;
+            return node(red, node(BLACK, left, key, middle.left), middle.key, node(BLACK, middle.right, right.key, right.right));
+        }
+        deletion.shorter = !red;
+        return node(BLACK, left, key, redden(right));
+    }
+
+    /**
+     * Rebuild a node whose right subtree has lost one black from every path; the mirror image of repairLeft.
+     */
+    private BinarySearchNode<Key> repairRight(boolean red, BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right, Deletion<Key> deletion){
+        if (isRed(left)){
+            BinarySearchNode<Key> lowered = repairRight(RED, left.right, key, right, deletion);
+            return node(BLACK, left.left, left.key, lowered);
+        }
+        deletion.shorter = false;
+        if (isRed(left.left)){
+            return node(red, blacken(left.left), left.key, node(BLACK, left.right, key, right));
+        }
+        if (isRed(left.right)){
+            BinarySearchNode<Key> middle = left.right;
+            return node(red, node(BLACK, left.left, left.key, middle.left), middle.key, node(BLACK, middle.right, key, right));
+        }
+        deletion.shorter = !red;
+        return node(BLACK, redden(left), key, right);
+    }
+
+    /**
+     * Rebuild a black node, repairing a red child with a red child of its own below it.
+     * Every such case is restructured into the same shape: a red node with two black children.
+     */
+    private BinarySearchNode<Key> balance(BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right){
+        if (isRed(left) && isRed(right)){
+            return node(RED, blacken(left), key, blacken(right));
+        }
+        if (isRed(left)){
+            if (isRed(left.left)){
+                return node(RED, blacken(left.left), left.key, node(BLACK, left.right, key, right));
+            }
+            if (isRed(left.right)){
+                return node(RED, node(BLACK, left.left, left.key, left.right.left), left.right.key, node(BLACK, left.right.right, key, right));
+            }
+        }
+        if (isRed(right)){
+            if (isRed(right.right)){
+                return node(RED, node(BLACK, left, key, right.left), right.key, blacken(right.right));
+            }
+            if (isRed(right.left)){
+                return node(RED, node(BLACK, left, key, right.left.left), right.left.key, node(BLACK, right.left.right, right.key, right.right));
+            }
+        }
+        return node(BLACK, left, key, right);
+    }
+
+    private BinarySearchNode<Key> node(boolean red, BinarySearchNode<Key> left, Key key, BinarySearchNode<Key> right){
+        return RedBlackNode.of(key, red, left, right);
+    }
+
+    private BinarySearchNode<Key> blacken(BinarySearchNode<Key> node){
+        return isRed(node) ? node(BLACK, node.left, node.key, node.right) : node;
+    }
+
+    /**
+     * @param node  Black node; the subtree's black height must be restored by the caller.
+     */
+    private BinarySearchNode<Key> redden(BinarySearchNode<Key> node){
+        if (!isBlack(node)){
+            throw new IllegalStateException("Red-black invariants violated: expected black node");
+        }
+        return node(RED, node.left, node.key, node.right);
+    }
+
+    private static boolean isRed(BinarySearchNode<?> node){
+        return node instanceof RedBlackNode.Red;
+    }
+
+    /**
+     * @return  Whether the node is present and black; an empty subtree counts as neither red nor black here.
+     */
+    private static boolean isBlack(BinarySearchNode<?> node){
+        return node instanceof RedBlackNode.Black;
+    }
+
+    /**
+     * State of a single delete, passed down its descent rather than kept on the shared tree.
+     */
+    private static final class Deletion<Key> {
+
+        /** Whether the subtree last rebuilt holds one black fewer on every path than before. */
+        boolean shorter;
+
+        /** Key of the node last detached by removeMin. */
+        Key least;
+    }
+
+    /**
+     * Validate binary search tree invariants, plus the red-black invariants:
+     * the root is black, no red node has a red child, and every path from the root passes the same number of black nodes.
+     * @throws InvalidSearchTreeException       Tree violates invariants.
+     */
+    @Override
+    public void validate() throws InvalidSearchTreeException {
+        super.validate();
+        if (isRed(root)){
+            throw new InvalidSearchTreeException(String.format("Red root, key %s", root.getKey().toString()));
+        }
+        recursiveValidateColor(root);
+    }
+
+    /**
+     * @return  Number of black nodes on every path from the given node down to an empty subtree.
+     */
+    private int recursiveValidateColor(BinarySearchNode<Key> current) throws InvalidSearchTreeException{
+        if (current == null){
+            return 0;
+        }
+        if (!(current instanceof RedBlackNode)){
+            throw new InvalidSearchTreeException(String.format("Uncolored node, key %s", current.getKey().toString()));
+        }
+        if (isRed(current) && (isRed(current.left) || isRed(current.right))){
+            throw new InvalidSearchTreeException(String.format("Red node with red child, key %s", current.getKey().toString()));
+        }
+        int leftBlackHeight = recursiveValidateColor(current.left);
+        int rightBlackHeight = recursiveValidateColor(current.right);
+        if (leftBlackHeight != rightBlackHeight){
+            throw new InvalidSearchTreeException(String.format("Unequal black heights for key %s, left %d, right %d", current.getKey().toString(), leftBlackHeight, rightBlackHeight));
+        }
+        return leftBlackHeight + (isRed(current) ? 0 : 1);
+    }
+}
@@ -0,0 +1,235 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Comparator;
+
+/**
+ * Mutable builder for batch edits of an AVLTree, obtained through {@link AVLTree#asTransient()}.
+ *
+ * The first edit along any path copies that path, exactly as AVLTree does; but the copies belong to this transient,
+ * and every later edit which reaches them updates them in place rather than copying again.
+ * Loading N keys into an empty transient therefore allocates about 2N nodes, rather than N log N: one owned node
+ * per key during the session, and one persistent copy of it when the session ends.
+ *
+ * The tree the transient was created from is never modified.  Calling {@link #persistent()} ends the session,
+ * copying each owned node into an immutable BinarySearchNode with final fields, after which the transient may no
+ * longer be used.
+ *
+ * A transient is not thread-safe; it should be confined to a single thread until persistent() is called.
+ */
+public final class TransientAVLTree<Key extends Comparable<Key>> {
+
+    private final Comparator<Key> comparator;
+    private BinarySearchNode<Key> root;
+
+    private boolean ended;
+
+    /**
+     * Begin a session over an existing tree.
+     * @param root          Existing root node.
+     * @param comparator    Comparator corresponding to current root node.
+     */
+    TransientAVLTree(BinarySearchNode<Key> root, Comparator<Key> comparator){
+        this.root = root;
+        this.comparator = comparator;
+    }
+
+    BinarySearchNode<Key> getRoot(){ return root; }
+
+    /**
+     * End the session, returning an immutable AVLTree containing every edit made.
+     * @return      Persistent tree.
+     */
+    public AVLTree<Key> persistent(){
+        ensureEditable();
+        ended = true;
+        return new AVLTree<>(freeze(root), comparator);
+    }
+
+    /**
+     * @return  Whether the tree is empty or not.
+     */
+    public boolean isEmpty(){
+        ensureEditable();
+        return root == null;
+    }
+
+    /**
+     * @return  Number of Keys in the tree.
+     */
+    public int size(){
+        ensureEditable();
+        return root == null ? 0 : root.getSize();
+    }
+
+    /**
+     * Determine whether or not the given Key is contained within the tree.
+     * @param key   Key to search for.
+     * @return      Presence of Key in tree.
+     */
+    public boolean contains(Key key){
+        ensureEditable();
+        BinarySearchNode<Key> current = root;
+        while (current != null){
+            int comparison = comparator.compare(key, current.getKey());
+            if (comparison == 0){
+                return true;
+            }
+            current = comparison < 0 ? current.getLeft() : current.getRight();
+        }
+        return false;
+    }
+
+    /**
+     * Insert a Key in place.
+     * If the inserted Key duplicates the same sorted location as an existing Key, the existing Key will be overwritten.
+     * @param key   Key to insert.
+     * @return      This transient, for chaining.
+     */
+    public TransientAVLTree<Key> insert(Key key){
+        ensureEditable();
+        root = recursiveInsert(key, root);
+        return this;
+    }
+
+    /**
+     * Delete a Key in place.
+     * If the given Key is not contained within the tree, no node is copied.
+     * @param key   Key to delete.
+     * @return      This transient, for chaining.
+     */
+    public TransientAVLTree<Key> delete(Key key){
+        ensureEditable();
+        if (contains(key)){
+            root = recursiveDelete(key, root);
+        }
+        return this;
+    }
+
+    private void ensureEditable(){
+        if (ended){
+            throw new IllegalStateException("Transient used after persistent() call");
+        }
+    }
+
+    /**
+     * Copy every owned node reachable from the given node into an immutable BinarySearchNode.
+     * Subtrees which are not owned were shared from a persistent tree, and so contain no owned nodes themselves.
+     */
+    private static <Key extends Comparable<Key>> BinarySearchNode<Key> freeze(BinarySearchNode<Key> node){
+        if (!(node instanceof TransientNode)){
+            return node;
+        }
+        return new BinarySearchNode<>(node.getKey(), freeze(node.getLeft()), freeze(node.getRight()));
+    }
+
+    /**
+     * @return      The given node if already owned by this session, else an owned copy of it.
+     */
+    private TransientNode<Key> editable(BinarySearchNode<Key> node){
+        if (node instanceof TransientNode){
+            return (TransientNode<Key>) node;
+        } else {
+            return new TransientNode<>(node.getKey(), node.getLeft(), node.getRight());
+        }
+    }
+
+    private BinarySearchNode<Key> recursiveInsert(Key key, BinarySearchNode<Key> current){
+        if (current == null){
+            return new TransientNode<>(key);
+        }
+        int comparison = comparator.compare(key, current.getKey());
+        TransientNode<Key> root = editable(current);
+        if (comparison < 0){
+            root.setChildren(recursiveInsert(key, root.getLeft()), root.getRight());
+            return rotateRightIfUnbalanced(root);
+        } else if (comparison > 0){
+            root.setChildren(root.getLeft(), recursiveInsert(key, root.getRight()));
+            return rotateLeftIfUnbalanced(root);
+        } else {
+            // Duplicate key found; replace this.
+            root.setKey(key);
+            return root;
+        }
+    }
+
+    /**
+     * Delete a Key known to be present in the subtree rooted at current.
+     */
+    private BinarySearchNode<Key> recursiveDelete(Key key, BinarySearchNode<Key> current){
+        int comparison = comparator.compare(key, current.getKey());
+        if (comparison < 0){
+            TransientNode<Key> root = editable(current);
+            root.setChildren(recursiveDelete(key, root.getLeft()), root.getRight());
+            return rotateLeftIfUnbalanced(root);
+        } else if (comparison > 0){
+            TransientNode<Key> root = editable(current);
+            root.setChildren(root.getLeft(), recursiveDelete(key, root.getRight()));
+            return rotateRightIfUnbalanced(root);
+        } else if (current.hasLeft() && current.hasRight()){
+            // Two children!  Take the replacement from the taller subtree, so that no rotation is needed here.
+            Key replacementKey;
+            BinarySearchNode<Key> child;
+            if (current.getBalanceFactor() > -1){
+                child = current.getRight();
+                while (child.hasLeft()){
+                    child = child.getLeft();
+                }
+            } else {
+                child = current.getLeft();
+                while (child.hasRight()){
+                    child = child.getRight();
+                }
+            }
+            replacementKey = child.getKey();
+
+            // Delete replacement from this subtree, then let it take over this position.
+            TransientNode<Key> root = editable(recursiveDelete(replacementKey, current));
+            root.setKey(replacementKey);
+            return root;
+        } else {
+            return current.hasLeft() ? current.getLeft() : current.getRight();
+        }
+    }
+
+    private BinarySearchNode<Key> rotateRightIfUnbalanced(TransientNode<Key> root){
+        if (root.getBalanceFactor() < -1){
+            // If left subtree is larger on the right, left subtree must be rotated left before this node rotates right.
+            if (root.getLeft().getBalanceFactor() > 0){
+                root.setChildren(rotateLeft(editable(root.getLeft())), root.getRight());
+            }
+            return rotateRight(root);
+        }
+        return root;
+    }
+
+    private BinarySearchNode<Key> rotateLeftIfUnbalanced(TransientNode<Key> root){
+        if (root.getBalanceFactor() > 1){
+            // If right subtree is larger on the left, right subtree must be rotated right before this node rotates left.
+            if (root.getRight().getBalanceFactor() < 0){
+                root.setChildren(root.getLeft(), rotateRight(editable(root.getRight())));
+            }
+            return rotateLeft(root);
+        }
+        return root;
+    }
+
+    /**
+     * In-place equivalent of the AVLTree left rotation; the pivot to the right becomes the root of this subtree.
+     */
+    private TransientNode<Key> rotateLeft(TransientNode<Key> current){
+        TransientNode<Key> pivot = editable(current.getRight());
+        current.setChildren(current.getLeft(), pivot.getLeft());
+        pivot.setChildren(current, pivot.getRight());
+        return pivot;
+    }
+
+    /**
+     * In-place equivalent of the AVLTree right rotation; the pivot to the left becomes the root of this subtree.
+     */
+    private TransientNode<Key> rotateRight(TransientNode<Key> current){
+        TransientNode<Key> pivot = editable(current.getLeft());
+        current.setChildren(pivot.getRight(), current.getRight());
+        pivot.setChildren(pivot.getLeft(), current);
+        return pivot;
+    }
+}
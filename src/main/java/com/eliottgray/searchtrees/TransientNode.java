@@ -0,0 +1,70 @@
+package com.eliottgray.searchtrees;
+
+/**
+ * A node created within a TransientAVLTree session, which that session alone edits in place.
+ *
+ * The fields inherited from Node and BinarySearchNode stay final and unused; the node's real state lives in
+ * fields of its own, read through the overridden getters.  A TransientNode never leaves its session:
+ * {@link TransientAVLTree#persistent()} copies every one reachable from the root into a plain BinarySearchNode.
+ */
+final class TransientNode<Key extends Comparable<Key>> extends BinarySearchNode<Key> {
+
+    private Key currentKey;
+    private BinarySearchNode<Key> currentLeft;
+    private BinarySearchNode<Key> currentRight;
+    private int currentHeight;
+    private int currentSize;
+
+    /**
+     * Construct new leaf node.
+     * @param key   Comparable Key for node.
+     */
+    TransientNode(Key key){
+        this(key, null, null);
+    }
+
+    /**
+     * Construct an editable copy of an existing node.
+     * @param key       Comparable Key for node.
+     * @param left      Existing left child.
+     * @param right     Existing right child.
+     */
+    TransientNode(Key key, BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        super(null);
+        this.currentKey = key;
+        setChildren(left, right);
+    }
+
+    @Override
+    Key getKey(){ return currentKey; }
+    @Override
+    BinarySearchNode<Key> getLeft(){ return currentLeft; }
+    @Override
+    BinarySearchNode<Key> getRight(){ return currentRight; }
+    @Override
+    int getHeight(){ return currentHeight; }
+    @Override
+    int getSize(){ return currentSize; }
+
+    /**
+     * Replace both children in place, recomputing height and size.
+     * @param left      New left child.
+     * @param right     New right child.
+     */
+    void setChildren(BinarySearchNode<Key> left, BinarySearchNode<Key> right){
+        int leftHeight = left == null ? 0 : left.getHeight();
+        int rightHeight = right == null ? 0 : right.getHeight();
+        this.currentLeft = left;
+        this.currentRight = right;
+        this.currentSize = 1 + (left == null ? 0 : left.getSize()) + (right == null ? 0 : right.getSize());
+        this.currentHeight = Math.max(leftHeight, rightHeight) + 1;
+    }
+
+    /**
+     * Replace the key in place.
+     * @param key   New key, occupying the same sorted position.
+     */
+    void setKey(Key key){
+        this.currentKey = key;
+    }
+}
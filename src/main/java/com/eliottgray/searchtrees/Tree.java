@@ -1,9 +1,20 @@
 package com.eliottgray.searchtrees;
 
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-
-public abstract class Tree <Key extends Comparable<Key>> {
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base of every immutable tree in this package.
+ *
+ * Trees and their nodes hold only final fields, so a tree may be handed to other threads through any means,
+ * including a data race, and every reader will see it fully constructed.  Code which adds a node type must keep its
+ * fields final for this to remain true; in-place edits belong in a transient, such as TransientAVLTree, whose nodes
+ * are copied into final form before they are published.
+ */
+public abstract class Tree <Key extends Comparable<Key>> implements Iterable<Key> {
 
     final Comparator<Key> comparator;
 
@@ -12,7 +23,7 @@ public abstract class Tree <Key extends Comparable<Key>> {
      * Comparison of Keys will be performed with the default compareTo method of the Key.
      */
     public Tree(){
-        this.comparator = Comparable::compareTo;
+        this.comparator = Comparator.naturalOrder();
     }
 
     /**
@@ -24,6 +35,13 @@ public abstract class Tree <Key extends Comparable<Key>> {
         this.comparator = comparator;
     }
 
+    /**
+     * @return  Comparator of this tree, or null if Keys are in their natural order, as SortedSet and Spliterator report it.
+     */
+    Comparator<Key> reportedComparator(){
+        return comparator == Comparator.<Key>naturalOrder() ? null : comparator;
+    }
+
     /**
      * @return  Root Node of Tree..
      */
@@ -72,6 +90,28 @@ public abstract class Tree <Key extends Comparable<Key>> {
      */
     public abstract boolean contains(Key key);
 
+    /**
+     * Walk the Keys in ascending order, lazily; unlike toAscendingList, nothing is copied up front,
+     * so callers which stop early only pay for the Keys they visit.
+     * @return  Iterator over Keys in ascending order.
+     */
+    @Override
+    public abstract Iterator<Key> iterator();
+
+    /**
+     * @return  Sequential Stream of Keys in ascending order.
+     */
+    public Stream<Key> stream(){
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return  Parallel Stream of Keys in ascending order.
+     */
+    public Stream<Key> parallelStream(){
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * @return  List of Keys in ascending order.
      */
@@ -85,6 +125,17 @@ public abstract class Tree <Key extends Comparable<Key>> {
      */
     public abstract List<Key> getRange(Key start, Key end);
 
+    /**
+     * Count the Keys between the given start and end, inclusive; the count matches the size of getRange.
+     * Subclasses which store subtree sizes override this to count without materializing the range.
+     * @param start     Start Key.
+     * @param end       End Key.
+     * @return          Number of Keys within range, inclusive.
+     */
+    public int countRange(Key start, Key end){
+        return getRange(start, end).size();
+    }
+
     /**
      * @return  Minimum Key.
      */
@@ -0,0 +1,102 @@
+package com.eliottgray.searchtrees;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads the records of a {@link TreeDeltaWriter}, in the order written, rebuilding each version of the tree.
+ *
+ * Nodes are remembered by the number the writer gave them, so each version shares every node it refers to
+ * with the versions read before it, exactly as the written trees did.
+ * Node shapes are restored exactly, so a tree written balanced is read back balanced.
+ */
+public final class TreeDeltaReader<Key extends Comparable<Key>> {
+
+    private final KeyCodec<Key> codec;
+    private final Comparator<Key> comparator;
+    private final ByteBuffer keyBuffer;
+
+    private final List<BinarySearchNode<Key>> nodes = new ArrayList<>();
+    private long lastVersion = -1;
+    private boolean started = false;
+
+    /**
+     * Reader for trees ordered by the default compareTo method of Key.
+     * @param codec     Encoding of Keys, as written.
+     */
+    public TreeDeltaReader(KeyCodec<Key> codec){
+        this(codec, Comparator.naturalOrder());
+    }
+
+    /**
+     * @param codec         Encoding of Keys, as written.
+     * @param comparator    Comparator of the trees as written.
+     */
+    public TreeDeltaReader(KeyCodec<Key> codec, Comparator<Key> comparator){
+        this.codec = codec;
+        this.comparator = comparator;
+        this.keyBuffer = ByteBuffer.allocate(codec.width());
+    }
+
+    /**
+     * Read the next record.
+     * @param in    Source of the record.
+     * @return      Tree written in the record, sharing nodes with the trees read before it.
+     * @throws IOException  Failure to read, or a delta which does not follow the last version read.
+     */
+    public AVLTree<Key> read(DataInput in) throws IOException {
+        try {
+            byte type = in.readByte();
+            long version = in.readLong();
+            if (type == TreeDeltaWriter.FULL){
+                nodes.clear();
+            } else if (type != TreeDeltaWriter.DELTA){
+                throw new IOException("Unknown record type " + type);
+            } else if (!started || version != lastVersion + 1){
+                throw new IOException(String.format("Delta of version %d does not follow version %d", version, lastVersion));
+            }
+
+            int count = in.readInt();
+            if (count < 0){
+                throw new IOException("Negative node count " + count);
+            }
+            for (int index = 0; index < count; index++){
+                in.readFully(keyBuffer.array(), 0, keyBuffer.capacity());
+                Key key = codec.read(keyBuffer, 0);
+                BinarySearchNode<Key> left = resolve(in.readLong());
+                BinarySearchNode<Key> right = resolve(in.readLong());
+                nodes.add(new BinarySearchNode<>(key, left, right));
+            }
+            BinarySearchNode<Key> root = resolve(in.readLong());
+
+            started = true;
+            lastVersion = version;
+            return new AVLTree<>(root, comparator);
+        } catch (IOException e){
+            // Nodes of a partly read record may be remembered; only a full record can follow.
+            started = false;
+            throw e;
+        }
+    }
+
+    /**
+     * @return  Version of the last tree read, or -1 if none has been read.
+     */
+    public long getLastVersion(){
+        return lastVersion;
+    }
+
+    private BinarySearchNode<Key> resolve(long reference) throws IOException {
+        if (reference == TreeDeltaWriter.NO_NODE){
+            return null;
+        }
+        if (reference < 0 || reference >= nodes.size()){
+            throw new IOException(String.format("Reference %d to unknown node; %d nodes known", reference, nodes.size()));
+        }
+        return nodes.get((int) reference);
+    }
+}
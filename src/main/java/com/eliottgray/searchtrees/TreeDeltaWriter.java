@@ -0,0 +1,112 @@
+package com.eliottgray.searchtrees;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes successive versions of a persistent AVLTree, each as only the nodes not written for an earlier version.
+ *
+ * Every insert or delete copies only the path to the changed Key, sharing every other node with the previous version;
+ * this writer remembers, by identity, each node it has written, and writes a node again only by reference.
+ * Checkpointing a version that differs from the last by k changes therefore writes O(k log n) nodes.
+ *
+ * Nodes are numbered in the order written, from zero, and written in post-order, so that each node refers only
+ * to nodes written before it.  Once the remembered nodes outnumber the current tree twice over, or after a reset,
+ * the next version is written in full, and numbering restarts; this bounds the memory of both writer and reader.
+ *
+ *      Record layout, as written by DataOutput:
+ *      byte        FULL or DELTA.
+ *      long        Version; zero for the first, and one more for each following.
+ *      int         Number of nodes written.
+ *      nodes       Key, in the form written by the KeyCodec, then long left and right references; -1 for no child.
+ *      long        Reference to the root; -1 for an empty tree.
+ *
+ * Only Keys are written; the values of an AVLTreeMap are not.  Read records back with {@link TreeDeltaReader}.
+ */
+public final class TreeDeltaWriter<Key extends Comparable<Key>> {
+
+    static final byte FULL = 0;
+    static final byte DELTA = 1;
+    static final long NO_NODE = -1;
+
+    private final KeyCodec<Key> codec;
+    private final ByteBuffer keyBuffer;
+
+    private final Map<BinarySearchNode<Key>, Long> written = new IdentityHashMap<>();
+    private long nextId;
+    private long nextVersion;
+    private boolean fullRequired = true;
+
+    /**
+     * @param codec     Encoding of Keys.
+     */
+    public TreeDeltaWriter(KeyCodec<Key> codec){
+        this.codec = codec;
+        this.keyBuffer = ByteBuffer.allocate(codec.width());
+    }
+
+    /**
+     * Write the given tree as the next version.
+     * Only AVLTrees are accepted, since the reader rebuilds an AVLTree of exactly the written shape,
+     * and the shape of any other BinarySearchTree need not satisfy AVL balance.
+     * @param tree  Tree to write.
+     * @param out   Destination of the record.
+     * @return      Number of nodes written; the remainder are shared with earlier versions.
+     * @throws IOException  Failure to write; the next version will be written in full.
+     */
+    public int write(AVLTree<Key> tree, DataOutput out) throws IOException {
+        boolean full = fullRequired || written.size() > 2 * Math.max(tree.size(), 1);
+        if (full){
+            written.clear();
+            nextId = 0;
+        }
+        List<BinarySearchNode<Key>> fresh = new ArrayList<>();
+        collectUnwritten(tree.root, fresh);
+
+        // A failure part way leaves the reader unable to follow; start again from a full version.
+        fullRequired = true;
+        out.writeByte(full ? FULL : DELTA);
+        out.writeLong(nextVersion);
+        out.writeInt(fresh.size());
+        for (BinarySearchNode<Key> node : fresh){
+            keyBuffer.clear();
+            codec.write(keyBuffer, 0, node.key);
+            out.write(keyBuffer.array(), 0, keyBuffer.capacity());
+            out.writeLong(reference(node.left));
+            out.writeLong(reference(node.right));
+        }
+        out.writeLong(reference(tree.root));
+        fullRequired = false;
+        nextVersion++;
+        return fresh.size();
+    }
+
+    /**
+     * Forget every written node, so that the next version is written in full.
+     */
+    public void reset(){
+        fullRequired = true;
+    }
+
+    /**
+     * Number the nodes not yet written, children before parents; a written node's whole subtree is already written.
+     */
+    private void collectUnwritten(BinarySearchNode<Key> node, List<BinarySearchNode<Key>> fresh){
+        if (node == null || written.containsKey(node)){
+            return;
+        }
+        collectUnwritten(node.left, fresh);
+        collectUnwritten(node.right, fresh);
+        written.put(node, nextId++);
+        fresh.add(node);
+    }
+
+    private long reference(BinarySearchNode<Key> node){
+        return node == null ? NO_NODE : written.get(node);
+    }
+}
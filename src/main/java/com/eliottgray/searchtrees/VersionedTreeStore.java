@@ -0,0 +1,235 @@
+package com.eliottgray.searchtrees;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Multi-version store of a persistent AVLTree: every commit is numbered, and readers pin the version they read.
+ *
+ * Each commit publishes a new tree under the next version number; versions share every node they did not change,
+ * so keeping an old version costs only the nodes since copied.  A reader pins a version for as long as it scans,
+ * without copying the tree, and without holding up writers, which never touch an existing tree.
+ * A version is retained while pinned, or while among the most recent few; once neither, it is dropped,
+ * and the nodes only it referred to become garbage.
+ *
+ * Commits are serialized under a lock of their own, and the update runs under that lock alone; only publishing the result
+ * takes the lock guarding the retained versions, which pins and releases also take briefly.
+ * Reading the latest tree, or a pinned one, takes no lock, so no reader waits on a running update.
+ */
+public final class VersionedTreeStore<Key extends Comparable<Key>> {
+
+    private final int retainedRecent;
+
+    // Serializes commits, for the whole of each update.
+    private final Object commitLock = new Object();
+
+    // Guards versions, pin counts, and writes to latest.
+    private final Object lock = new Object();
+    private final TreeMap<Long, Version<Key>> versions = new TreeMap<>();
+    private volatile Version<Key> latest;
+
+    /**
+     * Store retaining only the latest version, and those pinned.
+     * @param initial   Tree to commit as version zero.
+     */
+    public VersionedTreeStore(AVLTree<Key> initial){
+        this(initial, 1);
+    }
+
+    /**
+     * @param initial           Tree to commit as version zero.
+     * @param retainedRecent    Number of most recent versions retained whether pinned or not; at least one.
+     */
+    public VersionedTreeStore(AVLTree<Key> initial, int retainedRecent){
+        if (initial == null){
+            throw new NullPointerException("Initial tree");
+        }
+        if (retainedRecent < 1){
+            throw new IllegalArgumentException("Must retain at least the latest version: " + retainedRecent);
+        }
+        this.retainedRecent = retainedRecent;
+        this.latest = new Version<>(0, initial);
+        versions.put(0L, latest);
+    }
+
+    /**
+     * @param key   Key to insert.
+     * @return      Version committed.
+     */
+    public long insert(Key key){
+        return commit(tree -> tree.insert(key));
+    }
+
+    /**
+     * @param key   Key to delete.
+     * @return      Version committed.
+     */
+    public long delete(Key key){
+        return commit(tree -> tree.delete(key));
+    }
+
+    /**
+     * Apply an update to the latest tree, and commit the result as the next version.
+     * Commits are serialized, so the update always sees the latest version.
+     * @param function  Update, returning the updated tree.
+     * @return          Version committed.
+     */
+    public long commit(UnaryOperator<AVLTree<Key>> function){
+        synchronized (commitLock){
+            // Only commits replace latest, so it cannot change while the update runs.
+            Version<Key> base = latest;
+            AVLTree<Key> updated = function.apply(base.tree);
+            if (updated == null){
+                throw new NullPointerException("Updated tree");
+            }
+            Version<Key> committed = new Version<>(base.number + 1, updated);
+            synchronized (lock){
+                versions.put(committed.number, committed);
+                latest = committed;
+                prune();
+            }
+            return committed.number;
+        }
+    }
+
+    /**
+     * @return  Number of the latest committed version.
+     */
+    public long getLatestVersion(){
+        return latest.number;
+    }
+
+    /**
+     * Latest tree, unpinned; it stays consistent however long it is held, but its version may be dropped meanwhile.
+     * @return  Latest committed tree.
+     */
+    public AVLTree<Key> current(){
+        return latest.tree;
+    }
+
+    /**
+     * Pin the latest version.
+     * @return  Snapshot of the latest version; close it to release the pin.
+     */
+    public Snapshot<Key> pin(){
+        synchronized (lock){
+            return pinVersion(latest);
+        }
+    }
+
+    /**
+     * Pin a retained version.
+     * @param version   Version to pin.
+     * @return          Snapshot of the version; close it to release the pin.
+     * @throws NoSuchElementException   Version was never committed, or has been dropped.
+     */
+    public Snapshot<Key> pin(long version){
+        synchronized (lock){
+            Version<Key> pinned = versions.get(version);
+            if (pinned == null){
+                throw new NoSuchElementException(String.format("Version %d not retained; latest is %d", version, latest.number));
+            }
+            return pinVersion(pinned);
+        }
+    }
+
+    private Snapshot<Key> pinVersion(Version<Key> version){
+        version.pins++;
+        return new Snapshot<>(this, version);
+    }
+
+    private void release(Version<Key> version){
+        synchronized (lock){
+            version.pins--;
+            prune();
+        }
+    }
+
+    /**
+     * Drop every version which is neither pinned nor among the most recent.
+     */
+    private void prune(){
+        long oldestRecent = latest.number - retainedRecent + 1;
+        Iterator<Map.Entry<Long, Version<Key>>> iterator = versions.headMap(oldestRecent, false).entrySet().iterator();
+        while (iterator.hasNext()){
+            if (iterator.next().getValue().pins == 0){
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return  Number of versions retained, whether pinned or recent.
+     */
+    public int getRetainedVersionCount(){
+        synchronized (lock){
+            return versions.size();
+        }
+    }
+
+    /**
+     * @return  Number of the oldest retained version.
+     */
+    public long getOldestRetainedVersion(){
+        synchronized (lock){
+            return versions.firstKey();
+        }
+    }
+
+    /**
+     * A committed tree, and the number of readers pinning it; pins are guarded by the store's lock.
+     */
+    private static final class Version<Key extends Comparable<Key>> {
+        final long number;
+        final AVLTree<Key> tree;
+        int pins;
+
+        Version(long number, AVLTree<Key> tree){
+            this.number = number;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * A pinned version; the version is retained until every Snapshot of it is closed.
+     */
+    public static final class Snapshot<Key extends Comparable<Key>> implements AutoCloseable {
+        private final VersionedTreeStore<Key> store;
+        private final Version<Key> version;
+        private boolean released;
+
+        private Snapshot(VersionedTreeStore<Key> store, Version<Key> version){
+            this.store = store;
+            this.version = version;
+        }
+
+        /**
+         * @return  Number of the pinned version.
+         */
+        public long getVersion(){
+            return version.number;
+        }
+
+        /**
+         * The tree remains readable after close, but the store no longer retains its version.
+         * @return  Tree of the pinned version.
+         */
+        public AVLTree<Key> getTree(){
+            return version.tree;
+        }
+
+        /**
+         * Release the pin; closing again has no effect.
+         */
+        @Override
+        public synchronized void close(){
+            if (!released){
+                released = true;
+                store.release(version);
+            }
+        }
+    }
+}
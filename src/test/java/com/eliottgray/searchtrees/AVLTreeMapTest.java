@@ -0,0 +1,149 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class AVLTreeMapTest {
+
+    @Test
+    public void testPutAndGet(){
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+
+        map = map.put(2, "two").put(1, "one").put(3, "three");
+        assertEquals(3, map.size());
+        assertEquals("one", map.get(1));
+        assertEquals("two", map.get(2));
+        assertEquals("three", map.get(3));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(3));
+        assertFalse(map.containsKey(4));
+    }
+
+    @Test
+    public void testPut_replacesValue(){
+        AVLTreeMap<Integer, String> original = new AVLTreeMap<Integer, String>().put(1, "one");
+        AVLTreeMap<Integer, String> replaced = original.put(1, "uno");
+
+        assertEquals(1, replaced.size());
+        assertEquals("uno", replaced.get(1));
+        assertEquals("one", original.get(1));
+    }
+
+    @Test
+    public void testRemove(){
+        AVLTreeMap<Integer, String> original = new AVLTreeMap<Integer, String>().put(1, "one").put(2, "two");
+        AVLTreeMap<Integer, String> removed = original.remove(1);
+
+        assertEquals(1, removed.size());
+        assertNull(removed.get(1));
+        assertEquals("two", removed.get(2));
+        assertEquals("one", original.get(1));
+        assertSame(removed, removed.remove(1));
+    }
+
+    /**
+     * Values must follow their Keys through every rotation of inserts and deletes.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeMap() throws InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        AVLTreeMap<Integer, Integer> actual = new AVLTreeMap<>();
+        for (int step = 0; step < 5000; step++){
+            int key = random.nextInt(500);
+            if (random.nextInt(3) == 0){
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                actual = actual.put(key, value);
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), actual.toAscendingList());
+        for (int key = 0; key < 500; key++){
+            assertEquals(expected.get(key), actual.get(key));
+        }
+    }
+
+    /**
+     * Keys are viewed in order, and the view cannot change the map.
+     */
+    @Test
+    public void testKeys_readOnlyView(){
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<Integer, String>().put(3, "three").put(1, "one").put(2, "two");
+        NavigableSet<Integer> keys = map.keys();
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(keys));
+        assertEquals(Integer.valueOf(2), keys.floor(2));
+        try {
+            keys.remove(1);
+            fail("Key view modified");
+        } catch (UnsupportedOperationException expected){
+            // Immutable, as intended.
+        }
+        assertEquals(3, map.size());
+    }
+
+    /**
+     * An update copies only the path to the updated Key; the opposite subtree is shared with the previous version.
+     */
+    @Test
+    public void testPut_sharesStructure(){
+        AVLTreeMap<Integer, String> original = new AVLTreeMap<>();
+        for (int key = 0; key < 15; key++){
+            original = original.put(key, Integer.toString(key));
+        }
+        AVLTreeMap<Integer, String> updated = original.put(0, "zero");
+
+        BinarySearchNode<Integer> originalRoot = original.getRoot();
+        BinarySearchNode<Integer> updatedRoot = updated.getRoot();
+        assertNotSame(originalRoot, updatedRoot);
+        assertSame(originalRoot.right, updatedRoot.right);
+        assertEquals("0", original.get(0));
+        assertEquals("zero", updated.get(0));
+    }
+
+    @Test
+    public void testGetRange(){
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<>();
+        for (int key = 0; key < 10; key++){
+            map = map.put(key, Integer.toString(key));
+        }
+        List<Map.Entry<Integer, String>> expected = new ArrayList<>();
+        for (int key = 3; key <= 6; key++){
+            expected.add(new AbstractMap.SimpleImmutableEntry<>(key, Integer.toString(key)));
+        }
+        assertEquals(expected, map.getRange(3, 6));
+        assertEquals(4, map.countRange(3, 6));
+        assertTrue(map.getRange(20, 30).isEmpty());
+    }
+
+    @Test
+    public void testComparator(){
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<Integer, String>(Comparator.reverseOrder())
+                .put(1, "one").put(2, "two").put(3, "three");
+        assertEquals(3, (int) map.toAscendingList().get(0).getKey());
+        assertEquals("two", map.get(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEntry_isImmutable(){
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<Integer, String>().put(1, "one");
+        map.toAscendingList().get(0).setValue("uno");
+    }
+}
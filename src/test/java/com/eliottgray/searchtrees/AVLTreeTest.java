@@ -4,8 +4,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -344,4 +349,270 @@ public class AVLTreeTest extends TreeTestSkeleton {
         assertNotEquals(testTree.getRoot(), postDelete.getRoot());
         assertEquals(testTree.getRoot().right, postDelete.getRoot().right);
     }
+
+    /**
+     * Deleting an absent Key must return the same tree, wherever its search ends.
+     */
+    @Test
+    public void testDelete_absentKeyReturnsSameTree(){
+        for (int key = 0; key < 20; key += 2){
+            testTree = testTree.insert(key);
+        }
+        for (int key = -1; key < 21; key += 2){
+            assertSame(testTree, testTree.delete(key));
+        }
+    }
+
+    /**
+     * Bulk construction from sorted input must produce a valid, balanced tree of every size.
+     */
+    @Test
+    public void fromSorted_everySize() throws InvalidSearchTreeException{
+        List<Integer> keys = new ArrayList<>();
+        for (int size = 0; size <= 100; size++){
+            AVLTree<Integer> fromList = AVLTree.fromSorted(keys);
+            AVLTree<Integer> fromArray = AVLTree.fromSortedArray(keys.toArray(new Integer[0]));
+            fromList.validate();
+            fromArray.validate();
+            assertEquals(size, fromList.size());
+            assertEquals(keys, fromList.toAscendingList());
+            assertEquals(keys, fromArray.toAscendingList());
+            if (size > 0){
+                // Perfectly balanced; height is the minimum possible.
+                int minimumHeight = 32 - Integer.numberOfLeadingZeros(size);
+                assertEquals(minimumHeight, fromList.getRoot().height);
+                assertEquals(minimumHeight, fromArray.getRoot().height);
+            }
+            keys.add(size * 2);
+        }
+    }
+
+    /**
+     * Bulk construction accepts any Iterable, and a custom comparator, and the result remains usable as a normal tree.
+     */
+    @Test
+    public void fromSorted_iterableWithComparator() throws InvalidSearchTreeException{
+        Comparator<Integer> descending = (one, two) -> two.compareTo(one);
+        Iterable<Integer> keys = () -> java.util.stream.IntStream.rangeClosed(1, 10).map(value -> 11 - value).iterator();
+
+        AVLTree<Integer> tree = AVLTree.fromSorted(keys, descending);
+        tree.validate();
+        assertEquals(10, tree.size());
+        assertEquals(Integer.valueOf(10), tree.getMin());
+        assertEquals(Integer.valueOf(1), tree.getMax());
+
+        tree = tree.insert(0).delete(5);
+        tree.validate();
+        assertTrue(tree.contains(0));
+        assertFalse(tree.contains(5));
+        assertEquals(Integer.valueOf(0), tree.getMax());
+    }
+
+    /**
+     * Splitting around every present and absent Key must partition the tree, into two valid AVL trees.
+     */
+    @Test
+    public void split_partitionsTree() throws InvalidSearchTreeException{
+        for (int value = 0; value < 100; value += 2){
+            testTree = testTree.insert(value);
+        }
+
+        for (int key = -1; key <= 100; key++){
+            AVLTree.Split<Integer> split = testTree.split(key);
+            split.getLeft().validate();
+            split.getRight().validate();
+            assertEquals(key >= 0 && key < 100 && key % 2 == 0, split.isPresent());
+            assertEquals(testTree.getRange(Integer.MIN_VALUE, key - 1), split.getLeft().toAscendingList());
+            assertEquals(testTree.getRange(key + 1, Integer.MAX_VALUE), split.getRight().toAscendingList());
+        }
+
+        // The original tree is untouched.
+        assertEquals(50, testTree.size());
+        testTree.validate();
+    }
+
+    /**
+     * Joining trees of very different heights must produce a valid AVL tree, containing every Key in order.
+     */
+    @Test
+    public void join_treesOfDifferentHeights() throws InvalidSearchTreeException{
+        for (int leftSize = 0; leftSize <= 64; leftSize += 7){
+            for (int rightSize = 0; rightSize <= 300; rightSize += 23){
+                AVLTree<Integer> left = new AVLTree<>();
+                for (int value = 0; value < leftSize; value++){
+                    left = left.insert(value);
+                }
+                AVLTree<Integer> right = new AVLTree<>();
+                for (int value = leftSize + 1; value <= leftSize + rightSize; value++){
+                    right = right.insert(value);
+                }
+
+                AVLTree<Integer> joined = AVLTree.join(left, leftSize, right);
+                joined.validate();
+                assertEquals(leftSize + rightSize + 1, joined.size());
+                assertEquals(Integer.valueOf(0), joined.getMin());
+                assertEquals(Integer.valueOf(leftSize + rightSize), joined.getMax());
+            }
+        }
+    }
+
+    /**
+     * Joining trees whose Keys are out of order must be rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void join_rejectsOverlappingTrees(){
+        AVLTree<Integer> left = testTree.insert(1).insert(5);
+        AVLTree<Integer> right = testTree.insert(4).insert(8);
+        AVLTree.join(left, 3, right);
+    }
+
+    /**
+     * Splitting and joining back around the same Key must restore the same contents.
+     */
+    @Test
+    public void splitThenJoin_restoresTree() throws InvalidSearchTreeException{
+        for (int value = 0; value < 1000; value++){
+            testTree = testTree.insert(value);
+        }
+
+        AVLTree.Split<Integer> split = testTree.split(500);
+        AVLTree<Integer> rejoined = AVLTree.join(split.getLeft(), 500, split.getRight());
+        rejoined.validate();
+        assertEquals(testTree.toAscendingList(), rejoined.toAscendingList());
+    }
+
+    /**
+     * Union of large overlapping trees must match a sorted set union, across both the sequential and parallel paths.
+     */
+    @Test
+    public void union_overlappingTrees() throws InvalidSearchTreeException{
+        TreeSet<Integer> expected = new TreeSet<>();
+        TransientAVLTree<Integer> evens = new AVLTree<Integer>().asTransient();
+        TransientAVLTree<Integer> triples = new AVLTree<Integer>().asTransient();
+        for (int value = 0; value < 60000; value += 2){
+            evens.insert(value);
+            expected.add(value);
+        }
+        for (int value = 0; value < 90000; value += 3){
+            triples.insert(value);
+            expected.add(value);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AVLTree<Integer> union = evens.persistent().union(triples.persistent(), pool);
+            union.validate();
+            assertEquals(new ArrayList<>(expected), union.toAscendingList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Union with an empty tree, or with a tree sharing the same root, must reuse the existing nodes.
+     */
+    @Test
+    public void union_reusesSharedSubtrees() throws InvalidSearchTreeException{
+        for (int value = 0; value < 100; value++){
+            testTree = testTree.insert(value);
+        }
+        AVLTree<Integer> empty = buildEmptyTree(Integer::compareTo);
+
+        assertSame(testTree.getRoot(), testTree.union(testTree).getRoot());
+        assertSame(testTree.getRoot(), testTree.union(empty).getRoot());
+        assertSame(testTree.getRoot(), empty.union(testTree).getRoot());
+
+        // After a single insert, only the modified path differs; the union must still be correct and balanced.
+        AVLTree<Integer> modified = testTree.insert(1000);
+        AVLTree<Integer> union = testTree.union(modified);
+        union.validate();
+        assertEquals(modified.toAscendingList(), union.toAscendingList());
+    }
+
+    /**
+     * Where both trees hold Keys of the same sorted location, the Key of the other tree wins, as with insert.
+     */
+    @Test
+    public void union_keepsKeysOfOtherTree(){
+        Comparator<Integer> absolute = Comparator.comparingInt(Math::abs);
+        AVLTree<Integer> positives = new AVLTree<>(absolute).insert(1).insert(2).insert(3);
+        AVLTree<Integer> negatives = new AVLTree<>(absolute).insert(-2).insert(-4);
+
+        List<Integer> expectedOrder = new ArrayList<Integer>(){{add(1); add(-2); add(3); add(-4);}};
+        assertEquals(expectedOrder, positives.union(negatives).toAscendingList());
+    }
+
+    /**
+     * Intersection, difference and symmetric difference must match sorted set algebra,
+     * across both the sequential and parallel paths.
+     */
+    @Test
+    public void setAlgebra_overlappingTrees() throws InvalidSearchTreeException{
+        Random random = new Random(5);
+        TreeSet<Integer> firstSet = new TreeSet<>();
+        TreeSet<Integer> secondSet = new TreeSet<>();
+        while (firstSet.size() < 30000){
+            firstSet.add(random.nextInt(100000));
+        }
+        while (secondSet.size() < 20000){
+            secondSet.add(random.nextInt(100000));
+        }
+        AVLTree<Integer> first = AVLTree.fromSorted(firstSet);
+        AVLTree<Integer> second = AVLTree.fromSorted(secondSet);
+
+        TreeSet<Integer> intersection = new TreeSet<>(firstSet);
+        intersection.retainAll(secondSet);
+        TreeSet<Integer> difference = new TreeSet<>(firstSet);
+        difference.removeAll(secondSet);
+        TreeSet<Integer> symmetricDifference = new TreeSet<>(difference);
+        for (Integer key : secondSet){
+            if (!firstSet.contains(key)){
+                symmetricDifference.add(key);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AVLTree<Integer> actualIntersection = first.intersect(second, pool);
+            AVLTree<Integer> actualDifference = first.difference(second, pool);
+            AVLTree<Integer> actualSymmetricDifference = first.symmetricDifference(second, pool);
+            actualIntersection.validate();
+            actualDifference.validate();
+            actualSymmetricDifference.validate();
+            assertEquals(new ArrayList<>(intersection), actualIntersection.toAscendingList());
+            assertEquals(new ArrayList<>(difference), actualDifference.toAscendingList());
+            assertEquals(new ArrayList<>(symmetricDifference), actualSymmetricDifference.toAscendingList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Trees sharing structure must short-circuit on their shared subtrees, and still give exact results.
+     */
+    @Test
+    public void setAlgebra_sharedSubtrees() throws InvalidSearchTreeException{
+        for (int value = 0; value < 1000; value++){
+            testTree = testTree.insert(value);
+        }
+        AVLTree<Integer> modified = testTree.delete(10).insert(5000);
+
+        assertSame(testTree.getRoot(), testTree.intersect(testTree).getRoot());
+        assertTrue(testTree.difference(testTree).isEmpty());
+        assertTrue(testTree.symmetricDifference(testTree).isEmpty());
+
+        AVLTree<Integer> added = modified.difference(testTree);
+        AVLTree<Integer> removed = testTree.difference(modified);
+        AVLTree<Integer> changed = testTree.symmetricDifference(modified);
+        AVLTree<Integer> kept = testTree.intersect(modified);
+        added.validate();
+        removed.validate();
+        changed.validate();
+        kept.validate();
+        assertEquals(Collections.singletonList(5000), added.toAscendingList());
+        assertEquals(Collections.singletonList(10), removed.toAscendingList());
+        assertEquals(Arrays.asList(10, 5000), changed.toAscendingList());
+        assertEquals(999, kept.size());
+        assertFalse(kept.contains(10));
+    }
 }
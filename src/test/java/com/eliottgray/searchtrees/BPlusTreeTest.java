@@ -0,0 +1,122 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class BPlusTreeTest {
+
+    /**
+     * Random inserts and deletes must leave the same Keys as a TreeSet, in a valid tree with an unbroken leaf chain;
+     * odd and even branching factors split and merge pages differently.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeSet() throws InvalidSearchTreeException{
+        for (int branchingFactor : new int[]{16, 17, 128}){
+            Random random = new Random(branchingFactor);
+            TreeSet<Integer> expected = new TreeSet<>();
+            BPlusTree<Integer> actual = new BPlusTree<>(Comparator.<Integer>naturalOrder(), branchingFactor);
+            for (int step = 0; step < 20000; step++){
+                int key = random.nextInt(5000);
+                if (random.nextInt(3) == 0){
+                    assertEquals(expected.remove(key), actual.delete(key));
+                } else {
+                    assertEquals(expected.add(key), actual.insert(key));
+                }
+                if (step % 500 == 0){
+                    actual.validate();
+                }
+            }
+            actual.validate();
+            assertEquals(expected.size(), actual.size());
+            assertEquals(new ArrayList<>(expected), actual.toAscendingList());
+            List<Integer> iterated = new ArrayList<>();
+            actual.forEach(iterated::add);
+            assertEquals(new ArrayList<>(expected), iterated);
+            for (int key = -10; key < 5010; key += 7){
+                assertEquals(expected.contains(key), actual.contains(key));
+                assertEquals(new ArrayList<>(expected.subSet(key, true, key + 300, true)), actual.getRange(key, key + 300));
+                assertEquals(expected.subSet(key, true, key + 300, true).size(), actual.countRange(key, key + 300));
+            }
+            assertEquals(expected.first(), actual.getMin());
+            assertEquals(expected.last(), actual.getMax());
+
+            for (Integer key : expected){
+                assertTrue(actual.delete(key));
+            }
+            actual.validate();
+            assertTrue(actual.isEmpty());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws InvalidSearchTreeException{
+        BPlusTree<Integer> tree = new BPlusTree<>();
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.size());
+        assertNull(tree.getMin());
+        assertNull(tree.getMax());
+        assertFalse(tree.contains(1));
+        assertFalse(tree.delete(1));
+        assertFalse(tree.iterator().hasNext());
+        assertTrue(tree.getRange(0, 10).isEmpty());
+        assertEquals(0, tree.countRange(0, 10));
+        tree.validate();
+    }
+
+    /**
+     * A range spanning many leaves, and ranges with no Keys, in a tree with a custom comparator.
+     */
+    @Test
+    public void testGetRange_acrossLeaves(){
+        BPlusTree<Integer> tree = new BPlusTree<>(Comparator.<Integer>reverseOrder(), BPlusTree.MIN_BRANCHING_FACTOR);
+        for (int key = 0; key < 10000; key++){
+            tree.insert(key);
+        }
+        List<Integer> range = tree.getRange(9000, 1000);
+        assertEquals(8001, range.size());
+        assertEquals(Integer.valueOf(9000), range.get(0));
+        assertEquals(Integer.valueOf(1000), range.get(8000));
+        assertEquals(8001, tree.countRange(9000, 1000));
+        assertTrue(tree.getRange(1000, 9000).isEmpty());
+        assertEquals(0, tree.countRange(1000, 9000));
+        assertTrue(tree.getRange(-1, -5).isEmpty());
+    }
+
+    @Test
+    public void testClear() throws InvalidSearchTreeException{
+        BPlusTree<Integer> tree = new BPlusTree<>();
+        for (int key = 0; key < 1000; key++){
+            tree.insert(key);
+        }
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        tree.validate();
+        assertTrue(tree.insert(5));
+        assertEquals(1, tree.size());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIterator_failsFast(){
+        BPlusTree<Integer> tree = new BPlusTree<>();
+        tree.insert(1);
+        tree.insert(2);
+        Iterator<Integer> iterator = tree.iterator();
+        iterator.next();
+        tree.insert(3);
+        iterator.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBranchingFactor_outOfRange(){
+        new BPlusTree<Integer>(Comparator.<Integer>naturalOrder(), BPlusTree.MIN_BRANCHING_FACTOR - 1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class BTreeTest extends TreeTestSkeleton {
+
+    @Override
+    public BTree<Integer> buildEmptyTree(Comparator<Integer> comparator){
+        return new BTree<>(comparator, BTree.MIN_BRANCHING_FACTOR);
+    }
+
+    /**
+     * Every update must agree with TreeSet and keep all B-tree invariants, while leaving earlier versions intact;
+     * odd and even branching factors split and merge nodes differently.
+     */
+    @Test
+    public void testRandomOperations_matchTreeSet() throws InvalidSearchTreeException{
+        for (int branchingFactor : new int[]{16, 17, 128}){
+            BTree<Integer> actual = new BTree<>(branchingFactor);
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(branchingFactor);
+            for (int index = 0; index < 20000; index++){
+                int key = random.nextInt(5000);
+                BTree<Integer> previous = actual;
+                int previousSize = previous.size();
+                if (random.nextInt(3) > 0){
+                    expected.add(key);
+                    actual = actual.insert(key);
+                } else {
+                    expected.remove(key);
+                    actual = actual.delete(key);
+                }
+                if (index % 500 == 0){
+                    actual.validate();
+                }
+                assertEquals(previousSize, previous.size());
+                assertEquals(expected.size(), actual.size());
+            }
+            actual.validate();
+            assertEquals(new ArrayList<>(expected), actual.toAscendingList());
+            List<Integer> iterated = new ArrayList<>();
+            actual.forEach(iterated::add);
+            assertEquals(new ArrayList<>(expected), iterated);
+            for (int key = -10; key < 5010; key += 7){
+                assertEquals(expected.contains(key), actual.contains(key));
+                assertEquals(new ArrayList<>(expected.subSet(key, true, key + 300, true)), actual.getRange(key, key + 300));
+                assertEquals(expected.subSet(key, true, key + 300, true).size(), actual.countRange(key, key + 300));
+            }
+            assertEquals(expected.first(), actual.getMin());
+            assertEquals(expected.last(), actual.getMax());
+
+            for (Integer key : expected){
+                actual = actual.delete(key);
+            }
+            actual.validate();
+            assertTrue(actual.isEmpty());
+        }
+    }
+
+    /**
+     * Sorted insertion fills nodes no worse than half full, so the tree is only a few levels high.
+     */
+    @Test
+    public void testSortedInsertion_height() throws InvalidSearchTreeException{
+        BTree<Integer> tree = new BTree<>(32);
+        for (int key = 0; key < 100000; key++){
+            tree = tree.insert(key);
+        }
+        tree.validate();
+        assertTrue(tree.getRoot().getHeight() <= 5);
+        assertEquals(32, tree.getBranchingFactor());
+    }
+
+    @Test
+    public void testDelete_absentKeyReturnsSameTree(){
+        BTree<Integer> tree = new BTree<Integer>().insert(1).insert(2);
+        assertSame(tree, tree.delete(3));
+        // Several levels deep, the search ends at a leaf wherever the Key would have been.
+        tree = new BTree<>();
+        for (int key = 0; key < 2000; key += 2){
+            tree = tree.insert(key);
+        }
+        for (int key = -1; key < 2001; key += 2){
+            assertSame(tree, tree.delete(key));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBranchingFactor_tooSmall(){
+        new BTree<Integer>(BTree.MIN_BRANCHING_FACTOR - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBranchingFactor_tooLarge(){
+        new BTree<Integer>(BTree.MAX_BRANCHING_FACTOR + 1);
+    }
+}
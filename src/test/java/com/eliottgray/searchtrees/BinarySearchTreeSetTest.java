@@ -0,0 +1,182 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+public class BinarySearchTreeSetTest {
+
+    @Test
+    public void testNavigation(){
+        NavigableSet<Integer> set = buildTree(10).asNavigableSet();   // 0, 2, ... 18
+        assertEquals(Integer.valueOf(4), set.floor(4));
+        assertEquals(Integer.valueOf(4), set.floor(5));
+        assertEquals(Integer.valueOf(2), set.lower(4));
+        assertEquals(Integer.valueOf(4), set.ceiling(4));
+        assertEquals(Integer.valueOf(6), set.ceiling(5));
+        assertEquals(Integer.valueOf(6), set.higher(4));
+        assertNull(set.lower(0));
+        assertNull(set.higher(18));
+        assertEquals(Integer.valueOf(0), set.first());
+        assertEquals(Integer.valueOf(18), set.last());
+        assertEquals(10, set.size());
+    }
+
+    /**
+     * Every view, bounded or descending, must navigate, count and iterate exactly as the same view of a TreeSet,
+     * and must reject exactly the same bounds.
+     */
+    @Test
+    public void testViews_matchTreeSet(){
+        Random random = new Random(0);
+        AVLTree<Integer> tree = buildTree(50);
+        TreeSet<Integer> expectedSet = new TreeSet<>(tree.toAscendingList());
+        NavigableSet<Integer> actualSet = tree.asNavigableSet();
+
+        for (int trial = 0; trial < 500; trial++){
+            NavigableSet<Integer> expected = expectedSet;
+            NavigableSet<Integer> actual = actualSet;
+            for (int depth = 0; depth < 3; depth++){
+                int operation = random.nextInt(4);
+                int from = random.nextInt(110) - 5;
+                int to = random.nextInt(110) - 5;
+                boolean fromInclusive = random.nextBoolean();
+                boolean toInclusive = random.nextBoolean();
+                NavigableSet<Integer> nextExpected;
+                try {
+                    nextExpected = view(expected, operation, from, fromInclusive, to, toInclusive);
+                } catch (IllegalArgumentException e){
+                    nextExpected = null;
+                }
+                NavigableSet<Integer> nextActual;
+                try {
+                    nextActual = view(actual, operation, from, fromInclusive, to, toInclusive);
+                } catch (IllegalArgumentException e){
+                    nextActual = null;
+                }
+                assertEquals(nextExpected == null, nextActual == null);
+                if (nextExpected != null){
+                    expected = nextExpected;
+                    actual = nextActual;
+                }
+            }
+            assertSameView(expected, actual);
+        }
+    }
+
+    private static NavigableSet<Integer> view(NavigableSet<Integer> set, int operation, int from, boolean fromInclusive, int to, boolean toInclusive){
+        switch (operation){
+            case 0:
+                return set.subSet(from, fromInclusive, to, toInclusive);
+            case 1:
+                return set.headSet(to, toInclusive);
+            case 2:
+                return set.tailSet(from, fromInclusive);
+            default:
+                return set.descendingSet();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubSet_outOfOrder(){
+        buildTree(10).asNavigableSet().subSet(8, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubSet_outsideView(){
+        buildTree(10).asNavigableSet().headSet(8, true).tailSet(10, true);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirst_emptyView(){
+        buildTree(10).asNavigableSet().subSet(3, 4).first();
+    }
+
+    /**
+     * Bounded and descending views must still report a sorted spliterator, with the comparator of the view.
+     */
+    @Test
+    public void testSpliterator_views(){
+        NavigableSet<Integer> set = buildTree(10).asNavigableSet();
+        for (NavigableSet<Integer> view : Arrays.asList(set.subSet(2, true, 12, false), set.descendingSet(), set.headSet(8, true).descendingSet())){
+            Spliterator<Integer> spliterator = view.spliterator();
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.ORDERED | Spliterator.DISTINCT));
+            assertEquals(view.comparator(), spliterator.getComparator());
+            assertEquals(new ArrayList<>(view), StreamSupport.stream(spliterator, false).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Natural order must be reported as a null comparator, as SortedSet requires, so that copies such as a TreeSet agree.
+     */
+    @Test
+    public void testComparator_naturalOrder(){
+        NavigableSet<Integer> set = buildTree(10).asNavigableSet();
+        assertNull(set.comparator());
+        assertNull(set.subSet(2, 8).comparator());
+        assertEquals(Collections.reverseOrder(), set.descendingSet().comparator());
+        assertNull(new TreeSet<>(set).comparator());
+
+        Comparator<Integer> reversed = Comparator.reverseOrder();
+        NavigableSet<Integer> custom = new AVLTree<>(reversed).insert(1).asNavigableSet();
+        assertSame(reversed, custom.comparator());
+        assertEquals(Collections.reverseOrder(reversed), custom.descendingSet().comparator());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable(){
+        buildTree(10).asNavigableSet().add(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIterator_immutable(){
+        Iterator<Integer> iterator = buildTree(10).asNavigableSet().iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    private static void assertSameView(NavigableSet<Integer> expected, NavigableSet<Integer> actual){
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        List<Integer> descending = new ArrayList<>();
+        actual.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(new ArrayList<>(expected.descendingSet()), descending);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        if (!expected.isEmpty()){
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+        }
+        for (int key = -6; key < 106; key++){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(expected.floor(key), actual.floor(key));
+            assertEquals(expected.ceiling(key), actual.ceiling(key));
+            assertEquals(expected.lower(key), actual.lower(key));
+            assertEquals(expected.higher(key), actual.higher(key));
+        }
+    }
+
+    /**
+     * @return  Tree containing the even Keys 0 to 2 * (count - 1).
+     */
+    private static AVLTree<Integer> buildTree(int count){
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int index = 0; index < count; index++){
+            tree = tree.insert(index * 2);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,114 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+
+import static org.junit.Assert.*;
+
+public class BinarySearchTreeSpliteratorTest {
+
+    /**
+     * Each split must hand off exactly half of the remaining Keys, as the lesser prefix, with exact sizes on both sides.
+     */
+    @Test
+    public void trySplit_exactHalves(){
+        AVLTree<Integer> tree = buildTree(1001);
+        Spliterator<Integer> suffix = tree.spliterator();
+        assertEquals(1001, suffix.getExactSizeIfKnown());
+
+        Spliterator<Integer> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(500, prefix.getExactSizeIfKnown());
+        assertEquals(501, suffix.getExactSizeIfKnown());
+
+        List<Integer> prefixKeys = new ArrayList<>();
+        prefix.forEachRemaining(prefixKeys::add);
+        assertEquals(tree.getRange(0, 499), prefixKeys);
+        assertEquals(0, prefix.getExactSizeIfKnown());
+    }
+
+    /**
+     * Splitting recursively, all the way down to single Keys, must still visit every Key exactly once, in order.
+     */
+    @Test
+    public void trySplit_recursivelyCoversAllKeys(){
+        for (int size = 0; size < 70; size++){
+            AVLTree<Integer> tree = buildTree(size);
+            List<Integer> visited = new ArrayList<>();
+            splitAndCollect(tree.spliterator(), visited);
+            assertEquals(tree.toAscendingList(), visited);
+        }
+    }
+
+    /**
+     * Splitting after iteration has begun must only cover the Keys not yet visited.
+     */
+    @Test
+    public void trySplit_afterPartialTraversal(){
+        AVLTree<Integer> tree = buildTree(100);
+        Spliterator<Integer> suffix = tree.spliterator();
+        List<Integer> visited = new ArrayList<>();
+        for (int count = 0; count < 37; count++){
+            assertTrue(suffix.tryAdvance(visited::add));
+        }
+        assertEquals(63, suffix.getExactSizeIfKnown());
+
+        Spliterator<Integer> prefix = suffix.trySplit();
+        assertEquals(31, prefix.getExactSizeIfKnown());
+        assertEquals(32, suffix.getExactSizeIfKnown());
+        prefix.forEachRemaining(visited::add);
+        suffix.forEachRemaining(visited::add);
+        assertEquals(tree.toAscendingList(), visited);
+    }
+
+    /**
+     * A lone Key cannot be split.
+     */
+    @Test
+    public void trySplit_singleKey(){
+        Spliterator<Integer> spliterator = buildTree(1).spliterator();
+        assertNull(spliterator.trySplit());
+        assertEquals(1, spliterator.getExactSizeIfKnown());
+    }
+
+    /**
+     * Characteristics describe an immutable, sorted, exactly sized source.
+     */
+    @Test
+    public void characteristics(){
+        Spliterator<Integer> spliterator = buildTree(10).spliterator();
+        for (int characteristic : new int[]{Spliterator.ORDERED, Spliterator.SORTED, Spliterator.DISTINCT,
+                Spliterator.SIZED, Spliterator.SUBSIZED, Spliterator.IMMUTABLE, Spliterator.NONNULL}){
+            assertTrue(spliterator.hasCharacteristics(characteristic));
+        }
+        // Natural order is reported as a null comparator; any other comparator is reported as it is.
+        assertNull(spliterator.getComparator());
+        Comparator<Integer> reversed = Comparator.reverseOrder();
+        assertSame(reversed, new AVLTree<>(reversed).insert(1).spliterator().getComparator());
+    }
+
+    private static void splitAndCollect(Spliterator<Integer> spliterator, List<Integer> visited){
+        long size = spliterator.getExactSizeIfKnown();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if (prefix == null){
+            assertTrue(size <= 1);
+            spliterator.forEachRemaining(visited::add);
+        } else {
+            assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+            splitAndCollect(prefix, visited);
+            splitAndCollect(spliterator, visited);
+        }
+    }
+
+    private static AVLTree<Integer> buildTree(int size){
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int value = 0; value < size; value++){
+            tree = tree.insert(value);
+        }
+        return tree;
+    }
+}
@@ -150,4 +150,37 @@ public class BinarySearchTreeTest extends TreeTestSkeleton {
         assertEquals(4, testTree.getRoot().size);
         testTree.validate();
     }
+
+    /**
+     * Rank and select must agree with positions in the ascending list, for contained and absent Keys alike.
+     */
+    @Test
+    public void testRankAndSelect(){
+        assertEquals(0, testTree.rank(5));
+
+        List<Integer> inputValues = new ArrayList<Integer>(){{add(40); add(10); add(70); add(0); add(30); add(50); add(20); add(60);}};
+        for (Integer integer : inputValues) {
+            testTree = testTree.insert(integer);
+        }
+        List<Integer> ascending = testTree.toAscendingList();
+
+        for (int index = 0; index < ascending.size(); index++){
+            assertEquals(ascending.get(index), testTree.select(index));
+            assertEquals(index, testTree.rank(ascending.get(index)));
+
+            // An absent Key ranks immediately after the contained Key below it.
+            assertEquals(index + 1, testTree.rank(ascending.get(index) + 5));
+        }
+        assertEquals(0, testTree.rank(-1));
+        assertEquals(8, testTree.rank(1000));
+    }
+
+    /**
+     * Selecting outside the tree must be rejected.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelect_outOfBounds(){
+        testTree = testTree.insert(1).insert(2);
+        testTree.select(2);
+    }
 }
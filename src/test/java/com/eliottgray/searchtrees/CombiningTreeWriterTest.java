@@ -0,0 +1,151 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class CombiningTreeWriterTest {
+
+    @Test
+    public void testInsertDelete() throws InvalidSearchTreeException{
+        CombiningTreeWriter<Integer> writer = new CombiningTreeWriter<>(new AVLTree<Integer>());
+        AVLTree<Integer> before = writer.get();
+        for (int key = 0; key < 100; key++){
+            assertTrue(writer.insert(key).contains(key));
+        }
+        for (int key = 0; key < 100; key += 2){
+            assertFalse(writer.delete(key).contains(key));
+        }
+        assertTrue(before.isEmpty());
+        AVLTree<Integer> tree = writer.get();
+        tree.validate();
+        assertEquals(50, tree.size());
+        assertEquals(150, writer.getCombinedCount());
+        assertEquals(150, writer.getBatchCount());
+    }
+
+    /**
+     * A Key the comparator rejects fails its own future, and no other.
+     */
+    @Test
+    public void testRejectedKey_failsAlone(){
+        CombiningTreeWriter<Integer> writer = new CombiningTreeWriter<>(new AVLTree<Integer>((a, b) -> {
+            if (a < 0 || b < 0){
+                throw new IllegalArgumentException("Negative");
+            }
+            return Integer.compare(a, b);
+        }));
+        writer.insert(1);
+        CompletableFuture<AVLTree<Integer>> rejected = writer.submitInsert(-1);
+        try {
+            rejected.get();
+            fail();
+        } catch (InterruptedException | ExecutionException e){
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue(writer.insert(2).contains(1));
+        assertEquals(2, writer.get().size());
+    }
+
+    /**
+     * Every update from every thread must be applied exactly once, whichever thread combined it.
+     */
+    @Test
+    public void testConcurrentWriters() throws InterruptedException, InvalidSearchTreeException{
+        int threads = 8;
+        int perThread = 2000;
+        CombiningTreeWriter<Integer> writer = new CombiningTreeWriter<>(new AVLTree<Integer>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++){
+            int offset = thread;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e){
+                    return;
+                }
+                for (int index = 0; index < perThread; index++){
+                    int key = index * threads + offset;
+                    writer.insert(key);
+                    if (index % 4 == 0){
+                        writer.delete(key);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : writers){
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : writers){
+            thread.join();
+        }
+
+        AVLTree<Integer> tree = writer.get();
+        tree.validate();
+        assertEquals(threads * perThread * 3 / 4, tree.size());
+        assertFalse(tree.contains(0));
+        assertTrue(tree.contains(threads));
+        assertEquals(threads * perThread * 5 / 4, writer.getCombinedCount());
+        assertTrue(writer.getBatchCount() <= writer.getCombinedCount());
+
+        writer.resetMetrics();
+        assertEquals(0, writer.getBatchCount());
+    }
+
+    /**
+     * Synchronous callers must return, and every asynchronous update be published, while others keep submitting;
+     * no batch may exceed the cap.
+     */
+    @Test
+    public void testMixedSubmitters_allComplete() throws InterruptedException, InvalidSearchTreeException{
+        int threads = 8;
+        int perThread = 5000;
+        CombiningTreeWriter<Integer> writer = new CombiningTreeWriter<>(new AVLTree<Integer>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<AVLTree<Integer>>> futures = new CopyOnWriteArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++){
+            int offset = thread;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e){
+                    return;
+                }
+                for (int index = 0; index < perThread; index++){
+                    int key = index * threads + offset;
+                    if (offset % 2 == 0){
+                        writer.insert(key);
+                    } else {
+                        futures.add(writer.submitInsert(key));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : writers){
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : writers){
+            thread.join();
+        }
+        for (CompletableFuture<AVLTree<Integer>> future : futures){
+            assertTrue(future.isDone());
+        }
+
+        AVLTree<Integer> tree = writer.get();
+        tree.validate();
+        assertEquals(threads * perThread, tree.size());
+        assertEquals(threads * perThread, writer.getCombinedCount());
+        assertTrue(writer.getCombinedCount() <= writer.getBatchCount() * CombiningTreeWriter.MAX_BATCH_SIZE);
+    }
+}
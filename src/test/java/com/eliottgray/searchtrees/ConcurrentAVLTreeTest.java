@@ -0,0 +1,206 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentAVLTreeTest {
+
+    /**
+     * On a single thread, every operation must agree with TreeSet, and the tree stay strictly balanced.
+     */
+    @Test
+    public void testRandomOperations_matchTreeSet() throws InvalidSearchTreeException{
+        ConcurrentAVLTree<Integer> actual = new ConcurrentAVLTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(22);
+        for (int index = 0; index < 20000; index++){
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) > 0){
+                assertEquals(expected.add(key), actual.insert(key));
+            } else {
+                assertEquals(expected.remove(key), actual.delete(key));
+            }
+            if (index % 1000 == 0){
+                actual.validate();
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected), actual.toAscendingList());
+        List<Integer> iterated = new ArrayList<>();
+        actual.forEach(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+        for (int key = -10; key < 2010; key += 3){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(new ArrayList<>(expected.subSet(key, true, key + 100, true)), actual.getRange(key, key + 100));
+        }
+        assertEquals(expected.first(), actual.getMin());
+        assertEquals(expected.last(), actual.getMax());
+        assertTrue(actual.getRange(10, 5).isEmpty());
+    }
+
+    @Test
+    public void testEmpty() throws InvalidSearchTreeException{
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        assertTrue(tree.isEmpty());
+        assertNull(tree.getMin());
+        assertNull(tree.getMax());
+        assertFalse(tree.contains(1));
+        assertFalse(tree.delete(1));
+        assertFalse(tree.iterator().hasNext());
+        assertTrue(tree.insert(1));
+        assertFalse(tree.insert(1));
+        assertTrue(tree.delete(1));
+        assertTrue(tree.isEmpty());
+        tree.validate();
+    }
+
+    /**
+     * Routing nodes, left by deleting Keys with two children, must be reusable by inserts and unlinked once unneeded.
+     */
+    @Test
+    public void testRoutingNodes() throws InvalidSearchTreeException{
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Comparator.<Integer>reverseOrder());
+        for (int key = 0; key < 100; key++){
+            tree.insert(key);
+        }
+        for (int key = 0; key < 100; key += 2){
+            assertTrue(tree.delete(key));
+        }
+        for (int key = 0; key < 100; key += 4){
+            assertTrue(tree.insert(key));
+        }
+        tree.validate();
+        assertEquals(Integer.valueOf(99), tree.getMin());
+        assertEquals(Integer.valueOf(0), tree.getMax());
+        for (int key = 0; key < 100; key++){
+            tree.delete(key);
+        }
+        tree.validate();
+        assertTrue(tree.toAscendingList().isEmpty());
+    }
+
+    /**
+     * Writers on disjoint Keys must all take effect, leaving a strictly balanced tree.
+     */
+    @Test
+    public void testConcurrentWriters() throws InterruptedException, InvalidSearchTreeException{
+        int threads = 8;
+        int perThread = 5000;
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++){
+            int offset = thread;
+            writers.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int index = 0; index < perThread; index++){
+                    tree.insert(index * threads + offset);
+                }
+                for (int index = 0; index < perThread; index += 2){
+                    tree.delete(index * threads + offset);
+                }
+            }));
+        }
+        runAll(writers, start);
+
+        tree.validate();
+        assertEquals(threads * perThread / 2, tree.size());
+        for (int key = 0; key < threads * perThread; key++){
+            assertEquals((key / threads) % 2 == 1, tree.contains(key));
+        }
+    }
+
+    /**
+     * Readers must always find Keys which are present throughout, however writers reshape the tree around them,
+     * and ranges must be ascending without duplicates.
+     */
+    @Test
+    public void testReadersDuringWrites() throws InterruptedException{
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        int stable = 1000;
+        for (int key = 0; key < stable; key++){
+            tree.insert(key * 10);
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++){
+            int seed = writer;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                Random random = new Random(seed);
+                while (!stop.get()){
+                    // Churn only Keys which are not multiples of ten.
+                    int key = random.nextInt(stable * 10);
+                    if (key % 10 == 0){
+                        continue;
+                    }
+                    if (random.nextBoolean()){
+                        tree.insert(key);
+                    } else {
+                        tree.delete(key);
+                    }
+                }
+            }));
+        }
+        for (int reader = 0; reader < 2; reader++){
+            int seed = 100 + reader;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                Random random = new Random(seed);
+                for (int round = 0; round < 300 && failure.get() == null; round++){
+                    int key = random.nextInt(stable) * 10;
+                    if (!tree.contains(key)){
+                        failure.set("Stable key not found: " + key);
+                    }
+                    List<Integer> range = tree.getRange(key, key + 500);
+                    int stableFound = 0;
+                    for (int index = 0; index < range.size(); index++){
+                        if (index > 0 && range.get(index - 1) >= range.get(index)){
+                            failure.set("Range out of order: " + range);
+                        }
+                        if (range.get(index) % 10 == 0){
+                            stableFound++;
+                        }
+                    }
+                    if (stableFound != Math.min(51, stable - key / 10)){
+                        failure.set(String.format("Range from %d found %d stable keys", key, stableFound));
+                    }
+                }
+                stop.set(true);
+            }));
+        }
+        runAll(threads, start);
+        assertNull(failure.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runAll(List<Thread> threads, CountDownLatch start) throws InterruptedException{
+        for (Thread thread : threads){
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads){
+            thread.join();
+        }
+    }
+}
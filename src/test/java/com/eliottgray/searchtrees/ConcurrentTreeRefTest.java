@@ -0,0 +1,89 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentTreeRefTest {
+
+    @Test
+    public void testInsertDelete(){
+        ConcurrentTreeRef<Integer> ref = new ConcurrentTreeRef<>(new AVLTree<Integer>());
+        Tree<Integer> before = ref.get();
+        Tree<Integer> inserted = ref.insert(5);
+        assertTrue(inserted.contains(5));
+        assertSame(inserted, ref.get());
+        assertTrue(before.isEmpty());
+
+        ref.insert(7);
+        assertFalse(ref.delete(5).contains(5));
+        assertTrue(ref.get().contains(7));
+        assertEquals(3, ref.getCommitCount());
+        assertEquals(0, ref.getRetryCount());
+        assertEquals(0, ref.getWastedNodeCount());
+    }
+
+    /**
+     * An update which leaves the Tree unchanged publishes nothing.
+     */
+    @Test
+    public void testUnchanged_notCommitted(){
+        ConcurrentTreeRef<Integer> ref = new ConcurrentTreeRef<>(new AVLTree<Integer>().insert(1));
+        Tree<Integer> before = ref.get();
+        assertSame(before, ref.update(tree -> tree));
+        assertSame(before, ref.update(tree -> tree.contains(1) ? tree : tree.insert(1)));
+        assertEquals(0, ref.getCommitCount());
+    }
+
+    /**
+     * Every insert from every thread must be published exactly once, however often it was retried.
+     */
+    @Test
+    public void testConcurrentInserts() throws InterruptedException, InvalidSearchTreeException{
+        int threads = 8;
+        int perThread = 2000;
+        ConcurrentTreeRef<Integer> ref = new ConcurrentTreeRef<>(new AVLTree<Integer>(), 0, 1 << 10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++){
+            int offset = thread;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e){
+                    return;
+                }
+                for (int index = 0; index < perThread; index++){
+                    ref.insert(index * threads + offset);
+                }
+            }));
+        }
+        for (Thread writer : writers){
+            writer.start();
+        }
+        start.countDown();
+        for (Thread writer : writers){
+            writer.join();
+        }
+
+        Tree<Integer> tree = ref.get();
+        tree.validate();
+        assertEquals(threads * perThread, tree.size());
+        assertEquals(threads * perThread, ref.getCommitCount());
+        assertTrue(ref.getWastedNodeCount() >= ref.getRetryCount());
+
+        ref.resetMetrics();
+        assertEquals(0, ref.getCommitCount());
+        assertEquals(0, ref.getRetryCount());
+        assertEquals(0, ref.getWastedNodeCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBackoffBounds(){
+        new ConcurrentTreeRef<>(new AVLTree<Integer>(), 10, 5);
+    }
+}
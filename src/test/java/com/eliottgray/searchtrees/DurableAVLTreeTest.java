@@ -0,0 +1,214 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DurableAVLTreeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Updates are recovered from the log alone, without any snapshot.
+     */
+    @Test
+    public void testReopen_replaysLog() throws Exception{
+        Path directory = folder.newFolder().toPath();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(18);
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            for (int index = 0; index < 2000; index++){
+                int key = random.nextInt(500);
+                if (random.nextBoolean()){
+                    tree.insert(key);
+                    expected.add(key);
+                } else {
+                    tree.delete(key);
+                    expected.remove(key);
+                }
+            }
+            assertEquals(new ArrayList<>(expected), tree.current().toAscendingList());
+        }
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(new ArrayList<>(expected), tree.current().toAscendingList());
+            assertEquals(2000, tree.getSequence());
+            tree.current().validate();
+        }
+    }
+
+    /**
+     * A snapshot replaces the log before it; updates after it are replayed on top of it.
+     */
+    @Test
+    public void testSnapshot_thenLogTail() throws Exception{
+        Path directory = folder.newFolder().toPath();
+        try (DurableAVLTree<Long> tree = DurableAVLTree.open(directory, KeyCodec.LONG)){
+            for (long key = 0; key < 100; key++){
+                tree.insert(key);
+            }
+            assertEquals(100, tree.snapshot());
+            for (long key = 0; key < 100; key += 2){
+                tree.delete(key);
+            }
+            tree.insert(1000L);
+        }
+        assertEquals(listOf("snapshot-00000000000000000100", "wal-00000000000000000100"), listFiles(directory));
+
+        try (DurableAVLTree<Long> tree = DurableAVLTree.open(directory, KeyCodec.LONG)){
+            AVLTree<Long> current = tree.current();
+            assertEquals(51, current.size());
+            assertFalse(current.contains(0L));
+            assertTrue(current.contains(99L));
+            assertTrue(current.contains(1000L));
+            assertEquals(151, tree.getSequence());
+            current.validate();
+        }
+    }
+
+    /**
+     * A record torn by a crash part way through an append is discarded, and the log continues after the last whole record.
+     */
+    @Test
+    public void testTornRecord_discarded() throws IOException{
+        Path directory = folder.newFolder().toPath();
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            for (int key = 0; key < 10; key++){
+                tree.insert(key);
+            }
+        }
+        Path log = directory.resolve("wal-00000000000000000000");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+            channel.write(ByteBuffer.wrap(new byte[]{1, 0, 0}));
+        }
+
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(10, tree.current().size());
+            tree.insert(10);
+        }
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(11, tree.current().size());
+            assertTrue(tree.current().contains(10));
+        }
+    }
+
+    /**
+     * A record with a bad checksum ends replay, as does a torn one.
+     */
+    @Test
+    public void testCorruptRecord_endsReplay() throws IOException{
+        Path directory = folder.newFolder().toPath();
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            for (int key = 0; key < 10; key++){
+                tree.insert(key);
+            }
+        }
+        // Each record is 1 + 4 + 4 bytes; damage the Key of the eighth.
+        Path log = directory.resolve("wal-00000000000000000000");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 7 * 9 + 2);
+        }
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(7, tree.current().size());
+            assertEquals(7, tree.getSequence());
+        }
+    }
+
+    /**
+     * Writers on several threads share forces of the log; every acknowledged insert survives.
+     */
+    @Test
+    public void testConcurrentWriters() throws Exception{
+        Path directory = folder.newFolder().toPath();
+        int threads = 4;
+        int perThread = 250;
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT, Comparator.<Integer>naturalOrder(), 300)){
+            List<Thread> writers = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++){
+                int offset = thread;
+                writers.add(new Thread(() -> {
+                    try {
+                        for (int index = 0; index < perThread; index++){
+                            assertTrue(tree.insert(index * threads + offset).contains(index * threads + offset));
+                        }
+                    } catch (Throwable e){
+                        synchronized (failures){
+                            failures.add(e);
+                        }
+                    }
+                }));
+            }
+            for (Thread writer : writers){
+                writer.start();
+            }
+            for (Thread writer : writers){
+                writer.join();
+            }
+            assertEquals(new ArrayList<Throwable>(), failures);
+            assertEquals(threads * perThread, tree.current().size());
+        }
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(threads * perThread, tree.current().size());
+            assertEquals(Integer.valueOf(0), tree.current().getMin());
+            assertEquals(Integer.valueOf(threads * perThread - 1), tree.current().getMax());
+        }
+    }
+
+    /**
+     * Snapshots are taken in the background once enough updates are logged, and obsolete files are deleted.
+     */
+    @Test
+    public void testAutomaticSnapshot() throws IOException{
+        Path directory = folder.newFolder().toPath();
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT, Comparator.<Integer>naturalOrder(), 100)){
+            for (int key = 0; key < 1000; key++){
+                tree.insert(key);
+            }
+        }
+        List<String> files = listFiles(directory);
+        assertTrue(files.stream().anyMatch(name -> name.startsWith("snapshot-")));
+        assertTrue(files.size() <= 3);
+        try (DurableAVLTree<Integer> tree = DurableAVLTree.open(directory, KeyCodec.INT)){
+            assertEquals(1000, tree.current().size());
+            assertEquals(1000, tree.getSequence());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws IOException{
+        DurableAVLTree<Integer> tree = DurableAVLTree.open(folder.newFolder().toPath(), KeyCodec.INT);
+        tree.close();
+        tree.insert(1);
+    }
+
+    private static List<String> listFiles(Path directory) throws IOException{
+        try (Stream<Path> files = Files.list(directory)){
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> listOf(String... names){
+        List<String> list = new ArrayList<>();
+        for (String name : names){
+            list.add(name);
+        }
+        return list;
+    }
+}
@@ -62,6 +62,13 @@ public class ITCase {
         List<Integer> actualInOrderValues = treeToTest.toAscendingList();
         assertEquals(expectedValues, actualInOrderValues);
 
+        // Validate lazy in-order iteration.
+        Iterator<Integer> expectedIterator = expectedValues.iterator();
+        for (Integer key : treeToTest){
+            assertEquals(expectedIterator.next(), key);
+        }
+        assertFalse(expectedIterator.hasNext());
+
         // Validate size.
         assertEquals(TARGET_SIZE, treeToTest.size());
 
@@ -0,0 +1,103 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class IntAVLTreeTest {
+
+    /**
+     * Random inserts and deletes must leave the same Keys as a TreeSet, in a valid, balanced tree.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeSet() throws InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeSet<Integer> expected = new TreeSet<>();
+        IntAVLTree actual = new IntAVLTree();
+        for (int step = 0; step < 20000; step++){
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0){
+                expected.remove(key);
+                actual = actual.delete(key);
+            } else {
+                expected.add(key);
+                actual = actual.insert(key);
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual.toAscendingArray());
+        assertEquals((int) expected.first(), actual.getMin());
+        assertEquals((int) expected.last(), actual.getMax());
+        for (int key = -1001; key <= 1000; key++){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(expected.headSet(key).size(), actual.rank(key));
+        }
+    }
+
+    @Test
+    public void testUnchangedTree_isSameObject(){
+        IntAVLTree tree = new IntAVLTree().insert(1).insert(2);
+        assertSame(tree, tree.insert(1));
+        assertSame(tree, tree.delete(3));
+    }
+
+    @Test
+    public void testPersistence(){
+        IntAVLTree original = IntAVLTree.fromSortedArray(new int[]{1, 2, 3});
+        IntAVLTree updated = original.delete(2).insert(4);
+        assertArrayEquals(new int[]{1, 2, 3}, original.toAscendingArray());
+        assertArrayEquals(new int[]{1, 3, 4}, updated.toAscendingArray());
+    }
+
+    @Test
+    public void testExtremeKeys() throws InvalidSearchTreeException{
+        IntAVLTree tree = new IntAVLTree().insert(Integer.MAX_VALUE).insert(0).insert(Integer.MIN_VALUE);
+        tree.validate();
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE}, tree.toAscendingArray());
+        assertEquals(3, tree.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testRangeAndSelect() throws InvalidSearchTreeException{
+        int[] keys = new int[100];
+        for (int index = 0; index < keys.length; index++){
+            keys[index] = index * 2;
+        }
+        IntAVLTree tree = IntAVLTree.fromSortedArray(keys);
+        tree.validate();
+        assertArrayEquals(new int[]{10, 12, 14}, tree.getRange(9, 15));
+        assertEquals(3, tree.countRange(9, 15));
+        assertEquals(0, tree.getRange(15, 9).length);
+        for (int index = 0; index < keys.length; index++){
+            assertEquals(keys[index], tree.select(index));
+        }
+    }
+
+    @Test
+    public void testIteratorAndStream(){
+        IntAVLTree tree = IntAVLTree.fromSortedArray(new int[]{1, 2, 3, 4, 5});
+        PrimitiveIterator.OfInt iterator = tree.iterator();
+        int expected = 1;
+        while (iterator.hasNext()){
+            assertEquals(expected++, iterator.nextInt());
+        }
+        assertEquals(6, expected);
+        assertEquals(15, tree.stream().sum());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testGetMin_empty(){
+        new IntAVLTree().getMin();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelect_outOfBounds(){
+        new IntAVLTree().insert(1).select(1);
+    }
+}
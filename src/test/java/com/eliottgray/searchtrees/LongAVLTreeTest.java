@@ -0,0 +1,103 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class LongAVLTreeTest {
+
+    /**
+     * Random inserts and deletes must leave the same Keys as a TreeSet, in a valid, balanced tree.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeSet() throws InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeSet<Long> expected = new TreeSet<>();
+        LongAVLTree actual = new LongAVLTree();
+        for (int step = 0; step < 20000; step++){
+            long key = (random.nextInt(2000) - 1000) * (1L << 33);
+            if (random.nextInt(3) == 0){
+                expected.remove(key);
+                actual = actual.delete(key);
+            } else {
+                expected.add(key);
+                actual = actual.insert(key);
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), actual.toAscendingArray());
+        assertEquals((long) expected.first(), actual.getMin());
+        assertEquals((long) expected.last(), actual.getMax());
+        for (long key = -1001 * (1L << 33); key <= 1000 * (1L << 33); key += 1L << 32){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(expected.headSet(key).size(), actual.rank(key));
+        }
+    }
+
+    @Test
+    public void testUnchangedTree_isSameObject(){
+        LongAVLTree tree = new LongAVLTree().insert(1).insert(2);
+        assertSame(tree, tree.insert(1));
+        assertSame(tree, tree.delete(3));
+    }
+
+    @Test
+    public void testPersistence(){
+        LongAVLTree original = LongAVLTree.fromSortedArray(new long[]{1, 2, 3});
+        LongAVLTree updated = original.delete(2).insert(4);
+        assertArrayEquals(new long[]{1, 2, 3}, original.toAscendingArray());
+        assertArrayEquals(new long[]{1, 3, 4}, updated.toAscendingArray());
+    }
+
+    @Test
+    public void testExtremeKeys() throws InvalidSearchTreeException{
+        LongAVLTree tree = new LongAVLTree().insert(Long.MAX_VALUE).insert(0).insert(Long.MIN_VALUE);
+        tree.validate();
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE}, tree.toAscendingArray());
+        assertEquals(3, tree.countRange(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRangeAndSelect() throws InvalidSearchTreeException{
+        long[] keys = new long[100];
+        for (int index = 0; index < keys.length; index++){
+            keys[index] = index * 2L;
+        }
+        LongAVLTree tree = LongAVLTree.fromSortedArray(keys);
+        tree.validate();
+        assertArrayEquals(new long[]{10, 12, 14}, tree.getRange(9, 15));
+        assertEquals(3, tree.countRange(9, 15));
+        assertEquals(0, tree.getRange(15, 9).length);
+        for (int index = 0; index < keys.length; index++){
+            assertEquals(keys[index], tree.select(index));
+        }
+    }
+
+    @Test
+    public void testIteratorAndStream(){
+        LongAVLTree tree = LongAVLTree.fromSortedArray(new long[]{1, 2, 3, 4, 5});
+        PrimitiveIterator.OfLong iterator = tree.iterator();
+        long expected = 1;
+        while (iterator.hasNext()){
+            assertEquals(expected++, iterator.nextLong());
+        }
+        assertEquals(6, expected);
+        assertEquals(15, tree.stream().sum());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testGetMin_empty(){
+        new LongAVLTree().getMin();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelect_outOfBounds(){
+        new LongAVLTree().insert(1).select(1);
+    }
+}
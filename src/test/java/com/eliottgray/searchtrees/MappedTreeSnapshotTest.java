@@ -0,0 +1,121 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedTreeSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A snapshot must answer every query as the tree it was written from does, across several mapped chunks.
+     */
+    @Test
+    public void testQueries_matchTree() throws IOException{
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int key = -500; key < 500; key++){
+            tree = tree.insert(key * 3);
+        }
+        Path path = folder.newFile().toPath();
+        tree.writeSnapshot(path, KeyCodec.INT);
+
+        // 64 Keys per chunk.
+        MappedTreeSnapshot<Integer> snapshot = MappedTreeSnapshot.open(path, KeyCodec.INT, 6);
+        assertEquals(tree.size(), snapshot.size());
+        assertEquals(tree.getMin(), snapshot.getMin());
+        assertEquals(tree.getMax(), snapshot.getMax());
+        List<Integer> iterated = new ArrayList<>();
+        snapshot.forEach(iterated::add);
+        assertEquals(tree.toAscendingList(), iterated);
+        for (int key = -1600; key < 1600; key += 7){
+            assertEquals(tree.contains(key), snapshot.contains(key));
+            assertEquals(tree.rank(key), snapshot.rank(key));
+            assertEquals(tree.getRange(key, key + 200), snapshot.getRange(key, key + 200));
+            assertEquals(tree.countRange(key, key + 200), snapshot.countRange(key, key + 200));
+        }
+        assertEquals(tree.select(777), snapshot.select(777));
+        assertTrue(snapshot.getRange(10, 5).isEmpty());
+    }
+
+    @Test
+    public void testEmpty() throws IOException{
+        Path path = folder.newFile().toPath();
+        new AVLTree<Long>().writeSnapshot(path, KeyCodec.LONG);
+        MappedTreeSnapshot<Long> snapshot = MappedTreeSnapshot.open(path, KeyCodec.LONG);
+        assertTrue(snapshot.isEmpty());
+        assertNull(snapshot.getMin());
+        assertFalse(snapshot.contains(1L));
+        assertTrue(snapshot.getRange(0L, 10L).isEmpty());
+    }
+
+    /**
+     * A codec which disagrees with the tree on order would make every search wrong, so the write is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrite_codecOrderMismatch() throws IOException{
+        AVLTree<Integer> tree = new AVLTree<Integer>(Comparator.reverseOrder()).insert(1).insert(2);
+        tree.writeSnapshot(folder.newFile().toPath(), KeyCodec.INT);
+    }
+
+    /**
+     * A failed rewrite must leave the previous snapshot whole, and a replacement must not disturb a mapping of the old file.
+     */
+    @Test
+    public void testWrite_replacesAtomically() throws IOException{
+        Path path = folder.newFolder().toPath().resolve("snapshot");
+        new AVLTree<Integer>().insert(1).insert(2).writeSnapshot(path, KeyCodec.INT);
+        MappedTreeSnapshot<Integer> mapped = MappedTreeSnapshot.open(path, KeyCodec.INT);
+        try {
+            new AVLTree<Integer>(Comparator.reverseOrder()).insert(3).insert(4).writeSnapshot(path, KeyCodec.INT);
+            fail("Keys out of order for codec must be refused");
+        } catch (IllegalArgumentException expected){
+            // Previous snapshot remains.
+        }
+        assertEquals(2, MappedTreeSnapshot.open(path, KeyCodec.INT).size());
+        assertEquals(1, path.getParent().toFile().list().length);
+
+        new AVLTree<Integer>().insert(5).writeSnapshot(path, KeyCodec.INT);
+        assertEquals(1, MappedTreeSnapshot.open(path, KeyCodec.INT).size());
+        assertEquals(2, mapped.size());
+        assertTrue(mapped.contains(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_widthMismatch() throws IOException{
+        Path path = folder.newFile().toPath();
+        new AVLTree<Integer>().insert(1).writeSnapshot(path, KeyCodec.INT);
+        MappedTreeSnapshot.open(path, KeyCodec.LONG);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_truncated() throws IOException{
+        Path path = folder.newFile().toPath();
+        new AVLTree<Integer>().insert(1).insert(2).writeSnapshot(path, KeyCodec.INT);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)){
+            channel.truncate(MappedTreeSnapshot.HEADER + 4);
+        }
+        MappedTreeSnapshot.open(path, KeyCodec.INT);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_notASnapshot() throws IOException{
+        Path path = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.allocate(MappedTreeSnapshot.HEADER));
+        }
+        MappedTreeSnapshot.open(path, KeyCodec.INT);
+    }
+}
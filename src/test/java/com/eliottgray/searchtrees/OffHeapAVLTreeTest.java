@@ -0,0 +1,156 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class OffHeapAVLTreeTest {
+
+    /**
+     * Random inserts and deletes, over many small slabs, must leave the same Keys as a TreeSet, in a valid, balanced tree.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeSet() throws InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeSet<Integer> expected = new TreeSet<>();
+        OffHeapAVLTree<Integer> actual = new OffHeapAVLTree<>(KeyCodec.INT, 64);
+        for (int step = 0; step < 20000; step++){
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0){
+                assertEquals(expected.remove(key), actual.delete(key));
+            } else {
+                assertEquals(expected.add(key), actual.insert(key));
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        List<Integer> iterated = new ArrayList<>();
+        actual.forEach(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+        assertEquals(expected.first(), actual.getMin());
+        assertEquals(expected.last(), actual.getMax());
+        assertEquals(new ArrayList<>(expected.subSet(-100, true, 100, true)), actual.getRange(-100, 100));
+        for (int key = -1001; key <= 1000; key++){
+            assertEquals(expected.contains(key), actual.contains(key));
+        }
+    }
+
+    /**
+     * Records freed by deletes must be reused by later inserts, rather than allocating more slabs.
+     */
+    @Test
+    public void testDelete_reusesRecords(){
+        OffHeapAVLTree<Long> tree = new OffHeapAVLTree<>(KeyCodec.LONG, 64);
+        for (long key = 0; key < 1000; key++){
+            tree.insert(key * Integer.MAX_VALUE);
+        }
+        long allocated = tree.allocatedBytes();
+        for (int round = 0; round < 10; round++){
+            for (long key = 0; key < 1000; key += 2){
+                tree.delete(key * Integer.MAX_VALUE);
+            }
+            for (long key = 0; key < 1000; key += 2){
+                tree.insert(key * Integer.MAX_VALUE);
+            }
+        }
+        assertEquals(1000, tree.size());
+        assertEquals(allocated, tree.allocatedBytes());
+        assertEquals(Long.valueOf(999L * Integer.MAX_VALUE), tree.getMax());
+    }
+
+    @Test
+    public void testFixedBytes_unsignedOrder() throws InvalidSearchTreeException{
+        OffHeapAVLTree<byte[]> tree = new OffHeapAVLTree<>(KeyCodec.fixedBytes(2));
+        tree.insert(new byte[]{(byte) 0xFF, 0});
+        tree.insert(new byte[]{0, 1});
+        tree.insert(new byte[]{0x7F, 0});
+        tree.validate();
+        assertTrue(tree.contains(new byte[]{0x7F, 0}));
+        assertFalse(tree.contains(new byte[]{0x7F, 1}));
+        assertArrayEquals(new byte[]{0, 1}, tree.getMin());
+        assertArrayEquals(new byte[]{(byte) 0xFF, 0}, tree.getMax());
+        List<byte[]> range = tree.getRange(new byte[]{0, 0}, new byte[]{(byte) 0x80, 0});
+        assertEquals(2, range.size());
+        assertTrue(Arrays.equals(new byte[]{0x7F, 0}, range.get(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedBytes_wrongLength(){
+        new OffHeapAVLTree<>(KeyCodec.fixedBytes(2)).insert(new byte[3]);
+    }
+
+    /**
+     * A Key the codec refuses to write must leave its record free, both when freshly claimed and when taken from the free list.
+     */
+    @Test
+    public void testFailedWrite_keepsRecord() throws InvalidSearchTreeException{
+        KeyCodec<Integer> rejectNegative = new KeyCodec<Integer>(){
+            @Override
+            public int width(){ return KeyCodec.INT.width(); }
+
+            @Override
+            public void write(ByteBuffer buffer, int position, Integer key){
+                if (key < 0){
+                    throw new IllegalArgumentException("Negative key: " + key);
+                }
+                KeyCodec.INT.write(buffer, position, key);
+            }
+
+            @Override
+            public Integer read(ByteBuffer buffer, int position){ return KeyCodec.INT.read(buffer, position); }
+
+            @Override
+            public int compare(Integer key, ByteBuffer buffer, int position){ return KeyCodec.INT.compare(key, buffer, position); }
+
+            @Override
+            public int compare(Integer first, Integer second){ return KeyCodec.INT.compare(first, second); }
+        };
+        OffHeapAVLTree<Integer> tree = new OffHeapAVLTree<>(rejectNegative, 4);
+        for (int key = 0; key < 4; key++){
+            tree.insert(key);
+        }
+        long allocated = tree.allocatedBytes();
+        tree.delete(1);
+        for (int attempt = 0; attempt < 10; attempt++){
+            try {
+                tree.insert(-1 - attempt);
+                fail("Negative key written");
+            } catch (IllegalArgumentException expected){
+                // Refused, as intended.
+            }
+        }
+        // Eight records, counting the empty subtree, fill exactly the two slabs already allocated.
+        tree.insert(1);
+        tree.insert(4);
+        tree.insert(5);
+        tree.insert(6);
+        assertEquals(allocated, tree.allocatedBytes());
+        tree.validate();
+        assertEquals(7, tree.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlabSize_powerOfTwo(){
+        new OffHeapAVLTree<>(KeyCodec.INT, 100);
+    }
+
+    @Test
+    public void testEmpty(){
+        OffHeapAVLTree<Integer> tree = new OffHeapAVLTree<>(KeyCodec.INT);
+        assertTrue(tree.isEmpty());
+        assertNull(tree.getMin());
+        assertFalse(tree.delete(1));
+        assertFalse(tree.iterator().hasNext());
+        tree.insert(1);
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.contains(1));
+    }
+}
@@ -0,0 +1,106 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class PooledAVLTreeTest {
+
+    /**
+     * Random inserts and deletes must leave the same Keys as a TreeSet, in a valid, balanced tree.
+     */
+    @Test
+    public void testRandomUpdates_matchTreeSet() throws InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeSet<Integer> expected = new TreeSet<>();
+        PooledAVLTree<Integer> actual = new PooledAVLTree<>();
+        for (int step = 0; step < 20000; step++){
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0){
+                assertEquals(expected.remove(key), actual.delete(key));
+            } else {
+                assertEquals(expected.add(key), actual.insert(key));
+            }
+        }
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected), actual.toAscendingList());
+        assertEquals(expected.first(), actual.getMin());
+        assertEquals(expected.last(), actual.getMax());
+        assertEquals(new ArrayList<>(expected.subSet(100, true, 200, true)), actual.getRange(100, 200));
+        for (int key = -1; key <= 2000; key++){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(expected.headSet(key).size(), actual.rank(key));
+        }
+        for (int index = 0; index < actual.size(); index++){
+            assertEquals(index, actual.rank(actual.select(index)));
+        }
+    }
+
+    /**
+     * Slots freed by deletes must be reused by later inserts, rather than growing the arrays.
+     */
+    @Test
+    public void testDelete_reusesSlots(){
+        PooledAVLTree<Integer> tree = new PooledAVLTree<Integer>(Comparator.naturalOrder(), 100);
+        for (int key = 0; key < 100; key++){
+            tree.insert(key);
+        }
+        assertEquals(100, tree.capacity());
+        for (int round = 0; round < 10; round++){
+            for (int key = 0; key < 100; key += 2){
+                tree.delete(key);
+            }
+            for (int key = 0; key < 100; key += 2){
+                tree.insert(key);
+            }
+        }
+        assertEquals(100, tree.size());
+        assertEquals(100, tree.capacity());
+    }
+
+    @Test
+    public void testClear() throws InvalidSearchTreeException{
+        PooledAVLTree<Integer> tree = new PooledAVLTree<>();
+        for (int key = 0; key < 100; key++){
+            tree.insert(key);
+        }
+        int capacity = tree.capacity();
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertNull(tree.getMin());
+        tree.insert(5);
+        tree.validate();
+        assertEquals(1, tree.size());
+        assertEquals(capacity, tree.capacity());
+    }
+
+    @Test
+    public void testComparator() throws InvalidSearchTreeException{
+        PooledAVLTree<Integer> tree = new PooledAVLTree<Integer>(Comparator.reverseOrder());
+        for (int key = 0; key < 10; key++){
+            tree.insert(key);
+        }
+        tree.validate();
+        assertEquals(Integer.valueOf(9), tree.getMin());
+        assertEquals(4, tree.countRange(8, 5));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIterator_failsFast(){
+        PooledAVLTree<Integer> tree = new PooledAVLTree<>();
+        tree.insert(1);
+        tree.insert(2);
+        Iterator<Integer> iterator = tree.iterator();
+        iterator.next();
+        tree.insert(3);
+        iterator.next();
+    }
+}
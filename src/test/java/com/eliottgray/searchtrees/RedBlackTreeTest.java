@@ -0,0 +1,98 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class RedBlackTreeTest extends TreeTestSkeleton {
+
+    @Override
+    public RedBlackTree<Integer> buildEmptyTree(Comparator<Integer> comparator){
+        return new RedBlackTree<>(comparator);
+    }
+
+    /**
+     * Every update must agree with TreeSet and keep all red-black invariants, while leaving earlier versions intact.
+     */
+    @Test
+    public void testRandomOperations_matchTreeSet() throws InvalidSearchTreeException{
+        RedBlackTree<Integer> actual = new RedBlackTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(23);
+        for (int index = 0; index < 5000; index++){
+            int key = random.nextInt(1000);
+            RedBlackTree<Integer> previous = actual;
+            int previousSize = previous.size();
+            if (random.nextInt(3) > 0){
+                expected.add(key);
+                actual = actual.insert(key);
+            } else {
+                expected.remove(key);
+                actual = actual.delete(key);
+            }
+            actual.validate();
+            assertEquals(previousSize, previous.size());
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(new ArrayList<>(expected), actual.toAscendingList());
+        for (int key = 0; key < 1000; key += 7){
+            assertEquals(expected.contains(key), actual.contains(key));
+            assertEquals(expected.headSet(key).size(), actual.rank(key));
+        }
+    }
+
+    /**
+     * Sorted insertion leaves the tree at most twice as high as a perfectly balanced one.
+     */
+    @Test
+    public void testSortedInsertion_boundedHeight() throws InvalidSearchTreeException{
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        int count = 1 << 12;
+        for (int key = 0; key < count; key++){
+            tree = tree.insert(key);
+        }
+        tree.validate();
+        assertTrue(tree.getRoot().height <= 2 * 13);
+        for (int key = 0; key < count; key += 2){
+            tree = tree.delete(key);
+        }
+        tree.validate();
+        assertEquals(count / 2, tree.size());
+    }
+
+    /**
+     * Deleting every Key, in random order, must exercise each repair case while keeping the invariants throughout.
+     */
+    @Test
+    public void testDeleteAll_randomOrder() throws InvalidSearchTreeException{
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < 2000; key++){
+            keys.add(key);
+        }
+        Collections.shuffle(keys, new Random(7));
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (Integer key : keys){
+            tree = tree.insert(key);
+        }
+        Collections.shuffle(keys, new Random(11));
+        for (Integer key : keys){
+            tree = tree.delete(key);
+            tree.validate();
+            assertFalse(tree.contains(key));
+        }
+        assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    public void testDelete_absentKeyReturnsSameTree(){
+        RedBlackTree<Integer> tree = new RedBlackTree<Integer>().insert(1).insert(2);
+        assertSame(tree, tree.delete(3));
+    }
+}
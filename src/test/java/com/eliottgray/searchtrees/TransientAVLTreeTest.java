@@ -0,0 +1,147 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransientAVLTreeTest {
+
+    /**
+     * Inserting into a transient must result in the same contents, and the same balanced shape, as persistent inserts.
+     */
+    @Test
+    public void insert_matchesPersistentTree() throws InvalidSearchTreeException{
+        List<Integer> inputValues = shuffledValues(1000, 0);
+
+        AVLTree<Integer> expected = new AVLTree<>();
+        TransientAVLTree<Integer> builder = new AVLTree<Integer>().asTransient();
+        for (Integer integer : inputValues) {
+            expected = expected.insert(integer);
+            builder.insert(integer);
+        }
+        AVLTree<Integer> actual = builder.persistent();
+
+        actual.validate();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getRoot().height, actual.getRoot().height);
+        assertEquals(expected.toAscendingList(), actual.toAscendingList());
+    }
+
+    /**
+     * Deleting from a transient must result in the same contents as persistent deletes,
+     * including deletion of Keys which are not present.
+     */
+    @Test
+    public void delete_matchesPersistentTree() throws InvalidSearchTreeException{
+        List<Integer> inputValues = shuffledValues(1000, 1);
+        AVLTree<Integer> expected = new AVLTree<>();
+        for (Integer integer : inputValues) {
+            expected = expected.insert(integer);
+        }
+
+        TransientAVLTree<Integer> builder = expected.asTransient();
+        for (int index = 0; index < inputValues.size(); index += 2){
+            Integer key = inputValues.get(index);
+            expected = expected.delete(key);
+            builder.delete(key);
+            builder.delete(-key - 1);
+        }
+        AVLTree<Integer> actual = builder.persistent();
+
+        actual.validate();
+        assertEquals(500, actual.size());
+        assertEquals(expected.toAscendingList(), actual.toAscendingList());
+    }
+
+    /**
+     * Edits made through a transient must never be visible through the tree it was created from.
+     */
+    @Test
+    public void edits_leaveSourceTreeUnchanged() throws InvalidSearchTreeException{
+        AVLTree<Integer> source = new AVLTree<>();
+        for (Integer integer : shuffledValues(100, 2)) {
+            source = source.insert(integer);
+        }
+        List<Integer> sourceContents = source.toAscendingList();
+
+        TransientAVLTree<Integer> builder = source.asTransient();
+        for (int key = 0; key < 100; key += 3){
+            builder.delete(key);
+            builder.insert(key + 1000);
+        }
+        AVLTree<Integer> edited = builder.persistent();
+
+        source.validate();
+        edited.validate();
+        assertEquals(sourceContents, source.toAscendingList());
+        assertFalse(edited.contains(0));
+        assertTrue(edited.contains(1000));
+    }
+
+    /**
+     * Nodes created by a transient are edited in place; a further insert which causes no rotation keeps the same root.
+     * Ending the session copies those nodes into persistent ones.
+     *
+     *         2            2
+     *        /    --->    / \
+     *       1            1   3
+     */
+    @Test
+    public void insert_editsOwnedNodesInPlace(){
+        TransientAVLTree<Integer> builder = new AVLTree<Integer>().asTransient();
+        builder.insert(2).insert(1);
+        BinarySearchNode<Integer> root = builder.getRoot();
+
+        builder.insert(3);
+        assertSame(root, builder.getRoot());
+        assertEquals(3, root.getSize());
+        assertEquals(2, root.getHeight());
+
+        BinarySearchNode<Integer> persisted = builder.persistent().getRoot();
+        assertNotSame(root, persisted);
+        assertFalse(persisted instanceof TransientNode);
+        assertFalse(persisted.left instanceof TransientNode);
+        assertFalse(persisted.right instanceof TransientNode);
+        assertEquals(3, persisted.size);
+        assertEquals(2, persisted.height);
+    }
+
+    /**
+     * A later transient must copy, rather than edit, the nodes of a persisted tree.
+     */
+    @Test
+    public void insert_copiesPersistedNodes(){
+        AVLTree<Integer> previous = new AVLTree<Integer>().asTransient().insert(2).insert(1).persistent();
+        AVLTree<Integer> next = previous.asTransient().insert(3).persistent();
+
+        assertNotSame(previous.getRoot(), next.getRoot());
+        assertSame(previous.getRoot().left, next.getRoot().left);
+        assertEquals(2, previous.getRoot().size);
+        assertEquals(3, next.getRoot().size);
+    }
+
+    /**
+     * Once persistent() is called, the transient may no longer be used.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void persistent_endsSession(){
+        TransientAVLTree<Integer> builder = new AVLTree<Integer>().asTransient();
+        builder.insert(1);
+        builder.persistent();
+        builder.insert(2);
+    }
+
+    private static List<Integer> shuffledValues(int count, long seed){
+        List<Integer> values = new ArrayList<>();
+        for (int value = 0; value < count; value++){
+            values.add(value);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+}
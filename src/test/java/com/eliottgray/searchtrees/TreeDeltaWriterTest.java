@@ -0,0 +1,115 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TreeDeltaWriterTest {
+
+    /**
+     * Every version read back must hold the same Keys, in the same balanced shape, as the version written.
+     */
+    @Test
+    public void testRoundTrip_everyVersion() throws IOException, InvalidSearchTreeException{
+        Random random = new Random(0);
+        TreeDeltaWriter<Integer> writer = new TreeDeltaWriter<>(KeyCodec.INT);
+        TreeDeltaReader<Integer> reader = new TreeDeltaReader<>(KeyCodec.INT);
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int version = 0; version < 200; version++){
+            for (int change = 0; change < 20; change++){
+                int key = random.nextInt(1000);
+                tree = random.nextInt(3) == 0 ? tree.delete(key) : tree.insert(key);
+            }
+            AVLTree<Integer> read = reader.read(input(write(writer, tree)));
+            read.validate();
+            assertEquals(tree.toAscendingList(), read.toAscendingList());
+            assertEquals(tree.getRoot().height, read.getRoot().height);
+            assertEquals(version, reader.getLastVersion());
+        }
+    }
+
+    /**
+     * A single insert into a large tree must write only the copied path, and the reader must share everything else.
+     */
+    @Test
+    public void testDelta_writesOnlyChangedPath() throws IOException{
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int key = 0; key < 10000; key++){
+            tree = tree.insert(key * 2);
+        }
+        TreeDeltaWriter<Integer> writer = new TreeDeltaWriter<>(KeyCodec.INT);
+        TreeDeltaReader<Integer> reader = new TreeDeltaReader<>(KeyCodec.INT);
+
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        assertEquals(10000, writer.write(tree, new DataOutputStream(full)));
+        AVLTree<Integer> first = reader.read(input(full));
+
+        AVLTree<Integer> next = tree.insert(1);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        int written = writer.write(next, new DataOutputStream(delta));
+        assertTrue("Wrote " + written + " nodes", written <= next.getRoot().height + 2);
+        assertTrue(delta.size() < full.size() / 100);
+
+        AVLTree<Integer> second = reader.read(input(delta));
+        assertTrue(second.contains(1));
+        assertFalse(first.contains(1));
+        assertSame(first.getRoot().right, second.getRoot().right);
+    }
+
+    /**
+     * Once a tree shrinks well below the nodes remembered, the next version is written in full.
+     */
+    @Test
+    public void testShrunkTree_writtenInFull() throws IOException, InvalidSearchTreeException{
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int key = 0; key < 100; key++){
+            tree = tree.insert(key);
+        }
+        TreeDeltaWriter<Integer> writer = new TreeDeltaWriter<>(KeyCodec.INT);
+        TreeDeltaReader<Integer> reader = new TreeDeltaReader<>(KeyCodec.INT);
+        reader.read(input(write(writer, tree)));
+        for (int key = 0; key < 90; key++){
+            tree = tree.delete(key);
+        }
+        ByteArrayOutputStream record = write(writer, tree);
+        assertEquals(TreeDeltaWriter.FULL, record.toByteArray()[0]);
+        AVLTree<Integer> read = reader.read(input(record));
+        read.validate();
+        assertEquals(tree.toAscendingList(), read.toAscendingList());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDelta_skippedVersion() throws IOException{
+        TreeDeltaWriter<Integer> writer = new TreeDeltaWriter<>(KeyCodec.INT);
+        TreeDeltaReader<Integer> reader = new TreeDeltaReader<>(KeyCodec.INT);
+        AVLTree<Integer> tree = new AVLTree<Integer>().insert(1);
+        reader.read(input(write(writer, tree)));
+        write(writer, tree.insert(2));
+        reader.read(input(write(writer, tree.insert(3))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDelta_withoutFull() throws IOException{
+        TreeDeltaWriter<Integer> writer = new TreeDeltaWriter<>(KeyCodec.INT);
+        AVLTree<Integer> tree = new AVLTree<Integer>().insert(1);
+        write(writer, tree);
+        new TreeDeltaReader<>(KeyCodec.INT).read(input(write(writer, tree.insert(2))));
+    }
+
+    private static ByteArrayOutputStream write(TreeDeltaWriter<Integer> writer, AVLTree<Integer> tree) throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(tree, new DataOutputStream(bytes));
+        return bytes;
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes){
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
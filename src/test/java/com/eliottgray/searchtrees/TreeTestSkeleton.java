@@ -6,7 +6,10 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
@@ -174,6 +177,64 @@ public abstract class TreeTestSkeleton {
         testTree.validate();
     }
 
+    /**
+     * Test lazy iteration over Keys in ascending order.
+     */
+    @Test
+    public void testIterator(){
+        assertFalse(testTree.iterator().hasNext());
+
+        List<Integer> inputValues = new ArrayList<Integer>(){{add(50); add(2); add(10); add(4); add(1); add(7);}};
+        for (Integer integer : inputValues) {
+            testTree = testTree.insert(integer);
+        }
+
+        List<Integer> iterated = new ArrayList<>();
+        for (Integer key : testTree) {
+            iterated.add(key);
+        }
+        assertEquals(testTree.toAscendingList(), iterated);
+
+        // Stopping early visits only the least Keys.
+        Iterator<Integer> iterator = testTree.iterator();
+        assertEquals(Integer.valueOf(1), iterator.next());
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertTrue(iterator.hasNext());
+    }
+
+    /**
+     * An exhausted iterator must refuse to continue.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testIterator_exhausted(){
+        testTree = testTree.insert(1);
+        Iterator<Integer> iterator = testTree.iterator();
+        iterator.next();
+        iterator.next();
+    }
+
+    /**
+     * Test sequential and parallel streams over Keys.
+     */
+    @Test
+    public void testStreams(){
+        assertEquals(0, testTree.stream().count());
+
+        List<Integer> inputValues = new ArrayList<>();
+        for (int value = 0; value < 1000; value++) {
+            inputValues.add((value * 7919) % 1000);
+        }
+        for (Integer integer : inputValues) {
+            testTree = testTree.insert(integer);
+        }
+
+        Collections.sort(inputValues);
+        assertEquals(inputValues, testTree.stream().collect(Collectors.toList()));
+        assertEquals(inputValues, testTree.parallelStream().collect(Collectors.toList()));
+        assertEquals(499500L, testTree.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(1000, testTree.parallelStream().count());
+    }
+
     /**
      * Test retrieval of Keys corresponding to an inclusive range.
      */
@@ -197,6 +258,28 @@ public abstract class TreeTestSkeleton {
         assertEquals(expectedRange, actualRange);
     }
 
+    /**
+     * Test counting of Keys within an inclusive range, which must always match the size of the retrieved range.
+     */
+    @Test
+    public void testCountRange(){
+        assertEquals(0, testTree.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        for (int value = 0; value < 50; value += 5) {
+            testTree = testTree.insert(value);
+        }
+
+        for (int start = -3; start <= 53; start++){
+            for (int end = start - 3; end <= 53; end += 2){
+                assertEquals(testTree.getRange(start, end).size(), testTree.countRange(start, end));
+            }
+        }
+        assertEquals(10, testTree.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(1, testTree.countRange(5, 5));
+        assertEquals(0, testTree.countRange(6, 9));
+        assertEquals(0, testTree.countRange(10, 5));
+    }
+
     /**
      * Test retrieval of minimum and maximum values.
      */
@@ -0,0 +1,162 @@
+package com.eliottgray.searchtrees;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class VersionedTreeStoreTest {
+
+    @Test
+    public void testCommit_numbersVersions(){
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>());
+        assertEquals(0, store.getLatestVersion());
+        assertEquals(1, store.insert(5));
+        assertEquals(2, store.insert(7));
+        assertEquals(3, store.delete(5));
+        assertEquals(3, store.getLatestVersion());
+        assertEquals(1, store.current().size());
+        assertTrue(store.current().contains(7));
+        assertEquals(1, store.getRetainedVersionCount());
+    }
+
+    /**
+     * A pinned version keeps its contents, and stays retained, while later versions are committed.
+     */
+    @Test
+    public void testPin_retainsVersion(){
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>());
+        for (int key = 0; key < 10; key++){
+            store.insert(key);
+        }
+        VersionedTreeStore.Snapshot<Integer> snapshot = store.pin();
+        assertEquals(10, snapshot.getVersion());
+        for (int key = 0; key < 10; key++){
+            store.delete(key);
+        }
+        assertTrue(store.current().isEmpty());
+        assertEquals(10, snapshot.getTree().size());
+        assertEquals(2, store.getRetainedVersionCount());
+        assertEquals(10, store.getOldestRetainedVersion());
+
+        // Pinning a retained version again adds a pin; the version stays until both are released.
+        VersionedTreeStore.Snapshot<Integer> again = store.pin(10);
+        assertSame(snapshot.getTree(), again.getTree());
+        snapshot.close();
+        snapshot.close();
+        assertEquals(2, store.getRetainedVersionCount());
+        again.close();
+        assertEquals(1, store.getRetainedVersionCount());
+        assertEquals(20, store.getOldestRetainedVersion());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPin_droppedVersion(){
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>());
+        store.insert(1);
+        store.insert(2);
+        store.pin(1);
+    }
+
+    /**
+     * The most recent versions are retained for pinning even when unpinned.
+     */
+    @Test
+    public void testRetainedRecent(){
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>(), 3);
+        for (int key = 0; key < 10; key++){
+            store.insert(key);
+        }
+        assertEquals(3, store.getRetainedVersionCount());
+        assertEquals(8, store.getOldestRetainedVersion());
+        try (VersionedTreeStore.Snapshot<Integer> snapshot = store.pin(8)){
+            assertEquals(8, snapshot.getTree().size());
+            store.insert(10);
+            store.insert(11);
+            assertEquals(4, store.getRetainedVersionCount());
+        }
+        assertEquals(3, store.getRetainedVersionCount());
+        assertEquals(10, store.getOldestRetainedVersion());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRetainedRecent_atLeastOne(){
+        new VersionedTreeStore<>(new AVLTree<Integer>(), 0);
+    }
+
+    /**
+     * Scans of a pinned version see the same Keys every time, while a writer keeps committing.
+     */
+    @Test
+    public void testScan_consistentDuringWrites() throws InterruptedException{
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>());
+        for (int key = 0; key < 1000; key++){
+            store.insert(key);
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            int key = 1000;
+            while (!stop.get()){
+                store.insert(key);
+                store.delete(key - 1000);
+                key++;
+            }
+        });
+        writer.start();
+        try {
+            for (int scan = 0; scan < 20; scan++){
+                try (VersionedTreeStore.Snapshot<Integer> snapshot = store.pin()){
+                    List<Integer> first = snapshot.getTree().getRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    List<Integer> second = new ArrayList<>();
+                    snapshot.getTree().forEach(second::add);
+                    assertEquals(first, second);
+                    try (VersionedTreeStore.Snapshot<Integer> again = store.pin(snapshot.getVersion())){
+                        assertSame(snapshot.getTree(), again.getTree());
+                    }
+                }
+            }
+            assertEquals(1, store.getRetainedVersionCount());
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    /**
+     * Readers must not wait behind an update which is still running.
+     */
+    @Test(timeout = 10000)
+    public void testRead_duringSlowCommit() throws InterruptedException{
+        VersionedTreeStore<Integer> store = new VersionedTreeStore<>(new AVLTree<Integer>().insert(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread writer = new Thread(() -> store.commit(tree -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return tree.insert(2);
+        }));
+        writer.start();
+        try {
+            started.await();
+            assertEquals(0, store.getLatestVersion());
+            assertFalse(store.current().contains(2));
+            try (VersionedTreeStore.Snapshot<Integer> snapshot = store.pin()){
+                assertEquals(0, snapshot.getVersion());
+            }
+        } finally {
+            finish.countDown();
+            writer.join();
+        }
+        assertEquals(1, store.getLatestVersion());
+        assertTrue(store.current().contains(2));
+    }
+}